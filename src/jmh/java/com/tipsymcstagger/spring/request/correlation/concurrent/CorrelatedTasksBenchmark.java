@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.concurrent;
+
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationConsts;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationUtils;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Benchmarks the per-task overhead of running tasks with the current correlation. The task reads
+ * the request id, the way an outbound client interceptor would. The {@code plain} benchmarks run
+ * the same task without the correlation, as a baseline.
+ *
+ * <p>The {@code call} benchmarks run on the calling thread, so they measure only the capture and
+ * the binding. The {@code supplyAsync} benchmarks include the thread hop to the common pool.
+ *
+ * @author Steven C. Saliman
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class CorrelatedTasksBenchmark {
+
+  private final Callable<String> task = RequestCorrelationUtils::getCurrentRequestId;
+
+  private final Supplier<String> supplier = RequestCorrelationUtils::getCurrentRequestId;
+
+  private Callable<String> wrappedTask;
+
+  @Setup
+  public void setUp() {
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+    RequestContextHolder.getRequestAttributes()
+        .setAttribute(
+            RequestCorrelationConsts.ATTRIBUTE_NAME,
+            new DefaultRequestCorrelation("customSessionId", "customRequestId"),
+            RequestAttributes.SCOPE_REQUEST);
+    wrappedTask = CorrelatedTasks.wrap(task);
+  }
+
+  @TearDown
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Benchmark
+  public String plainCall() throws Exception {
+    return task.call();
+  }
+
+  /** Captures the correlation and binds it around the task. */
+  @Benchmark
+  public String wrapAndCall() throws Exception {
+    return CorrelatedTasks.wrap(task).call();
+  }
+
+  /** Binds a correlation captured ahead of time around the task. */
+  @Benchmark
+  public String callWrapped() throws Exception {
+    return wrappedTask.call();
+  }
+
+  @Benchmark
+  public String plainSupplyAsync() {
+    return CompletableFuture.supplyAsync(supplier).join();
+  }
+
+  @Benchmark
+  public String correlatedSupplyAsync() {
+    return CorrelatedFutures.supplyAsync(supplier).join();
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.feign;
+
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationConsts;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import feign.RequestTemplate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Benchmarks the {@link FeignCorrelationInterceptor} on a request thread that has correlation ids
+ * bound to it. A new template is created on each call, the same way Feign does for each outgoing
+ * request, so the cost of an empty template is included in the score.
+ *
+ * @author Steven C. Saliman
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class FeignCorrelationInterceptorBenchmark {
+
+  private FeignCorrelationInterceptor interceptor;
+
+  @Setup
+  public void setUp() {
+    interceptor = new FeignCorrelationInterceptor(new RequestCorrelationProperties());
+
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+    RequestContextHolder.getRequestAttributes()
+        .setAttribute(
+            RequestCorrelationConsts.ATTRIBUTE_NAME,
+            new DefaultRequestCorrelation("customSessionId", "customRequestId"),
+            RequestAttributes.SCOPE_REQUEST);
+  }
+
+  @TearDown
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Benchmark
+  public RequestTemplate apply() {
+    final RequestTemplate template = new RequestTemplate();
+    interceptor.apply(template);
+    return template;
+  }
+}
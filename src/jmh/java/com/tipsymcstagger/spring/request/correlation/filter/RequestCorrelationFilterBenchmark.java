@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.filter;
+
+import com.tipsymcstagger.spring.request.correlation.accesslog.AccessLogWriter;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationHolderStrategy;
+import com.tipsymcstagger.spring.request.correlation.generator.DefaultIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.support.AccessLogOverflowPolicy;
+import com.tipsymcstagger.spring.request.correlation.support.CorrelationHolderMode;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationHolder;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationConsts;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+
+/**
+ * Benchmarks the {@link RequestCorrelationFilter}, both the filter itself and the header lookups on
+ * the request wrapper it hands to the rest of the filter chain. The benchmarks that take a {@link
+ * HolderState} run once for each {@link CorrelationHolderMode}; the scoped value runs fail on JVMs
+ * without scoped values.
+ *
+ * @author Steven C. Saliman
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class RequestCorrelationFilterBenchmark {
+
+  private RequestCorrelationFilter filter;
+
+  /** The same filter, recording the requests it processes in a registry. */
+  private RequestCorrelationFilter registeringFilter;
+
+  /** The writer of the access log filter. */
+  private AccessLogWriter accessLog;
+
+  /** The same filter, writing an access log line for every request. */
+  private RequestCorrelationFilter accessLogFilter;
+
+  /** A request that arrives with both correlation headers. */
+  private MockHttpServletRequest requestWithIds;
+
+  /** A request that arrives without correlation headers, so the filter generates them. */
+  private MockHttpServletRequest requestWithoutIds;
+
+  private MockHttpServletResponse response;
+
+  /** A chain that just remembers the request it was given. */
+  private CapturingFilterChain chain;
+
+  /** The wrapped request the filter passed down the chain, used by the header benchmarks. */
+  private HttpServletRequest correlatedRequest;
+
+  @Setup
+  public void setUp() throws IOException, ServletException {
+    filter =
+        new RequestCorrelationFilter(
+            new DefaultIdGenerator(), new ArrayList<>(), new RequestCorrelationProperties());
+    registeringFilter =
+        RequestCorrelationFilter.builder(
+                new DefaultIdGenerator(), new ArrayList<>(), new RequestCorrelationProperties())
+            .registry(new InFlightRequestRegistry(1024))
+            .build();
+    accessLog =
+        new AccessLogWriter(
+            Files.createTempFile("access", ".log"),
+            8192,
+            256,
+            10L * 1024 * 1024,
+            1,
+            AccessLogOverflowPolicy.DROP);
+    accessLogFilter =
+        RequestCorrelationFilter.builder(
+                new DefaultIdGenerator(), new ArrayList<>(), new RequestCorrelationProperties())
+            .accessLog(accessLog)
+            .build();
+
+    requestWithIds = typicalRequest();
+    requestWithIds.addHeader(RequestCorrelationConsts.SESSION_HEADER_NAME, "customSessionId");
+    requestWithIds.addHeader(
+        RequestCorrelationConsts.REQUEST_HEADER_NAME, "0c6a8f4e-5f35-4bc1-9f8c-2f4d1f0b7d3a");
+
+    // Give the request a session up front so the benchmark measures the generator and not the
+    // creation of a mock session.
+    requestWithoutIds = typicalRequest();
+    requestWithoutIds.setSession(new MockHttpSession(null, "customSessionId"));
+
+    response = new MockHttpServletResponse();
+    chain = new CapturingFilterChain();
+
+    filter.doFilter(requestWithIds, response, chain);
+    correlatedRequest = (HttpServletRequest) chain.request;
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    accessLog.close();
+    Files.deleteIfExists(accessLog.getFile());
+  }
+
+  @Benchmark
+  public ServletRequest doFilterIdsPresent() throws IOException, ServletException {
+    filter.doFilter(requestWithIds, response, chain);
+    return chain.request;
+  }
+
+  @Benchmark
+  public ServletRequest doFilterIdsPresentInFlight() throws IOException, ServletException {
+    registeringFilter.doFilter(requestWithIds, response, chain);
+    return chain.request;
+  }
+
+  @Benchmark
+  public ServletRequest doFilterIdsPresentAccessLog() throws IOException, ServletException {
+    accessLogFilter.doFilter(requestWithIds, response, chain);
+    return chain.request;
+  }
+
+  @Benchmark
+  public ServletRequest doFilterIdsGenerated() throws IOException, ServletException {
+    filter.doFilter(requestWithoutIds, response, chain);
+    return chain.request;
+  }
+
+  /** The filter with ids present, binding the correlation with each holder strategy. */
+  @Benchmark
+  public ServletRequest doFilterIdsPresentHolder(HolderState holder)
+      throws IOException, ServletException {
+    filter.doFilter(requestWithIds, response, chain);
+    return chain.request;
+  }
+
+  /** Binding a correlation and reading it back, with each holder strategy. */
+  @Benchmark
+  public RequestCorrelation callWithGetCorrelation(HolderState holder) throws Exception {
+    return holder.strategy.callWith(holder.correlation, holder.strategy::getCorrelation);
+  }
+
+  @Benchmark
+  public String getCorrelationHeader() {
+    return correlatedRequest.getHeader(RequestCorrelationConsts.REQUEST_HEADER_NAME);
+  }
+
+  @Benchmark
+  public String getOtherHeader() {
+    return correlatedRequest.getHeader("Accept");
+  }
+
+  @Benchmark
+  public void getCorrelationHeaders(Blackhole blackhole) {
+    drain(correlatedRequest.getHeaders(RequestCorrelationConsts.REQUEST_HEADER_NAME), blackhole);
+  }
+
+  @Benchmark
+  public void getOtherHeaders(Blackhole blackhole) {
+    drain(correlatedRequest.getHeaders("Accept"), blackhole);
+  }
+
+  @Benchmark
+  public void getHeaderNames(Blackhole blackhole) {
+    drain(correlatedRequest.getHeaderNames(), blackhole);
+  }
+
+  /**
+   * Walks an enumeration the way a framework would when it copies the headers of a request.
+   *
+   * @param values the enumeration to consume.
+   * @param blackhole the blackhole that keeps the values alive.
+   */
+  private static void drain(Enumeration<String> values, Blackhole blackhole) {
+    while (values.hasMoreElements()) {
+      blackhole.consume(values.nextElement());
+    }
+  }
+
+  /**
+   * Builds a request with the headers a browser or a collaborating service typically sends.
+   *
+   * @return the request.
+   */
+  private static MockHttpServletRequest typicalRequest() {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ids");
+    request.addHeader("Host", "localhost:8080");
+    request.addHeader("Accept", "application/json");
+    request.addHeader("Accept-Encoding", "gzip, deflate");
+    request.addHeader("User-Agent", "ReactorNetty/1.1.22");
+    request.addHeader("Connection", "keep-alive");
+    return request;
+  }
+
+  /** Installs the holder strategy of one {@link CorrelationHolderMode} for a benchmark run. */
+  @State(Scope.Thread)
+  public static class HolderState {
+
+    @Param({"THREAD_LOCAL", "SCOPED_VALUE"})
+    private CorrelationHolderMode mode;
+
+    private RequestCorrelationHolderStrategy strategy;
+
+    /** The strategy that was installed before, restored after the run. */
+    private RequestCorrelationHolderStrategy previous;
+
+    private final RequestCorrelation correlation =
+        new DefaultRequestCorrelation("customSessionId", "customRequestId");
+
+    @Setup
+    public void setUp() {
+      strategy = RequestCorrelationHolder.createStrategy(mode);
+      previous = RequestCorrelationHolder.getStrategy();
+      RequestCorrelationHolder.setStrategy(strategy);
+    }
+
+    @TearDown
+    public void tearDown() {
+      RequestCorrelationHolder.setStrategy(previous);
+    }
+  }
+
+  /** A {@link FilterChain} that ends the chain and keeps the request it was called with. */
+  private static class CapturingFilterChain implements FilterChain {
+
+    private ServletRequest request;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response) {
+      this.request = request;
+    }
+  }
+}
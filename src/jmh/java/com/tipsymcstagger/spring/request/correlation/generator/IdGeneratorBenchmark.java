@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.generator;
+
+import com.tipsymcstagger.spring.request.correlation.api.CorrelationIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.support.IdEncoding;
+import com.tipsymcstagger.spring.request.correlation.support.SessionIdStrategy;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+
+/**
+ * Benchmarks the {@link CorrelationIdGenerator} implementations that ship with the starter. Run it
+ * with several threads (for example {@code -t 8}) to see how the generators behave when request
+ * threads generate ids at the same time.
+ *
+ * @author Steven C. Saliman
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class IdGeneratorBenchmark {
+
+  private CorrelationIdGenerator defaultGenerator;
+
+  private CorrelationIdGenerator timeOrderedGenerator;
+
+  private CorrelationIdGenerator base64UrlGenerator;
+
+  private CorrelationIdGenerator base62Generator;
+
+  private PooledIdGenerator pooledGenerator;
+
+  private MockHttpServletRequest request;
+
+  @Setup
+  public void setUp() {
+    defaultGenerator = new DefaultIdGenerator();
+    timeOrderedGenerator = new TimeOrderedIdGenerator();
+    base64UrlGenerator =
+        new TimeOrderedIdGenerator(SessionIdStrategy.HTTP_SESSION, IdEncoding.BASE64URL);
+    base62Generator = new TimeOrderedIdGenerator(SessionIdStrategy.HTTP_SESSION, IdEncoding.BASE62);
+    pooledGenerator = new PooledIdGenerator(new DefaultIdGenerator(), 1024, 64);
+    request = new MockHttpServletRequest();
+    request.setSession(new MockHttpSession(null, "customSessionId"));
+  }
+
+  @TearDown
+  public void tearDown() {
+    pooledGenerator.close();
+  }
+
+  @Benchmark
+  public String defaultRequestId() {
+    return defaultGenerator.generateRequestId(request);
+  }
+
+  @Benchmark
+  public String timeOrderedRequestId() {
+    return timeOrderedGenerator.generateRequestId(request);
+  }
+
+  @Benchmark
+  public String base64UrlRequestId() {
+    return base64UrlGenerator.generateRequestId(request);
+  }
+
+  @Benchmark
+  public String base62RequestId() {
+    return base62Generator.generateRequestId(request);
+  }
+
+  @Benchmark
+  public String pooledRequestId() {
+    return pooledGenerator.generateRequestId(request);
+  }
+
+  @Benchmark
+  public String defaultSessionId() {
+    return defaultGenerator.generateSessionId(request);
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.http;
+
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationConsts;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Benchmarks the {@link ClientHttpRequestCorrelationInterceptor} on a request thread that has
+ * correlation ids bound to it. A new outgoing request is created on each call, the same way a
+ * RestTemplate would, so the cost of an empty request is included in the score.
+ *
+ * @author Steven C. Saliman
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ClientHttpRequestCorrelationInterceptorBenchmark {
+
+  private static final byte[] BODY = new byte[0];
+
+  private ClientHttpRequestCorrelationInterceptor interceptor;
+
+  private ClientHttpRequestExecution execution;
+
+  @Setup
+  public void setUp() {
+    interceptor = new ClientHttpRequestCorrelationInterceptor(new RequestCorrelationProperties());
+    final ClientHttpResponse response = new MockClientHttpResponse(BODY, HttpStatus.OK);
+    execution = (request, body) -> response;
+
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+    RequestContextHolder.getRequestAttributes()
+        .setAttribute(
+            RequestCorrelationConsts.ATTRIBUTE_NAME,
+            new DefaultRequestCorrelation("customSessionId", "customRequestId"),
+            RequestAttributes.SCOPE_REQUEST);
+  }
+
+  @TearDown
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Benchmark
+  public ClientHttpResponse intercept() throws IOException {
+    return interceptor.intercept(new MockClientHttpRequest(), BODY, execution);
+  }
+}
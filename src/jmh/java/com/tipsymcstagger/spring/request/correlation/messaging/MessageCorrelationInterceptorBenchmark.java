@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.messaging;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationHolderStrategy;
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationHolder;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Benchmarks the per-message overhead of the {@link MessageCorrelationInterceptor}. Messages are
+ * sent through in-memory channels without an executor, so the handler runs on the benchmark thread
+ * and the numbers don't include any hand-off between threads.
+ *
+ * @author Steven C. Saliman
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class MessageCorrelationInterceptorBenchmark {
+
+  private ExecutorSubscribableChannel plainChannel;
+
+  private ExecutorSubscribableChannel correlatedChannel;
+
+  private Message<String> message;
+
+  private RequestCorrelationHolderStrategy.Binding binding;
+
+  private Message<?> handled;
+
+  @Setup
+  public void setUp() {
+    plainChannel = new ExecutorSubscribableChannel();
+    plainChannel.subscribe(received -> handled = received);
+
+    correlatedChannel = new ExecutorSubscribableChannel();
+    correlatedChannel.addInterceptor(
+        new MessageCorrelationInterceptor(
+            Collections.emptyList(), new RequestCorrelationProperties()));
+    correlatedChannel.subscribe(received -> handled = received);
+
+    message = MessageBuilder.withPayload("payload").build();
+    binding =
+        RequestCorrelationHolder.bind(
+            new DefaultRequestCorrelation("customSessionId", "customRequestId"));
+  }
+
+  @TearDown
+  public void tearDown() {
+    binding.close();
+  }
+
+  /** A send through a channel without the interceptor, for comparison. */
+  @Benchmark
+  public Message<?> plain() {
+    plainChannel.send(message);
+    return handled;
+  }
+
+  /** A send that copies the ids into the message and binds them while it is handled. */
+  @Benchmark
+  public Message<?> correlated() {
+    correlatedChannel.send(message);
+    return handled;
+  }
+}
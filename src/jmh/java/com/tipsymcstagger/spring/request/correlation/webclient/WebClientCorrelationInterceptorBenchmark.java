@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.webclient;
+
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationConsts;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Benchmarks the filter function the {@link WebClientCorrelationInterceptor} adds to a {@link
+ * WebClient.Builder}. The exchange function at the end of the chain doesn't do any I/O, it just
+ * remembers the request the filter gave it.
+ *
+ * <p>Comparing {@code uncorrelated} with {@code baseline} in the {@code gc.alloc.rate.norm} column
+ * shows what the filter costs for calls made outside a correlated request, where it no longer
+ * copies the request. The other benchmarks show the cost of the copy when there are ids to add.
+ *
+ * @author Steven C. Saliman
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class WebClientCorrelationInterceptorBenchmark {
+
+  private ExchangeFilterFunction filter;
+
+  private ExchangeFunction next;
+
+  private ClientRequest request;
+
+  private ClientRequest exchanged;
+
+  private RequestAttributes attributes;
+
+  private Context context;
+
+  @Setup
+  public void setUp() {
+    final WebClient.Builder builder = WebClient.builder();
+    new WebClientCorrelationInterceptor(new RequestCorrelationProperties()).customize(builder);
+    builder.filters(filters -> filter = filters.get(0));
+
+    request = ClientRequest.create(HttpMethod.GET, URI.create("http://localhost/ids")).build();
+    next =
+        clientRequest -> {
+          exchanged = clientRequest;
+          return Mono.empty();
+        };
+
+    final DefaultRequestCorrelation correlation =
+        new DefaultRequestCorrelation("customSessionId", "customRequestId");
+    attributes = new ServletRequestAttributes(new MockHttpServletRequest());
+    attributes.setAttribute(
+        RequestCorrelationConsts.ATTRIBUTE_NAME, correlation, RequestAttributes.SCOPE_REQUEST);
+    context = Context.of(RequestCorrelationConsts.ATTRIBUTE_NAME, correlation);
+  }
+
+  /** The exchange without the filter, for comparison. */
+  @Benchmark
+  public ClientRequest baseline() {
+    next.exchange(request).block();
+    return exchanged;
+  }
+
+  /** A call made outside a correlated request. */
+  @Benchmark
+  public ClientRequest uncorrelated() {
+    filter.filter(request, next).block();
+    return exchanged;
+  }
+
+  /** A call made while handling a servlet request. */
+  @Benchmark
+  public ClientRequest fromServletRequest() {
+    RequestContextHolder.setRequestAttributes(attributes);
+    try {
+      filter.filter(request, next).block();
+    } finally {
+      RequestContextHolder.resetRequestAttributes();
+    }
+    return exchanged;
+  }
+
+  /** A call made while handling a reactive request. */
+  @Benchmark
+  public ClientRequest fromReactorContext() {
+    filter.filter(request, next).contextWrite(context).block();
+    return exchanged;
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.accesslog;
+
+/**
+ * A completed request, waiting to be written to the access log. Records are created on the request
+ * thread and formatted on the writer thread, so creating one only copies the values.
+ *
+ * @author Steven C. Saliman
+ */
+final class AccessLogRecord {
+
+  /** The time the request completed, in milliseconds since the epoch. */
+  final long timestampMillis;
+
+  /** The correlation session id. */
+  final String sessionId;
+
+  /** The correlation request id. */
+  final String requestId;
+
+  /** The HTTP method of the request. */
+  final String method;
+
+  /** The URI of the request. */
+  final String uri;
+
+  /** The status code of the response. */
+  final int status;
+
+  /** How long the request took, in nanoseconds. */
+  final long durationNanos;
+
+  /** The number of bytes written to the response body, or a negative number if unknown. */
+  final long bytes;
+
+  AccessLogRecord(
+      long timestampMillis,
+      String sessionId,
+      String requestId,
+      String method,
+      String uri,
+      int status,
+      long durationNanos,
+      long bytes) {
+    this.timestampMillis = timestampMillis;
+    this.sessionId = sessionId;
+    this.requestId = requestId;
+    this.method = method;
+    this.uri = uri;
+    this.status = status;
+    this.durationNanos = durationNanos;
+    this.bytes = bytes;
+  }
+}
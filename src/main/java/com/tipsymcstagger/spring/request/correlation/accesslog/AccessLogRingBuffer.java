@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free ring buffer of access log records, for any number of request threads to
+ * offer records to and a single writer thread to take them from.
+ *
+ * <p>A request thread claims a position with a compare-and-set on the tail, then publishes its
+ * record in the slot with an ordered write. The writer takes records in order, and a slot is only
+ * reused after the writer has emptied it and moved the head past it. A record whose position has
+ * been claimed but that hasn't been published yet holds up the writer until it is.
+ *
+ * @author Steven C. Saliman
+ */
+final class AccessLogRingBuffer {
+
+  /** The slots, {@code null} when they are empty. */
+  private final AtomicReferenceArray<AccessLogRecord> slots;
+
+  /** The mask that turns a position into a slot index. */
+  private final int mask;
+
+  /** The position of the next record to take, only moved by the writer. */
+  private final AtomicLong head = new AtomicLong();
+
+  /** The position of the next record to offer. */
+  private final AtomicLong tail = new AtomicLong();
+
+  /**
+   * Creates new instance of {@link AccessLogRingBuffer} class.
+   *
+   * @param capacity the minimum number of records the buffer holds, rounded up to a power of two
+   */
+  AccessLogRingBuffer(int capacity) {
+    this.slots =
+        new AtomicReferenceArray<>(capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1);
+    this.mask = slots.length() - 1;
+  }
+
+  /**
+   * Adds a record to the buffer, unless it is full.
+   *
+   * @param record the record
+   * @return whether the record was added
+   */
+  boolean offer(AccessLogRecord record) {
+    final int capacity = slots.length();
+    long position;
+    do {
+      position = tail.get();
+      if (position - head.get() >= capacity) {
+        return false;
+      }
+    } while (!tail.compareAndSet(position, position + 1));
+    slots.setRelease((int) position & mask, record);
+    return true;
+  }
+
+  /**
+   * Takes the oldest record from the buffer. Only the writer thread may call this.
+   *
+   * @return the record, or {@code null} if there is no record, or the oldest one hasn't been
+   *     published yet
+   */
+  AccessLogRecord poll() {
+    final long position = head.get();
+    final int index = (int) position & mask;
+    final AccessLogRecord record = slots.getAcquire(index);
+    if (record == null) {
+      return null;
+    }
+    slots.setPlain(index, null);
+    // releases the emptied slot to the request threads
+    head.lazySet(position + 1);
+    return record;
+  }
+
+  /**
+   * @return the number of records the buffer holds.
+   */
+  int capacity() {
+    return slots.length();
+  }
+
+  /**
+   * @return whether every record that was offered has been taken.
+   */
+  boolean isEmpty() {
+    return head.get() == tail.get();
+  }
+}
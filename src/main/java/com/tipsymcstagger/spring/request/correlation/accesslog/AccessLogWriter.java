@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.accesslog;
+
+import com.tipsymcstagger.spring.request.correlation.support.AccessLogOverflowPolicy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Writes an access log line for every completed request, with its correlation ids, status, duration
+ * and size. Request threads only put a record in a lock-free ring buffer. A single writer thread
+ * takes the records off the buffer, formats them in batches, and writes each batch to the log file
+ * with one {@link FileChannel} write. When the buffer is full, the {@link AccessLogOverflowPolicy}
+ * decides whether the record is dropped or the request thread waits for room.
+ *
+ * <p>When the file grows past the maximum size, it is rolled: {@code access.log} becomes {@code
+ * access.log.1}, {@code access.log.1} becomes {@code access.log.2}, and so on, and the oldest file
+ * beyond the history is deleted. If the files can't be moved, lines keep being appended to the
+ * current file, and rolling is tried again once it has grown by another maximum size.
+ *
+ * <p>Each line starts with the time the request completed, in ISO-8601 format, followed by the
+ * {@code requestId}, {@code sessionId}, {@code method}, {@code uri}, {@code status}, {@code
+ * durationMs} and {@code bytes} of the request as {@code name=value} pairs. Ids that were never
+ * generated, and sizes that are unknown, are written as {@code -}.
+ *
+ * <p>Instances own a thread and a file, and should be closed when they are no longer needed.
+ * Records that are still buffered when the writer is closed are written before it stops.
+ *
+ * @author Steven C. Saliman
+ */
+public class AccessLogWriter implements AutoCloseable {
+
+  /** Logger instance used by this class. */
+  private static final Logger logger = LoggerFactory.getLogger(AccessLogWriter.class);
+
+  /** How long the writer sleeps when the buffer is empty. */
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  /** How long a request thread sleeps while it waits for room in the buffer. */
+  private static final long WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  /** The records waiting to be written. */
+  private final AccessLogRingBuffer buffer;
+
+  /** The maximum number of records written at a time. */
+  private final int batchSize;
+
+  /** The size at which the log file is rolled, in bytes. */
+  private final long maxFileSize;
+
+  /** The number of rolled files to keep. */
+  private final int maxHistory;
+
+  /** What to do with a record when the buffer is full. */
+  private final AccessLogOverflowPolicy overflowPolicy;
+
+  /** The log file. */
+  private final Path file;
+
+  /** The number of records that were dropped because the buffer was full. */
+  private final LongAdder dropped = new LongAdder();
+
+  /** The lines of the current batch, only used by the writer thread. */
+  private final StringBuilder lines = new StringBuilder();
+
+  /** The channel of the log file, only used by the writer thread once it has started. */
+  private FileChannel channel;
+
+  /** The size of the log file, only used by the writer thread once it has started. */
+  private long fileSize;
+
+  /**
+   * The size at which the log file is rolled next, only used by the writer thread once it has
+   * started. It is pushed back when rolling fails, so a failure isn't retried for every batch.
+   */
+  private long rollSize;
+
+  /** The thread that writes the records. */
+  private final Thread writer;
+
+  /** Whether the writer should keep running. */
+  private volatile boolean running = true;
+
+  /**
+   * Creates new instance of {@link AccessLogWriter} class, opens the log file, and starts the
+   * thread that writes the records. Lines are appended to an existing file.
+   *
+   * @param file the log file
+   * @param bufferCapacity the maximum number of records waiting to be written, rounded up to a
+   *     power of two
+   * @param batchSize the maximum number of records written at a time
+   * @param maxFileSize the size at which the log file is rolled, in bytes
+   * @param maxHistory the number of rolled files to keep
+   * @param overflowPolicy what to do with a record when the buffer is full
+   * @throws IOException if the log file can't be opened
+   * @throws IllegalArgumentException if {@code file} or {@code overflowPolicy} is {@code null},
+   *     {@code bufferCapacity}, {@code batchSize} or {@code maxFileSize} is not positive, or {@code
+   *     maxHistory} is negative
+   */
+  public AccessLogWriter(
+      Path file,
+      int bufferCapacity,
+      int batchSize,
+      long maxFileSize,
+      int maxHistory,
+      AccessLogOverflowPolicy overflowPolicy)
+      throws IOException {
+    Assert.notNull(file, "Parameter 'file' can not be null.");
+    Assert.isTrue(bufferCapacity > 0, "Parameter 'bufferCapacity' must be positive.");
+    Assert.isTrue(batchSize > 0, "Parameter 'batchSize' must be positive.");
+    Assert.isTrue(maxFileSize > 0, "Parameter 'maxFileSize' must be positive.");
+    Assert.isTrue(maxHistory >= 0, "Parameter 'maxHistory' can not be negative.");
+    Assert.notNull(overflowPolicy, "Parameter 'overflowPolicy' can not be null.");
+
+    this.file = file.toAbsolutePath();
+    this.buffer = new AccessLogRingBuffer(bufferCapacity);
+    this.batchSize = batchSize;
+    this.maxFileSize = maxFileSize;
+    this.maxHistory = maxHistory;
+    this.overflowPolicy = overflowPolicy;
+    final Path directory = this.file.getParent();
+    if (directory != null) {
+      Files.createDirectories(directory);
+    }
+    this.channel = open();
+    this.fileSize = channel.size();
+    this.rollSize = maxFileSize;
+    this.writer = new Thread(this::writeLoop, "request-correlation-access-log");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  /**
+   * Records a completed request, or applies the overflow policy if the buffer is full.
+   *
+   * @param sessionId the correlation session id
+   * @param requestId the correlation request id
+   * @param method the HTTP method of the request
+   * @param uri the URI of the request
+   * @param status the status code of the response
+   * @param durationNanos how long the request took, in nanoseconds
+   * @param bytes the number of bytes written to the response body, or a negative number if unknown
+   * @return whether the request was recorded
+   */
+  public boolean log(
+      String sessionId,
+      String requestId,
+      String method,
+      String uri,
+      int status,
+      long durationNanos,
+      long bytes) {
+    final AccessLogRecord record =
+        new AccessLogRecord(
+            System.currentTimeMillis(),
+            sessionId,
+            requestId,
+            method,
+            uri,
+            status,
+            durationNanos,
+            bytes);
+    while (running) {
+      if (buffer.offer(record)) {
+        return true;
+      }
+      if (overflowPolicy != AccessLogOverflowPolicy.WAIT) {
+        break;
+      }
+      LockSupport.parkNanos(WAIT_NANOS);
+    }
+    dropped.increment();
+    return false;
+  }
+
+  /**
+   * @return the number of records that were dropped because the buffer was full.
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  /**
+   * @return the log file.
+   */
+  public Path getFile() {
+    return file;
+  }
+
+  /** Stops the writer once the records that are already buffered have been written. */
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(writer);
+    try {
+      writer.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** The body of the writer thread. */
+  private void writeLoop() {
+    try {
+      while (running || !buffer.isEmpty()) {
+        if (writeBatch() == 0) {
+          if (!running) {
+            // a record that was claimed but never published would hold us up forever
+            break;
+          }
+          LockSupport.parkNanos(this, IDLE_NANOS);
+        }
+      }
+    } finally {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        logger.warn("Unable to close access log {}", file, e);
+      }
+    }
+  }
+
+  /**
+   * Formats up to a batch of records, and writes them to the log file.
+   *
+   * @return the number of records taken off the buffer
+   */
+  private int writeBatch() {
+    int count = 0;
+    AccessLogRecord record;
+    while (count < batchSize && (record = buffer.poll()) != null) {
+      format(record);
+      count++;
+    }
+    if (count > 0) {
+      final byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+      lines.setLength(0);
+      try {
+        write(ByteBuffer.wrap(bytes));
+      } catch (IOException | RuntimeException e) {
+        logger.warn("Unable to write {} records to access log {}", count, file, e);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Appends the line of a record to the current batch.
+   *
+   * @param record the record
+   */
+  private void format(AccessLogRecord record) {
+    DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(record.timestampMillis), lines);
+    lines.append(" requestId=").append(record.requestId != null ? record.requestId : "-");
+    lines.append(" sessionId=").append(record.sessionId != null ? record.sessionId : "-");
+    lines.append(" method=").append(record.method);
+    lines.append(" uri=").append(record.uri);
+    lines.append(" status=").append(record.status);
+    final long micros = TimeUnit.NANOSECONDS.toMicros(record.durationNanos);
+    lines.append(" durationMs=").append(micros / 1000).append('.');
+    final long fraction = micros % 1000;
+    if (fraction < 100) {
+      lines.append(fraction < 10 ? "00" : "0");
+    }
+    lines.append(fraction);
+    lines.append(" bytes=");
+    if (record.bytes < 0) {
+      lines.append('-');
+    } else {
+      lines.append(record.bytes);
+    }
+    lines.append('\n');
+  }
+
+  /**
+   * Writes a batch to the log file, rolling the file first if it has grown too big.
+   *
+   * @param batch the formatted lines
+   * @throws IOException if the lines can't be written
+   */
+  private void write(ByteBuffer batch) throws IOException {
+    if (fileSize > 0 && fileSize + batch.remaining() > rollSize) {
+      roll();
+    }
+    while (batch.hasRemaining()) {
+      fileSize += channel.write(batch);
+    }
+  }
+
+  /**
+   * Rolls the log file, and opens a new one. If the files can't be moved, writing continues in the
+   * current file, and rolling is tried again once it has grown by another maximum size.
+   *
+   * @throws IOException if the log file can't be opened again
+   */
+  private void roll() throws IOException {
+    channel.close();
+    boolean rolled = false;
+    try {
+      if (maxHistory == 0) {
+        Files.delete(file);
+      } else {
+        Files.deleteIfExists(rolled(maxHistory));
+        for (int i = maxHistory - 1; i > 0; i--) {
+          final Path source = rolled(i);
+          if (Files.exists(source)) {
+            Files.move(source, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+          }
+        }
+        Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+      }
+      rolled = true;
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Unable to roll access log {}, writing on in the same file", file, e);
+    } finally {
+      channel = open();
+      fileSize = channel.size();
+      rollSize = rolled ? maxFileSize : fileSize + maxFileSize;
+    }
+  }
+
+  /**
+   * Opens the log file for appending, creating it if it doesn't exist.
+   *
+   * @return the channel
+   * @throws IOException if the file can't be opened
+   */
+  private FileChannel open() throws IOException {
+    return FileChannel.open(
+        file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+
+  /**
+   * @param index the number of the rolled file
+   * @return the path of a rolled file.
+   */
+  private Path rolled(int index) {
+    return file.resolveSibling(file.getFileName() + "." + index);
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.actuate;
+
+import com.tipsymcstagger.spring.request.correlation.filter.InFlightRequestRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.util.Assert;
+
+/**
+ * An actuator endpoint that lists the requests the correlation filter is processing, the oldest
+ * first, so that requests that are stuck can be found by their correlation ids.
+ *
+ * <p>Session ids are left out unless they are asked for. With the built-in id generators, the
+ * session id is usually the id of the live HTTP session, which would let anyone who can read the
+ * endpoint take over the sessions of the requests in flight.
+ *
+ * @author Steven C. Saliman
+ */
+@Endpoint(id = "inflightrequests")
+public class InFlightRequestsEndpoint {
+
+  /** The registry of requests in flight. */
+  private final InFlightRequestRegistry registry;
+
+  /** Whether the session ids of the requests are listed. */
+  private final boolean includeSessionId;
+
+  /**
+   * Creates new instance of {@link InFlightRequestsEndpoint} class that leaves out session ids.
+   *
+   * @param registry the registry of requests in flight
+   * @throws IllegalArgumentException if {@code registry} is {@code null}
+   */
+  public InFlightRequestsEndpoint(InFlightRequestRegistry registry) {
+    this(registry, false);
+  }
+
+  /**
+   * Creates new instance of {@link InFlightRequestsEndpoint} class.
+   *
+   * @param registry the registry of requests in flight
+   * @param includeSessionId whether the session ids of the requests are listed
+   * @throws IllegalArgumentException if {@code registry} is {@code null}
+   */
+  public InFlightRequestsEndpoint(InFlightRequestRegistry registry, boolean includeSessionId) {
+    Assert.notNull(registry, "Parameter 'registry' can not be null.");
+    this.registry = registry;
+    this.includeSessionId = includeSessionId;
+  }
+
+  /**
+   * Lists the requests in flight.
+   *
+   * @return the requests in flight, the oldest first
+   */
+  @ReadOperation
+  public InFlightRequestsDescriptor inFlightRequests() {
+    final List<InFlightRequestRegistry.Entry> entries = registry.getEntries();
+    final long nowNanos = System.nanoTime();
+    final Instant now = Instant.now();
+    final List<RequestDescriptor> requests = new ArrayList<>(entries.size());
+    for (InFlightRequestRegistry.Entry entry : entries) {
+      requests.add(new RequestDescriptor(entry, includeSessionId, nowNanos, now));
+    }
+    return new InFlightRequestsDescriptor(requests, registry.getCapacity(), registry.getDropped());
+  }
+
+  /** The requests in flight, and how many requests couldn't be recorded. */
+  public static final class InFlightRequestsDescriptor {
+
+    private final List<RequestDescriptor> requests;
+
+    private final int capacity;
+
+    private final long dropped;
+
+    private InFlightRequestsDescriptor(
+        List<RequestDescriptor> requests, int capacity, long dropped) {
+      this.requests = requests;
+      this.capacity = capacity;
+      this.dropped = dropped;
+    }
+
+    /**
+     * @return the requests in flight, the oldest first.
+     */
+    public List<RequestDescriptor> getRequests() {
+      return requests;
+    }
+
+    /**
+     * @return the maximum number of requests recorded at the same time.
+     */
+    public int getCapacity() {
+      return capacity;
+    }
+
+    /**
+     * @return the number of requests that couldn't be recorded since the application started.
+     */
+    public long getDropped() {
+      return dropped;
+    }
+  }
+
+  /** A request in flight. */
+  public static final class RequestDescriptor {
+
+    private final String requestId;
+
+    private final String sessionId;
+
+    private final String uri;
+
+    private final String thread;
+
+    private final Instant startTime;
+
+    private final long ageMillis;
+
+    private RequestDescriptor(
+        InFlightRequestRegistry.Entry entry, boolean includeSessionId, long nowNanos, Instant now) {
+      final long ageNanos = nowNanos - entry.getStartNanos();
+      this.requestId = entry.getRequestId();
+      this.sessionId = includeSessionId ? entry.getSessionId() : null;
+      this.uri = entry.getUri();
+      final Thread processingThread = entry.getThread();
+      this.thread = processingThread != null ? processingThread.getName() : null;
+      this.startTime = now.minusNanos(ageNanos);
+      this.ageMillis = TimeUnit.NANOSECONDS.toMillis(ageNanos);
+    }
+
+    /**
+     * @return the correlation request id, or {@code null} if it hasn't been generated yet.
+     */
+    public String getRequestId() {
+      return requestId;
+    }
+
+    /**
+     * @return the correlation session id, or {@code null} if it hasn't been generated yet or
+     *     session ids aren't listed.
+     */
+    public String getSessionId() {
+      return sessionId;
+    }
+
+    /**
+     * @return the URI of the request.
+     */
+    public String getUri() {
+      return uri;
+    }
+
+    /**
+     * @return the name of the thread processing the request, or {@code null} if the request
+     *     continues asynchronously.
+     */
+    public String getThread() {
+      return thread;
+    }
+
+    /**
+     * @return when the request started.
+     */
+    public Instant getStartTime() {
+      return startTime;
+    }
+
+    /**
+     * @return how long the request has been in flight, in milliseconds.
+     */
+    public long getAgeMillis() {
+      return ageMillis;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.actuate;
+
+import com.tipsymcstagger.spring.request.correlation.filter.InFlightRequestRegistry;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Adds the {@link InFlightRequestsEndpoint} if Spring Boot Actuator is detected in the classpath,
+ * and the registry of requests in flight is enabled in the properties. Like any other endpoint, it
+ * still has to be exposed with the {@code management.endpoints} properties.
+ *
+ * @author Steven C. Saliman
+ */
+@Configuration
+@ConditionalOnClass(Endpoint.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty("request.correlation.in-flight.enabled")
+public class InFlightRequestsEndpointConfiguration {
+
+  /**
+   * Create the {@link InFlightRequestsEndpoint} bean.
+   *
+   * @param registry the registry the correlation filter records requests in.
+   * @param properties the correlation properties.
+   * @return the endpoint.
+   */
+  @Bean
+  @ConditionalOnMissingBean(InFlightRequestsEndpoint.class)
+  public InFlightRequestsEndpoint inFlightRequestsEndpoint(
+      InFlightRequestRegistry registry, RequestCorrelationProperties properties) {
+    return new InFlightRequestsEndpoint(registry, properties.getInFlight().isIncludeSessionId());
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.api;
+
+/**
+ * Marks a {@link RequestCorrelationInterceptor} whose callbacks don't need to run on the request
+ * thread, such as interceptors that write audit or analytics records. When asynchronous interceptor
+ * dispatch is enabled, the callbacks of these interceptors are queued and called by a background
+ * thread, so the work they do doesn't add latency to the request.
+ *
+ * <p>Callbacks for one request are called in order, and {@code cleanUp} is only called if {@code
+ * afterCorrelationIdSet} was called for the same request. They usually run on a background thread,
+ * possibly after the request has completed. When the queue is full, the overflow policy either
+ * drops both callbacks of a request, or calls both on the threads that complete the request, as a
+ * synchronous interceptor would be called. Interceptors that set up thread-bound state, such as the
+ * logging MDC, must not implement this interface.
+ *
+ * @author Steven C. Saliman
+ */
+public interface AsyncRequestCorrelationInterceptor extends RequestCorrelationInterceptor {}
@@ -13,9 +13,16 @@
  */
 package com.tipsymcstagger.spring.request.correlation.api;
 
+import com.tipsymcstagger.spring.request.correlation.actuate.InFlightRequestsEndpointConfiguration;
+import com.tipsymcstagger.spring.request.correlation.concurrent.CorrelationTaskDecoratorConfiguration;
 import com.tipsymcstagger.spring.request.correlation.feign.FeignCorrelationConfiguration;
 import com.tipsymcstagger.spring.request.correlation.filter.RequestCorrelationConfiguration;
 import com.tipsymcstagger.spring.request.correlation.http.ClientHttpCorrelationConfiguration;
+import com.tipsymcstagger.spring.request.correlation.messaging.MessageCorrelationConfiguration;
+import com.tipsymcstagger.spring.request.correlation.metrics.CorrelationMetricsConfiguration;
+import com.tipsymcstagger.spring.request.correlation.reactive.ReactiveRequestCorrelationConfiguration;
+import com.tipsymcstagger.spring.request.correlation.support.AsyncInterceptorDispatcherConfiguration;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
 import com.tipsymcstagger.spring.request.correlation.webclient.WebClientCorrelationConfiguration;
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
@@ -23,6 +30,7 @@ import java.lang.annotation.Inherited;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Import;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -38,6 +46,9 @@ import org.springframework.web.reactive.function.client.WebClient;
  * <p>The header will be automatically propagated through any Spring configured {@link RestTemplate}
  * bean, {@link WebClient} (through a {@link WebClient.Builder} bean), or Feign client.
  *
+ * <p>Servlet applications get a servlet filter, and reactive applications get a WebFilter that
+ * keeps the ids in the Reactor Context.
+ *
  * @author Jakub Narloch
  * @author Steven C. Saliman
  * @see RequestCorrelation
@@ -48,10 +59,17 @@ import org.springframework.web.reactive.function.client.WebClient;
 @Inherited
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.TYPE)
+@EnableConfigurationProperties(RequestCorrelationProperties.class)
 @Import({
   RequestCorrelationConfiguration.class,
+  ReactiveRequestCorrelationConfiguration.class,
   ClientHttpCorrelationConfiguration.class,
   WebClientCorrelationConfiguration.class,
-  FeignCorrelationConfiguration.class
+  FeignCorrelationConfiguration.class,
+  CorrelationMetricsConfiguration.class,
+  AsyncInterceptorDispatcherConfiguration.class,
+  CorrelationTaskDecoratorConfiguration.class,
+  MessageCorrelationConfiguration.class,
+  InFlightRequestsEndpointConfiguration.class
 })
 public @interface EnableRequestCorrelation {}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.api;
+
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Request id generation abstraction for reactive web applications, allows users to implement
+ * different strategies for id generation. It is the WebFlux counterpart of the {@link
+ * CorrelationIdGenerator}.
+ *
+ * @author Steven C. Saliman
+ */
+public interface ReactiveCorrelationIdGenerator {
+
+  /**
+   * Generates a session id. Finding a session id may need to load the web session, so the id is
+   * returned asynchronously.
+   *
+   * @param exchange the current exchange
+   * @return a Mono with the generated session id
+   */
+  Mono<String> generateSessionId(ServerWebExchange exchange);
+
+  /**
+   * Generates a request id.
+   *
+   * @param exchange the current exchange
+   * @return the generated request id
+   */
+  String generateRequestId(ServerWebExchange exchange);
+}
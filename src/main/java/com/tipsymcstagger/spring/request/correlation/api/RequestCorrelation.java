@@ -33,4 +33,14 @@ public interface RequestCorrelation {
    * @return the correlation request id
    */
   String getRequestId();
+
+  /**
+   * Returns whether the request is sampled for expensive diagnostics. The decision is made once, by
+   * the first service that sees the request, and propagated with the ids.
+   *
+   * @return whether the request is sampled, {@code false} when sampling is disabled
+   */
+  default boolean isSampled() {
+    return false;
+  }
 }
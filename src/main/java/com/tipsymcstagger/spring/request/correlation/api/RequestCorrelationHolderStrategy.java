@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.api;
+
+import java.util.concurrent.Callable;
+
+/**
+ * A strategy for binding the {@link RequestCorrelation} of the current request to the code that
+ * handles it, so the correlation ids can be found without going through the request attributes.
+ *
+ * <p>The correlation filter binds the correlation once per request, and everything the request
+ * thread calls while the binding is in place sees it.
+ *
+ * @author Steven C. Saliman
+ */
+public interface RequestCorrelationHolderStrategy {
+
+  /**
+   * Retrieves the correlation bound to the current thread.
+   *
+   * @return the correlation, or {@code null} if none is bound
+   */
+  RequestCorrelation getCorrelation();
+
+  /**
+   * Calls a task with a correlation bound to the current thread. The binding ends when the task
+   * returns, and any binding that was in place before is restored.
+   *
+   * @param correlation the correlation to bind
+   * @param task the task to call
+   * @param <T> the result type of the task
+   * @return the result of the task
+   * @throws Exception if the task throws an exception
+   */
+  <T> T callWith(RequestCorrelation correlation, Callable<T> task) throws Exception;
+
+  /**
+   * Tells whether this strategy supports {@link #bind(RequestCorrelation)}.
+   *
+   * @return {@code true} if correlations can be bound until a binding is closed, {@code false} if
+   *     they can only be bound for the length of a call
+   */
+  default boolean supportsBinding() {
+    return false;
+  }
+
+  /**
+   * Binds a correlation to the current thread until the returned binding is closed. This is for
+   * callers that are told when work starts and ends instead of being handed the work, like channel
+   * interceptors. Bindings must be closed on the thread that made them, in reverse order. Callers
+   * should check {@link #supportsBinding()} first.
+   *
+   * @param correlation the correlation to bind
+   * @return the binding
+   * @throws UnsupportedOperationException if the strategy can only bind for the length of a call
+   */
+  default Binding bind(RequestCorrelation correlation) {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " can only bind a correlation for the length of a call.");
+  }
+
+  /** A correlation bound with {@link #bind(RequestCorrelation)}. */
+  interface Binding extends AutoCloseable {
+
+    /** Ends the binding, and restores any binding that was in place before. */
+    @Override
+    void close();
+  }
+}
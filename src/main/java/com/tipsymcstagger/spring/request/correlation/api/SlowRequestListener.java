@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.api;
+
+/**
+ * A listener that receives the stack samples the slow request detector takes of requests that run
+ * longer than the configured threshold, for example to publish them to a diagnostics service. The
+ * samples are also logged, whether there are listeners or not.
+ *
+ * <p>To use {@code SlowRequestListener}, applications simply need to declare a bean that implements
+ * this interface. Listeners are called on the detector's thread, one sample at a time.
+ *
+ * @author Steven C. Saliman
+ */
+public interface SlowRequestListener {
+
+  /**
+   * Callback method called whenever a stack sample of a slow request has been taken.
+   *
+   * @param sample the stack sample
+   */
+  void onSlowRequest(SlowRequestSample sample);
+}
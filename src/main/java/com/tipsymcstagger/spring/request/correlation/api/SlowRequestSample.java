@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.api;
+
+/**
+ * A stack sample of a request that has been running longer than the slow request threshold, tagged
+ * with the correlation ids of the request.
+ *
+ * @author Steven C. Saliman
+ */
+public final class SlowRequestSample {
+
+  /** The correlation session id, may be {@code null}. */
+  private final String sessionId;
+
+  /** The correlation request id, may be {@code null}. */
+  private final String requestId;
+
+  /** The URI of the request. */
+  private final String uri;
+
+  /** The name of the thread processing the request. */
+  private final String threadName;
+
+  /** How long the request had been running when the sample was taken, in milliseconds. */
+  private final long ageMillis;
+
+  /** The stack of the thread, the innermost frame first. */
+  private final StackTraceElement[] stackTrace;
+
+  /**
+   * Creates new instance of {@link SlowRequestSample} class.
+   *
+   * @param sessionId the correlation session id, or {@code null} if it hasn't been generated yet
+   * @param requestId the correlation request id, or {@code null} if it hasn't been generated yet
+   * @param uri the URI of the request
+   * @param threadName the name of the thread processing the request
+   * @param ageMillis how long the request had been running, in milliseconds
+   * @param stackTrace the stack of the thread, the innermost frame first
+   */
+  public SlowRequestSample(
+      String sessionId,
+      String requestId,
+      String uri,
+      String threadName,
+      long ageMillis,
+      StackTraceElement[] stackTrace) {
+    this.sessionId = sessionId;
+    this.requestId = requestId;
+    this.uri = uri;
+    this.threadName = threadName;
+    this.ageMillis = ageMillis;
+    this.stackTrace = stackTrace;
+  }
+
+  /**
+   * @return the correlation session id, or {@code null} if it hasn't been generated yet.
+   */
+  public String getSessionId() {
+    return sessionId;
+  }
+
+  /**
+   * @return the correlation request id, or {@code null} if it hasn't been generated yet.
+   */
+  public String getRequestId() {
+    return requestId;
+  }
+
+  /**
+   * @return the URI of the request.
+   */
+  public String getUri() {
+    return uri;
+  }
+
+  /**
+   * @return the name of the thread processing the request.
+   */
+  public String getThreadName() {
+    return threadName;
+  }
+
+  /**
+   * @return how long the request had been running when the sample was taken, in milliseconds.
+   */
+  public long getAgeMillis() {
+    return ageMillis;
+  }
+
+  /**
+   * @return the stack of the thread, the innermost frame first.
+   */
+  public StackTraceElement[] getStackTrace() {
+    return stackTrace.clone();
+  }
+}
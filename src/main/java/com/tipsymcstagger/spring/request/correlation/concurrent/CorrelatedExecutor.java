@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.concurrent;
+
+import java.util.concurrent.Executor;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link Executor} that runs tasks on another executor with the correlation of the thread that
+ * submitted them.
+ *
+ * @author Steven C. Saliman
+ */
+public class CorrelatedExecutor implements Executor {
+
+  /** The executor that runs the tasks. */
+  private final Executor delegate;
+
+  /**
+   * Creates new instance of {@link CorrelatedExecutor} class.
+   *
+   * @param delegate the executor that runs the tasks
+   * @throws IllegalArgumentException if {@code delegate} is {@code null}
+   */
+  public CorrelatedExecutor(Executor delegate) {
+    Assert.notNull(delegate, "Parameter 'delegate' can not be null.");
+
+    this.delegate = delegate;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void execute(Runnable command) {
+    delegate.execute(CorrelatedTasks.wrap(command));
+  }
+}
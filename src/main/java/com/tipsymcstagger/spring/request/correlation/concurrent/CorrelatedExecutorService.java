@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.concurrent;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link ExecutorService} that runs tasks on another executor service with the correlation of
+ * the thread that submitted them. Lifecycle methods are passed through to the wrapped service.
+ *
+ * @author Steven C. Saliman
+ */
+public class CorrelatedExecutorService implements ExecutorService {
+
+  /** The executor service that runs the tasks. */
+  private final ExecutorService delegate;
+
+  /**
+   * Creates new instance of {@link CorrelatedExecutorService} class.
+   *
+   * @param delegate the executor service that runs the tasks
+   * @throws IllegalArgumentException if {@code delegate} is {@code null}
+   */
+  public CorrelatedExecutorService(ExecutorService delegate) {
+    Assert.notNull(delegate, "Parameter 'delegate' can not be null.");
+
+    this.delegate = delegate;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void execute(Runnable command) {
+    delegate.execute(CorrelatedTasks.wrap(command));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public <T> Future<T> submit(Callable<T> task) {
+    return delegate.submit(CorrelatedTasks.wrap(task));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public <T> Future<T> submit(Runnable task, T result) {
+    return delegate.submit(CorrelatedTasks.wrap(task), result);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Future<?> submit(Runnable task) {
+    return delegate.submit(CorrelatedTasks.wrap(task));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
+      throws InterruptedException {
+    return delegate.invokeAll(CorrelatedTasks.wrapAll(tasks));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public <T> List<Future<T>> invokeAll(
+      Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+      throws InterruptedException {
+    return delegate.invokeAll(CorrelatedTasks.wrapAll(tasks), timeout, unit);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+      throws InterruptedException, ExecutionException {
+    return delegate.invokeAny(CorrelatedTasks.wrapAll(tasks));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    return delegate.invokeAny(CorrelatedTasks.wrapAll(tasks), timeout, unit);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<Runnable> shutdownNow() {
+    return delegate.shutdownNow();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+}
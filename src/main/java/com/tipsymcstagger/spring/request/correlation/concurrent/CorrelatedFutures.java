@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.concurrent;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import org.springframework.util.Assert;
+
+/**
+ * A utility class for starting {@link CompletableFuture}s and {@link ForkJoinTask}s that run with
+ * the correlation of the current thread.
+ *
+ * <p>Later stages of a future don't run with the correlation unless they are given it. Async stages
+ * can be given an executor from {@link #executor(Executor)}, which binds the correlation captured
+ * when it was created to every task, whichever thread completes the previous stage. Functions given
+ * to parallel streams can be wrapped with {@link CorrelatedTasks#function} and its siblings.
+ *
+ * @author Steven C. Saliman
+ */
+public final class CorrelatedFutures {
+
+  /** Prevents instantiation. */
+  private CorrelatedFutures() {}
+
+  /**
+   * Starts a future on the default async executor of {@link CompletableFuture}, with the
+   * correlation of the current thread.
+   *
+   * @param supplier the supplier of the result
+   * @param <T> the type of the result
+   * @return the future
+   */
+  public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+    return CompletableFuture.supplyAsync(CorrelatedTasks.supplier(supplier));
+  }
+
+  /**
+   * Starts a future on the given executor, with the correlation of the current thread.
+   *
+   * @param supplier the supplier of the result
+   * @param executor the executor to run the supplier on
+   * @param <T> the type of the result
+   * @return the future
+   */
+  public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+    return CompletableFuture.supplyAsync(CorrelatedTasks.supplier(supplier), executor);
+  }
+
+  /**
+   * Starts a future on the default async executor of {@link CompletableFuture}, with the
+   * correlation of the current thread.
+   *
+   * @param task the task
+   * @return the future
+   */
+  public static CompletableFuture<Void> runAsync(Runnable task) {
+    return CompletableFuture.runAsync(CorrelatedTasks.wrap(task));
+  }
+
+  /**
+   * Starts a future on the given executor, with the correlation of the current thread.
+   *
+   * @param task the task
+   * @param executor the executor to run the task on
+   * @return the future
+   */
+  public static CompletableFuture<Void> runAsync(Runnable task, Executor executor) {
+    return CompletableFuture.runAsync(CorrelatedTasks.wrap(task), executor);
+  }
+
+  /**
+   * Creates an executor that runs every task on the given executor with the correlation of the
+   * current thread, captured now. Pass it to the async stages of a future, for example {@code
+   * thenApplyAsync(fn, executor)}.
+   *
+   * @param delegate the executor that runs the tasks
+   * @return the executor, or {@code delegate} if there is no correlation
+   * @throws IllegalArgumentException if {@code delegate} is {@code null}
+   */
+  public static Executor executor(Executor delegate) {
+    Assert.notNull(delegate, "Parameter 'delegate' can not be null.");
+
+    final RequestCorrelation correlation = CorrelatedTasks.capture();
+    if (correlation == null) {
+      return delegate;
+    }
+    return task -> delegate.execute(CorrelatedTasks.wrap(correlation, task));
+  }
+
+  /**
+   * Creates a fork/join task that runs with the correlation of the current thread.
+   *
+   * @param task the task
+   * @param <T> the type of the result
+   * @return the fork/join task
+   */
+  public static <T> ForkJoinTask<T> forkJoinTask(Callable<T> task) {
+    return ForkJoinTask.adapt(CorrelatedTasks.wrap(task));
+  }
+
+  /**
+   * Runs a task in a fork/join pool with the correlation of the current thread, and waits for its
+   * result. Parallel streams started by the task run in the same pool, so this is the way to run a
+   * parallel stream in a custom pool.
+   *
+   * <p>Only the task itself is given the correlation. The subtasks of a parallel stream it starts
+   * are run by other workers of the pool, which don't see it. Functions given to the stream must be
+   * wrapped with {@link CorrelatedTasks#function}, {@link CorrelatedTasks#supplier} and their
+   * siblings, on the thread that has the correlation, to run with it on every worker.
+   *
+   * @param pool the pool
+   * @param task the task
+   * @param <T> the type of the result
+   * @return the result of the task
+   */
+  public static <T> T invoke(ForkJoinPool pool, Callable<T> task) {
+    return pool.invoke(forkJoinTask(task));
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ScheduledExecutorService} that runs tasks on another scheduled executor service with the
+ * correlation of the thread that scheduled them. Periodic tasks run with that correlation every
+ * time.
+ *
+ * @author Steven C. Saliman
+ */
+public class CorrelatedScheduledExecutorService extends CorrelatedExecutorService
+    implements ScheduledExecutorService {
+
+  /** The executor service that runs the tasks. */
+  private final ScheduledExecutorService delegate;
+
+  /**
+   * Creates new instance of {@link CorrelatedScheduledExecutorService} class.
+   *
+   * @param delegate the executor service that runs the tasks
+   * @throws IllegalArgumentException if {@code delegate} is {@code null}
+   */
+  public CorrelatedScheduledExecutorService(ScheduledExecutorService delegate) {
+    super(delegate);
+    this.delegate = delegate;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+    return delegate.schedule(CorrelatedTasks.wrap(command), delay, unit);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+    return delegate.schedule(CorrelatedTasks.wrap(callable), delay, unit);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public ScheduledFuture<?> scheduleAtFixedRate(
+      Runnable command, long initialDelay, long period, TimeUnit unit) {
+    return delegate.scheduleAtFixedRate(CorrelatedTasks.wrap(command), initialDelay, period, unit);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public ScheduledFuture<?> scheduleWithFixedDelay(
+      Runnable command, long initialDelay, long delay, TimeUnit unit) {
+    return delegate.scheduleWithFixedDelay(
+        CorrelatedTasks.wrap(command), initialDelay, delay, unit);
+  }
+}
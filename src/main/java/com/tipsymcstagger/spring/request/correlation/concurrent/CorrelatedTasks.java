@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.concurrent;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationHolder;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationUtils;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A utility class for running tasks on other threads with the correlation of the thread that
+ * created them. The correlation is captured when a task is wrapped, and bound through the {@link
+ * RequestCorrelationHolder} while the task runs, so {@link RequestCorrelationUtils} and the
+ * outbound client interceptors find it on the worker thread.
+ *
+ * <p>Only the two ids are captured, not the request attributes. When there is no correlation to
+ * capture, tasks are returned as they are.
+ *
+ * @author Steven C. Saliman
+ */
+public final class CorrelatedTasks {
+
+  /** Prevents instantiation. */
+  private CorrelatedTasks() {}
+
+  /**
+   * Captures the correlation of the current thread. Ids that haven't been generated yet are
+   * generated now, so the snapshot doesn't depend on the request after the request ends.
+   *
+   * @return an immutable copy of the current correlation, or {@code null} if there isn't one
+   */
+  public static RequestCorrelation capture() {
+    final RequestCorrelation correlation = RequestCorrelationUtils.getCurrentCorrelation();
+    if (correlation == null || correlation instanceof DefaultRequestCorrelation) {
+      return correlation;
+    }
+    return new DefaultRequestCorrelation(
+        correlation.getSessionId(), correlation.getRequestId(), correlation.isSampled());
+  }
+
+  /**
+   * Wraps a task so that it runs with the correlation of the current thread.
+   *
+   * @param task the task
+   * @return the wrapped task, or {@code task} if there is no correlation
+   */
+  public static Runnable wrap(Runnable task) {
+    return wrap(capture(), task);
+  }
+
+  /**
+   * Wraps a task so that it runs with the given correlation.
+   *
+   * @param correlation the correlation, or {@code null} to run the task without one
+   * @param task the task
+   * @return the wrapped task, or {@code task} if there is no correlation
+   */
+  public static Runnable wrap(RequestCorrelation correlation, Runnable task) {
+    if (correlation == null) {
+      return task;
+    }
+    return () -> run(correlation, task);
+  }
+
+  /**
+   * Wraps a task so that it runs with the correlation of the current thread.
+   *
+   * @param task the task
+   * @param <T> the result type of the task
+   * @return the wrapped task, or {@code task} if there is no correlation
+   */
+  public static <T> Callable<T> wrap(Callable<T> task) {
+    return wrap(capture(), task);
+  }
+
+  /**
+   * Wraps a task so that it runs with the given correlation.
+   *
+   * @param correlation the correlation, or {@code null} to run the task without one
+   * @param task the task
+   * @param <T> the result type of the task
+   * @return the wrapped task, or {@code task} if there is no correlation
+   */
+  public static <T> Callable<T> wrap(RequestCorrelation correlation, Callable<T> task) {
+    if (correlation == null) {
+      return task;
+    }
+    return () -> RequestCorrelationHolder.callWith(correlation, task);
+  }
+
+  /**
+   * Wraps a supplier so that it runs with the correlation of the current thread. This is meant for
+   * {@link java.util.concurrent.CompletableFuture} stages and parallel streams.
+   *
+   * @param supplier the supplier
+   * @param <T> the type of the supplied value
+   * @return the wrapped supplier, or {@code supplier} if there is no correlation
+   */
+  public static <T> Supplier<T> supplier(Supplier<T> supplier) {
+    final RequestCorrelation correlation = capture();
+    if (correlation == null) {
+      return supplier;
+    }
+    return () -> call(correlation, supplier::get);
+  }
+
+  /**
+   * Wraps a function so that it runs with the correlation of the current thread. This is meant for
+   * {@link java.util.concurrent.CompletableFuture} stages and parallel streams.
+   *
+   * @param function the function
+   * @param <T> the type of the input to the function
+   * @param <R> the type of the result of the function
+   * @return the wrapped function, or {@code function} if there is no correlation
+   */
+  public static <T, R> Function<T, R> function(Function<T, R> function) {
+    final RequestCorrelation correlation = capture();
+    if (correlation == null) {
+      return function;
+    }
+    return value -> call(correlation, () -> function.apply(value));
+  }
+
+  /**
+   * Wraps a consumer so that it runs with the correlation of the current thread. This is meant for
+   * {@link java.util.concurrent.CompletableFuture} stages and parallel streams.
+   *
+   * @param consumer the consumer
+   * @param <T> the type of the input to the consumer
+   * @return the wrapped consumer, or {@code consumer} if there is no correlation
+   */
+  public static <T> Consumer<T> consumer(Consumer<T> consumer) {
+    final RequestCorrelation correlation = capture();
+    if (correlation == null) {
+      return consumer;
+    }
+    return value -> run(correlation, () -> consumer.accept(value));
+  }
+
+  /**
+   * Wraps tasks so that they run with the correlation of the current thread, which is captured
+   * once for all of them.
+   *
+   * @param tasks the tasks
+   * @param <T> the result type of the tasks
+   * @return the wrapped tasks
+   */
+  public static <T> List<Callable<T>> wrapAll(Collection<? extends Callable<T>> tasks) {
+    final RequestCorrelation correlation = capture();
+    final List<Callable<T>> wrapped = new ArrayList<>(tasks.size());
+    for (Callable<T> task : tasks) {
+      wrapped.add(wrap(correlation, task));
+    }
+    return wrapped;
+  }
+
+  /**
+   * Runs a task with a correlation bound.
+   *
+   * @param correlation the correlation
+   * @param task the task
+   */
+  static void run(RequestCorrelation correlation, Runnable task) {
+    call(
+        correlation,
+        () -> {
+          task.run();
+          return null;
+        });
+  }
+
+  /**
+   * Gets a value with a correlation bound.
+   *
+   * @param correlation the correlation
+   * @param supplier the supplier of the value
+   * @param <T> the type of the value
+   * @return the value
+   */
+  static <T> T call(RequestCorrelation correlation, Supplier<T> supplier) {
+    try {
+      return RequestCorrelationHolder.callWith(correlation, supplier::get);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      // a Supplier can't throw checked exceptions, so this came from the holder strategy
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.concurrent;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * A {@link TaskDecorator} that runs tasks with the correlation of the thread that submitted them.
+ * Spring Boot applies it to the executor it auto-configures, which covers {@code @Async} methods.
+ * It can also be set on any {@code ThreadPoolTaskExecutor}.
+ *
+ * @author Steven C. Saliman
+ */
+public class CorrelationTaskDecorator implements TaskDecorator {
+
+  /**
+   * Wraps the task so that it runs with the correlation of the current thread.
+   *
+   * @param runnable the task
+   * @return the wrapped task
+   */
+  @Override
+  public Runnable decorate(Runnable runnable) {
+    return CorrelatedTasks.wrap(runnable);
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.concurrent;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Adds a {@link TaskDecorator} that propagates the correlation ids to the threads of the executor
+ * Spring Boot auto-configures, when it is enabled in the properties.
+ *
+ * <p>It is off by default. This configuration is imported by {@link
+ * com.tipsymcstagger.spring.request.correlation.api.EnableRequestCorrelation}, so it can be
+ * processed before the application's own configuration, and can't reliably tell whether the
+ * application has a task decorator. Spring Boot only applies a task decorator when there is exactly
+ * one, so an application with its own decorator should leave this off and call a {@link
+ * CorrelationTaskDecorator} from it instead.
+ *
+ * @author Steven C. Saliman
+ */
+@Configuration
+@ConditionalOnProperty(value = "request.correlation.task-decorator.enabled")
+public class CorrelationTaskDecoratorConfiguration {
+
+  /**
+   * Create a {@link TaskDecorator} bean that runs tasks with the correlation of the thread that
+   * submitted them.
+   *
+   * @return the task decorator.
+   */
+  @Bean
+  @ConditionalOnMissingBean(TaskDecorator.class)
+  public TaskDecorator correlationTaskDecorator() {
+    return new CorrelationTaskDecorator();
+  }
+}
@@ -13,8 +13,11 @@
  */
 package com.tipsymcstagger.spring.request.correlation.feign;
 
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.CorrelationSampler;
 import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
 import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationUtils;
+import com.tipsymcstagger.spring.request.correlation.support.TraceParent;
 import feign.RequestInterceptor;
 import feign.RequestTemplate;
 import org.springframework.util.Assert;
@@ -45,14 +48,46 @@ public class FeignCorrelationInterceptor implements RequestInterceptor {
   @Override
   public void apply(RequestTemplate template) {
 
-    final String sessionId = RequestCorrelationUtils.getCurrentSessionId();
+    final RequestCorrelation correlation = RequestCorrelationUtils.getCurrentCorrelation();
+    if (correlation == null) {
+      return;
+    }
+
+    final String sessionId = correlation.getSessionId();
     if (sessionId != null) {
-      template.header(properties.getSessionHeaderName(), sessionId);
+      setHeader(template, properties.getSessionHeaderName(), sessionId);
     }
 
-    final String requestId = RequestCorrelationUtils.getCurrentRequestId();
+    final String requestId = correlation.getRequestId();
     if (requestId != null) {
-      template.header(properties.getRequestHeaderName(), requestId);
+      setHeader(template, properties.getRequestHeaderName(), requestId);
+    }
+
+    if (properties.getSampling().isEnabled()) {
+      setHeader(
+          template,
+          properties.getSampling().getHeaderName(),
+          CorrelationSampler.format(correlation.isSampled()));
+    }
+
+    if (requestId != null && properties.getTraceContext().isEnabled()) {
+      setHeader(
+          template,
+          TraceParent.HEADER_NAME,
+          TraceParent.format(requestId, correlation.isSampled()));
     }
   }
+
+  /**
+   * Replaces the values of a header. {@link RequestTemplate#header(String, String...)} appends, so
+   * a retried request would otherwise send the header twice.
+   *
+   * @param template the request template
+   * @param name the header name
+   * @param value the header value
+   */
+  private static void setHeader(RequestTemplate template, String name, String value) {
+    template.removeHeader(name);
+    template.header(name, value);
+  }
 }
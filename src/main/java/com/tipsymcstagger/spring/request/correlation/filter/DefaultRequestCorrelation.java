@@ -29,15 +29,31 @@ public final class DefaultRequestCorrelation implements RequestCorrelation {
   /** The actual correlation request id. */
   private final String requestId;
 
+  /** Whether the request is sampled. */
+  private final boolean sampled;
+
   /**
-   * Creates new instance of {@link DefaultRequestCorrelation} class.
+   * Creates new instance of {@link DefaultRequestCorrelation} class for a request that isn't
+   * sampled.
    *
    * @param sessionId the session id
    * @param requestId the request id
    */
   public DefaultRequestCorrelation(String sessionId, String requestId) {
+    this(sessionId, requestId, false);
+  }
+
+  /**
+   * Creates new instance of {@link DefaultRequestCorrelation} class.
+   *
+   * @param sessionId the session id
+   * @param requestId the request id
+   * @param sampled whether the request is sampled
+   */
+  public DefaultRequestCorrelation(String sessionId, String requestId, boolean sampled) {
     this.sessionId = sessionId;
     this.requestId = requestId;
+    this.sampled = sampled;
   }
 
   /**
@@ -59,4 +75,14 @@ public final class DefaultRequestCorrelation implements RequestCorrelation {
   public String getRequestId() {
     return requestId;
   }
+
+  /**
+   * Retrieves whether the request is sampled.
+   *
+   * @return whether the request is sampled
+   */
+  @Override
+  public boolean isSampled() {
+    return sampled;
+  }
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.filter;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.util.Assert;
+
+/**
+ * A bounded registry of the requests the {@link RequestCorrelationFilter} is processing, so that
+ * requests that are stuck can be found by their correlation ids while the application runs.
+ *
+ * <p>Requests are kept in a fixed array of slots. A request claims a slot with a single
+ * compare-and-set, starting at a slot picked from the id of the current thread, so request threads
+ * rarely compete for the same slot. The slot is released with a plain ordered write when the
+ * request completes. When all the slots are taken, the request is processed as usual but isn't
+ * recorded, and it is counted as dropped.
+ *
+ * <p>When an asynchronous request leaves the thread that started it, the thread is detached from
+ * its entry, and the entry stays until the request completes.
+ *
+ * <p>Ids that are generated lazily are not generated by reading the registry. Until something on
+ * the request thread asks for them, they are reported as {@code null}.
+ *
+ * @author Steven C. Saliman
+ */
+public class InFlightRequestRegistry {
+
+  /** The value returned by {@link #register} when the request couldn't be recorded. */
+  public static final int NOT_REGISTERED = -1;
+
+  /** The slots, {@code null} when they are free. */
+  private final AtomicReferenceArray<Entry> slots;
+
+  /** The number of requests that couldn't be recorded because all the slots were taken. */
+  private final LongAdder dropped = new LongAdder();
+
+  /**
+   * Creates new instance of {@link InFlightRequestRegistry} class.
+   *
+   * @param capacity the maximum number of requests recorded at the same time
+   * @throws IllegalArgumentException if {@code capacity} is not positive
+   */
+  public InFlightRequestRegistry(int capacity) {
+    Assert.isTrue(capacity > 0, "Parameter 'capacity' must be positive.");
+    this.slots = new AtomicReferenceArray<>(capacity);
+  }
+
+  /**
+   * Records a request that has started on the current thread.
+   *
+   * @param correlation the correlation of the request
+   * @param uri the URI of the request
+   * @return the slot of the request, to pass to {@link #unregister}, or {@link #NOT_REGISTERED} if
+   *     all the slots were taken
+   */
+  public int register(RequestCorrelation correlation, String uri) {
+    final Thread thread = Thread.currentThread();
+    final Entry entry = new Entry(correlation, uri, thread, System.nanoTime());
+    final int capacity = slots.length();
+    int slot = (int) Long.remainderUnsigned(thread.getId(), capacity);
+    for (int i = 0; i < capacity; i++) {
+      // written before the entry is published by the compare-and-set
+      entry.slot = slot;
+      if (slots.get(slot) == null && slots.compareAndSet(slot, null, entry)) {
+        return slot;
+      }
+      if (++slot == capacity) {
+        slot = 0;
+      }
+    }
+    dropped.increment();
+    return NOT_REGISTERED;
+  }
+
+  /**
+   * Removes a request that has completed.
+   *
+   * @param slot the slot returned by {@link #register}
+   */
+  public void unregister(int slot) {
+    if (slot != NOT_REGISTERED) {
+      slots.setRelease(slot, null);
+    }
+  }
+
+  /**
+   * Detaches the thread from a request that continues asynchronously on other threads.
+   *
+   * @param slot the slot returned by {@link #register}
+   */
+  public void detach(int slot) {
+    if (slot != NOT_REGISTERED) {
+      final Entry entry = slots.get(slot);
+      if (entry != null) {
+        entry.thread = null;
+      }
+    }
+  }
+
+  /**
+   * Checks whether a request is still recorded, which it isn't once it has completed.
+   *
+   * @param entry the entry of the request
+   * @return whether the request is still recorded
+   */
+  public boolean contains(Entry entry) {
+    return slots.get(entry.slot) == entry;
+  }
+
+  /**
+   * Retrieves the requests that are currently recorded, the oldest first.
+   *
+   * @return the recorded requests
+   */
+  public List<Entry> getEntries() {
+    final List<Entry> entries = new ArrayList<>();
+    for (int i = 0; i < slots.length(); i++) {
+      final Entry entry = slots.get(i);
+      if (entry != null) {
+        entries.add(entry);
+      }
+    }
+    // nanoTime values may only be compared by their difference
+    entries.sort((a, b) -> Long.signum(a.startNanos - b.startNanos));
+    return entries;
+  }
+
+  /**
+   * @return the maximum number of requests recorded at the same time.
+   */
+  public int getCapacity() {
+    return slots.length();
+  }
+
+  /**
+   * @return the number of requests that couldn't be recorded because all the slots were taken.
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  /** A request that is being processed. */
+  public static final class Entry {
+
+    /** The correlation of the request. */
+    private final RequestCorrelation correlation;
+
+    /** The URI of the request. */
+    private final String uri;
+
+    /** The {@link System#nanoTime()} when the request started. */
+    private final long startNanos;
+
+    /** The thread processing the request, or {@code null} once it has been detached. */
+    private volatile Thread thread;
+
+    /** The slot of the entry. */
+    private int slot;
+
+    /** The number of stack samples taken of the request, only used by the watchdog thread. */
+    int samples;
+
+    private Entry(RequestCorrelation correlation, String uri, Thread thread, long startNanos) {
+      this.correlation = correlation;
+      this.uri = uri;
+      this.thread = thread;
+      this.startNanos = startNanos;
+    }
+
+    /**
+     * @return the correlation session id, or {@code null} if it hasn't been generated yet.
+     */
+    public String getSessionId() {
+      return correlation instanceof LazyRequestCorrelation lazy
+          ? lazy.peekSessionId()
+          : correlation.getSessionId();
+    }
+
+    /**
+     * @return the correlation request id, or {@code null} if it hasn't been generated yet.
+     */
+    public String getRequestId() {
+      return correlation instanceof LazyRequestCorrelation lazy
+          ? lazy.peekRequestId()
+          : correlation.getRequestId();
+    }
+
+    /**
+     * @return the URI of the request.
+     */
+    public String getUri() {
+      return uri;
+    }
+
+    /**
+     * @return the thread processing the request, or {@code null} if the request continues
+     *     asynchronously.
+     */
+    public Thread getThread() {
+      return thread;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} when the request started.
+     */
+    public long getStartNanos() {
+      return startNanos;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.filter;
+
+import com.tipsymcstagger.spring.request.correlation.api.CorrelationIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.CorrelationSampler;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link RequestCorrelation} that doesn't generate missing ids until something asks for them. Ids
+ * that came in with the request are returned as they are. A missing id is generated once, the first
+ * time it is read, and every later read returns the same id, no matter which thread reads it.
+ *
+ * <p>Instances keep a reference to the request so that the generator can use it, which means they
+ * should not outlive the request.
+ *
+ * @author Steven C. Saliman
+ */
+final class LazyRequestCorrelation implements RequestCorrelation {
+
+  /** Logger instance used by this class. */
+  private static final Logger logger = LoggerFactory.getLogger(LazyRequestCorrelation.class);
+
+  /** The request the ids belong to. */
+  private final HttpServletRequest request;
+
+  /** The generator used for missing ids. */
+  private final CorrelationIdGenerator generator;
+
+  /** The correlation session id, {@code null} until it is known. */
+  private volatile String sessionId;
+
+  /** The correlation request id, {@code null} until it is known. */
+  private volatile String requestId;
+
+  /** The sampler, or {@code null} if sampling is disabled. */
+  private final CorrelationSampler sampler;
+
+  /** The sampling decision, {@code null} until it is known. */
+  private volatile Boolean sampled;
+
+  /**
+   * Creates new instance of {@link LazyRequestCorrelation} class.
+   *
+   * @param request the request the ids belong to
+   * @param generator the generator to use for missing ids
+   * @param sessionId the session id from the request, or {@code null} to generate one when needed
+   * @param requestId the request id from the request, or {@code null} to generate one when needed
+   * @param sampler the sampler, or {@code null} if sampling is disabled
+   * @param sampled the sampling decision from the request, or {@code null} to decide when needed
+   */
+  LazyRequestCorrelation(
+      HttpServletRequest request,
+      CorrelationIdGenerator generator,
+      String sessionId,
+      String requestId,
+      CorrelationSampler sampler,
+      Boolean sampled) {
+    this.request = request;
+    this.generator = generator;
+    this.sessionId = sessionId;
+    this.requestId = requestId;
+    this.sampler = sampler;
+    this.sampled = sampler != null ? sampled : Boolean.FALSE;
+  }
+
+  /**
+   * Retrieves the session identifier, generating it if this is the first time it was needed.
+   *
+   * @return the session identifier
+   */
+  @Override
+  public String getSessionId() {
+    String id = sessionId;
+    if (id == null) {
+      synchronized (this) {
+        id = sessionId;
+        if (id == null) {
+          id = generator.generateSessionId(request);
+          logger.debug("Session correlation id was not present, generated new one: {}", id);
+          sessionId = id;
+        }
+      }
+    }
+    return id;
+  }
+
+  /**
+   * Retrieves the request identifier, generating it if this is the first time it was needed.
+   *
+   * @return the request identifier
+   */
+  @Override
+  public String getRequestId() {
+    String id = requestId;
+    if (id == null) {
+      synchronized (this) {
+        id = requestId;
+        if (id == null) {
+          id = generator.generateRequestId(request);
+          logger.debug("Request correlation id was not present, generated new one: {}", id);
+          requestId = id;
+        }
+      }
+    }
+    return id;
+  }
+
+  /**
+   * Retrieves the session identifier without generating it.
+   *
+   * @return the session identifier, or {@code null} if it hasn't been generated yet
+   */
+  String peekSessionId() {
+    return sessionId;
+  }
+
+  /**
+   * Retrieves the request identifier without generating it.
+   *
+   * @return the request identifier, or {@code null} if it hasn't been generated yet
+   */
+  String peekRequestId() {
+    return requestId;
+  }
+
+  /**
+   * Retrieves whether the request is sampled, deciding it from the request id if this is the first
+   * time it was needed. The decision is the same every time, so it doesn't need a lock.
+   *
+   * @return whether the request is sampled
+   */
+  @Override
+  public boolean isSampled() {
+    Boolean decision = sampled;
+    if (decision == null) {
+      decision = sampler.isSampled(getRequestId());
+      sampled = decision;
+    }
+    return decision;
+  }
+}
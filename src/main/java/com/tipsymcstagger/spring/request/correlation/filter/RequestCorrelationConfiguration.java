@@ -13,17 +13,35 @@
  */
 package com.tipsymcstagger.spring.request.correlation.filter;
 
+import com.tipsymcstagger.spring.request.correlation.accesslog.AccessLogWriter;
 import com.tipsymcstagger.spring.request.correlation.api.CorrelationIdGenerator;
 import com.tipsymcstagger.spring.request.correlation.api.EnableRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationHolderStrategy;
 import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationInterceptor;
+import com.tipsymcstagger.spring.request.correlation.api.SlowRequestListener;
 import com.tipsymcstagger.spring.request.correlation.generator.DefaultIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.generator.PooledIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.generator.TimeOrderedIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.metrics.CorrelationMetrics;
+import com.tipsymcstagger.spring.request.correlation.support.AsyncInterceptorDispatcher;
+import com.tipsymcstagger.spring.request.correlation.support.CorrelationHolderStrategyInstaller;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationHolder;
 import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import com.tipsymcstagger.spring.request.correlation.support.RequestIdStrategy;
 import jakarta.servlet.DispatcherType;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
@@ -31,14 +49,20 @@ import org.springframework.context.annotation.Configuration;
 
 /**
  * Configures the {@link RequestCorrelationFilter} to assign correlating ids to all incoming
- * requests.
+ * requests of a servlet web application.
  *
  * @author Jakub Narloch
  * @see EnableRequestCorrelation
  */
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @EnableConfigurationProperties(RequestCorrelationProperties.class)
 public class RequestCorrelationConfiguration {
+
+  /** Logger instance used by this class. */
+  private static final Logger logger =
+      LoggerFactory.getLogger(RequestCorrelationConfiguration.class);
+
   /** The properties to use when configuring the filter. */
   @Autowired private RequestCorrelationProperties properties;
 
@@ -48,14 +72,40 @@ public class RequestCorrelationConfiguration {
 
   /**
    * Define a default {@link CorrelationIdGenerator} if the application hasn't defined one of its
-   * own.
+   * own. The request-id-strategy property decides which of the built-in generators we use, the
+   * request-id-encoding property decides how it writes ids, and the session-id-strategy property
+   * decides whether it may create HTTP sessions. If the pool is enabled, the generator is wrapped
+   * in a {@link PooledIdGenerator}, which Spring closes when the context shuts down. Time ordered
+   * ids are never pooled, since a pooled id would carry the time it was generated instead of the
+   * time of its request.
    *
    * @return an instance of the {@link DefaultIdGenerator} to use for id generation.
    */
   @Bean
   @ConditionalOnMissingBean(CorrelationIdGenerator.class)
   public CorrelationIdGenerator requestIdGenerator() {
-    return new DefaultIdGenerator();
+    final CorrelationIdGenerator generator;
+    if (properties.getRequestIdStrategy() == RequestIdStrategy.TIME_ORDERED) {
+      generator =
+          new TimeOrderedIdGenerator(
+              properties.getSessionIdStrategy(), properties.getRequestIdEncoding());
+    } else {
+      generator =
+          new DefaultIdGenerator(
+              properties.getSessionIdStrategy(), properties.getRequestIdEncoding());
+    }
+    final RequestCorrelationProperties.Pool pool = properties.getPool();
+    if (!pool.isEnabled()) {
+      return generator;
+    }
+    if (properties.getRequestIdStrategy() == RequestIdStrategy.TIME_ORDERED) {
+      logger.warn(
+          "The request id pool is ignored with the time_ordered request id strategy, because"
+              + " pooled ids would carry the time they were generated instead of the time of"
+              + " their request.");
+      return generator;
+    }
+    return new PooledIdGenerator(generator, pool.getCapacity(), pool.getBatchSize());
   }
 
   /**
@@ -63,13 +113,109 @@ public class RequestCorrelationConfiguration {
    * chain.
    *
    * @param generator the generator to use for creating correlating ids.
+   * @param metrics the metrics the filter reports to, if metrics are enabled.
+   * @param dispatcher the dispatcher for asynchronous interceptors, if it is enabled.
+   * @param registry the registry of requests in flight, if it is enabled.
+   * @param accessLog the access log writer, if it is enabled.
    * @param properties the properties to use when configuring the filter.
    * @return a {@link RequestCorrelationFilter} bean.
    */
   @Bean
   public RequestCorrelationFilter requestCorrelationFilter(
-      CorrelationIdGenerator generator, RequestCorrelationProperties properties) {
-    return new RequestCorrelationFilter(generator, interceptors, properties);
+      CorrelationIdGenerator generator,
+      ObjectProvider<CorrelationMetrics> metrics,
+      ObjectProvider<AsyncInterceptorDispatcher> dispatcher,
+      ObjectProvider<InFlightRequestRegistry> registry,
+      ObjectProvider<AccessLogWriter> accessLog,
+      RequestCorrelationProperties properties) {
+    return RequestCorrelationFilter.builder(generator, interceptors, properties)
+        .metrics(metrics.getIfAvailable(() -> CorrelationMetrics.NOOP))
+        .dispatcher(dispatcher.getIfAvailable())
+        .registry(registry.getIfAvailable())
+        .accessLog(accessLog.getIfAvailable())
+        .build();
+  }
+
+  /**
+   * Define the {@link AccessLogWriter} that writes an access log line for every request from a
+   * background thread, if it is enabled. Spring closes it when the context shuts down.
+   *
+   * @return the access log writer.
+   * @throws IOException if the access log file can't be opened.
+   */
+  @Bean
+  @ConditionalOnProperty("request.correlation.access-log.enabled")
+  public AccessLogWriter accessLogWriter() throws IOException {
+    final RequestCorrelationProperties.AccessLog accessLog = properties.getAccessLog();
+    return new AccessLogWriter(
+        Path.of(accessLog.getFile()),
+        accessLog.getBufferCapacity(),
+        accessLog.getBatchSize(),
+        accessLog.getMaxFileSize(),
+        accessLog.getMaxHistory(),
+        accessLog.getOverflowPolicy());
+  }
+
+  /**
+   * Define the {@link InFlightRequestRegistry} that records the requests the filter is processing,
+   * if it is enabled, or the detection of slow requests needs it.
+   *
+   * @return the registry.
+   */
+  @Bean
+  @ConditionalOnExpression(
+      "${request.correlation.in-flight.enabled:false}"
+          + " or ${request.correlation.slow-requests.enabled:false}")
+  public InFlightRequestRegistry inFlightRequestRegistry() {
+    return new InFlightRequestRegistry(properties.getInFlight().getCapacity());
+  }
+
+  /**
+   * Define the {@link SlowRequestDetector} that samples the stacks of slow requests, if it is
+   * enabled. Spring closes it when the context shuts down.
+   *
+   * @param registry the registry the filter records requests in.
+   * @param listeners the listeners to hand the samples to.
+   * @return the detector.
+   */
+  @Bean
+  @ConditionalOnProperty("request.correlation.slow-requests.enabled")
+  public SlowRequestDetector slowRequestDetector(
+      InFlightRequestRegistry registry, ObjectProvider<SlowRequestListener> listeners) {
+    final RequestCorrelationProperties.SlowRequests slow = properties.getSlowRequests();
+    return new SlowRequestDetector(
+        registry,
+        slow.getThresholdMillis(),
+        slow.getIntervalMillis(),
+        slow.getMaxSamplesPerRequest(),
+        slow.getMaxSamplesPerInterval(),
+        slow.getMaxStackDepth(),
+        listeners.orderedStream().toList());
+  }
+
+  /**
+   * Define a default {@link RequestCorrelationHolderStrategy} if the application hasn't defined one
+   * of its own. The holder-mode property decides which of the built-in strategies we use.
+   *
+   * @return the strategy the filter uses to bind the correlation of each request.
+   */
+  @Bean
+  @ConditionalOnMissingBean(RequestCorrelationHolderStrategy.class)
+  public RequestCorrelationHolderStrategy requestCorrelationHolderStrategy() {
+    return RequestCorrelationHolder.createStrategy(properties.getHolderMode());
+  }
+
+  /**
+   * Define the {@link CorrelationHolderStrategyInstaller} that puts the holder strategy in place
+   * when the context starts, and puts the previous one back when it is closed.
+   *
+   * @param holderStrategy the strategy to bind the correlation of each request with.
+   * @return the installer.
+   */
+  @Bean
+  public CorrelationHolderStrategyInstaller correlationHolderStrategyInstaller(
+      RequestCorrelationHolderStrategy holderStrategy) {
+    return new CorrelationHolderStrategyInstaller(holderStrategy);
   }
 
   /**
@@ -13,29 +13,48 @@
  */
 package com.tipsymcstagger.spring.request.correlation.filter;
 
+import com.tipsymcstagger.spring.request.correlation.accesslog.AccessLogWriter;
 import com.tipsymcstagger.spring.request.correlation.api.CorrelationIdGenerator;
 import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
 import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationInterceptor;
+import com.tipsymcstagger.spring.request.correlation.metrics.CorrelationMetrics;
+import com.tipsymcstagger.spring.request.correlation.support.AsyncInterceptorDispatcher;
+import com.tipsymcstagger.spring.request.correlation.support.CorrelationIdValidator;
+import com.tipsymcstagger.spring.request.correlation.support.CorrelationSampler;
 import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationConsts;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationHolder;
 import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import com.tipsymcstagger.spring.request.correlation.support.SessionIdStrategy;
+import com.tipsymcstagger.spring.request.correlation.support.TraceParent;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.FilterConfig;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
+import jakarta.servlet.ServletResponseWrapper;
+import jakarta.servlet.WriteListener;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletRequestWrapper;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,6 +75,10 @@ public class RequestCorrelationFilter implements Filter {
   /** Logger instance used by this class. */
   private static final Logger logger = LoggerFactory.getLogger(RequestCorrelationFilter.class);
 
+  /** The request attribute that keeps the byte count of the response across dispatches. */
+  private static final String BYTE_COUNT_ATTRIBUTE =
+      RequestCorrelationFilter.class.getName() + ".BYTE_COUNT";
+
   /** The request generator used for generating new identifiers. */
   private final CorrelationIdGenerator correlationIdGenerator;
 
@@ -65,8 +88,24 @@ public class RequestCorrelationFilter implements Filter {
   /** The request correlation properties. */
   private final RequestCorrelationProperties properties;
 
+  /** The metrics the filter reports to. */
+  private final CorrelationMetrics metrics;
+
+  /** The validator for ids that come in with a request. */
+  private final CorrelationIdValidator validator;
+
+  /** The sampler for requests that arrive without a sampling decision, or {@code null}. */
+  private final CorrelationSampler sampler;
+
+  /** The registry of requests that are being processed, or {@code null}. */
+  private final InFlightRequestRegistry registry;
+
+  /** The access log writer, or {@code null}. */
+  private final AccessLogWriter accessLog;
+
   /**
-   * Creates new instance of {@link RequestCorrelationFilter} class.
+   * Creates new instance of {@link RequestCorrelationFilter} class that doesn't record metrics. Use
+   * {@link #builder} to give the filter its optional collaborators.
    *
    * @param correlationIdGenerator the request id generator
    * @param interceptors the correlation interceptors
@@ -78,13 +117,58 @@ public class RequestCorrelationFilter implements Filter {
       CorrelationIdGenerator correlationIdGenerator,
       List<RequestCorrelationInterceptor> interceptors,
       RequestCorrelationProperties properties) {
-    Assert.notNull(correlationIdGenerator, "Parameter 'correlationIdGenerator' can not be null.");
-    Assert.notNull(interceptors, "Parameter 'interceptors' can not be null.");
-    Assert.notNull(properties, "Parameter 'properties' can not be null.");
+    this(builder(correlationIdGenerator, interceptors, properties));
+  }
 
-    this.correlationIdGenerator = correlationIdGenerator;
-    this.interceptors = interceptors;
-    this.properties = properties;
+  /**
+   * Creates new instance of {@link RequestCorrelationFilter} class from a builder. The generator
+   * and the interceptors are instrumented by the metrics, the callbacks of asynchronous
+   * interceptors are handed to the dispatcher, if there is one, the requests being processed are
+   * recorded in the registry, if there is one, and every completed request is written to the
+   * access log, if there is one.
+   *
+   * @param builder the builder
+   * @throws IllegalArgumentException if the generator, the interceptors or the properties of the
+   *     builder are {@code null}
+   */
+  private RequestCorrelationFilter(Builder builder) {
+    Assert.notNull(
+        builder.correlationIdGenerator, "Parameter 'correlationIdGenerator' can not be null.");
+    Assert.notNull(builder.interceptors, "Parameter 'interceptors' can not be null.");
+    Assert.notNull(builder.properties, "Parameter 'properties' can not be null.");
+
+    final CorrelationMetrics metrics = builder.metrics;
+    final List<RequestCorrelationInterceptor> instrumented =
+        metrics.instrument(builder.interceptors);
+    this.correlationIdGenerator = metrics.instrument(builder.correlationIdGenerator);
+    this.interceptors =
+        builder.dispatcher != null ? builder.dispatcher.wrap(instrumented) : instrumented;
+    this.properties = builder.properties;
+    this.metrics = metrics;
+    this.validator = CorrelationIdValidator.from(properties.getValidation());
+    this.sampler =
+        properties.getSampling().isEnabled()
+            ? new CorrelationSampler(properties.getSampling().getRate())
+            : null;
+    this.registry = builder.registry;
+    this.accessLog = builder.accessLog;
+  }
+
+  /**
+   * Starts building a {@link RequestCorrelationFilter}. Without any of the optional collaborators,
+   * the filter doesn't record metrics, calls all interceptors on the request thread, and doesn't
+   * record requests in flight or write an access log.
+   *
+   * @param correlationIdGenerator the request id generator
+   * @param interceptors the correlation interceptors
+   * @param properties the request properties
+   * @return the builder
+   */
+  public static Builder builder(
+      CorrelationIdGenerator correlationIdGenerator,
+      List<RequestCorrelationInterceptor> interceptors,
+      RequestCorrelationProperties properties) {
+    return new Builder(correlationIdGenerator, interceptors, properties);
   }
 
   /** {@inheritDoc} */
@@ -115,6 +199,14 @@ public class RequestCorrelationFilter implements Filter {
   /**
    * Performs 'enrichment' of incoming HTTP request.
    *
+   * <p>Asynchronous requests are correlated once. When the request is dispatched again to finish
+   * its asynchronous processing, the correlation already attached to the request is reused, and the
+   * interceptors are not called again. Their cleanup runs from an {@link AsyncListener} when the
+   * request completes, instead of when the first dispatch returns. The same goes for the entry in
+   * the registry of requests in flight, and the access log line. Forwards don't write an access log
+   * line of their own, and the bytes of the response are counted once however many dispatches
+   * write them.
+   *
    * @param request the http servlet request
    * @param response the http servlet response
    * @param chain the filter processing chain
@@ -125,40 +217,180 @@ public class RequestCorrelationFilter implements Filter {
       HttpServletRequest request, HttpServletResponse response, FilterChain chain)
       throws IOException, ServletException {
 
+    // only the first dispatch of a request writes its access log line
+    final boolean initial = request.getDispatcherType() == DispatcherType.REQUEST;
+    final long startNanos = accessLog != null && initial ? System.nanoTime() : 0L;
+    final RequestCorrelation attached = getAsyncDispatchCorrelation(request);
+    final RequestCorrelation requestCorrelation =
+        attached != null ? attached : resolveCorrelation(request);
+
+    // populate the request attribute
+    final ServletRequest req = enrichRequest(request, requestCorrelation);
+
+    // record the request once, on its first dispatch, not again when it is forwarded or dispatched
+    // again to finish its asynchronous processing
+    final int slot =
+        registry != null && request.getDispatcherType() == DispatcherType.REQUEST
+            ? registry.register(requestCorrelation, request.getRequestURI())
+            : InFlightRequestRegistry.NOT_REGISTERED;
+
+    // count the bytes of the response body for the access log, across all the dispatches, without
+    // wrapping a response that is already counted by an earlier dispatch
+    final ByteCount bytes = accessLog != null ? getByteCount(request) : null;
+    final HttpServletResponse res =
+        bytes != null && !isCounted(response)
+            ? new CountingServletResponse(response, bytes)
+            : response;
+
+    try {
+      // proceed with execution, with the correlation bound for the whole request, so the
+      // interceptors can look it up as well
+      RequestCorrelationHolder.callWith(
+          requestCorrelation,
+          () -> {
+            // trigger the interceptors, unless they were triggered by the first dispatch
+            if (attached == null) {
+              triggerInterceptors(requestCorrelation);
+            }
+            chain.doFilter(req, res);
+            return null;
+          });
+    } catch (IOException | ServletException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ServletException(e);
+    } finally {
+      // an async dispatch is cleaned up by the listener the first dispatch registered
+      if (attached == null) {
+        final ByteCount loggedBytes = initial ? bytes : null;
+        if (request.isAsyncStarted()) {
+          detach(slot);
+          request
+              .getAsyncContext()
+              .addListener(
+                  new CleanupListener(
+                      requestCorrelation, slot, request, response, startNanos, loggedBytes));
+        } else {
+          logAccess(request, response, requestCorrelation, startNanos, loggedBytes);
+          unregister(slot);
+          triggerInterceptorsCleanup(requestCorrelation);
+        }
+      }
+    }
+  }
+
+  /**
+   * Retrieves the correlation the first dispatch attached to the request, when the request is being
+   * dispatched again to finish its asynchronous processing.
+   *
+   * @param request the http servlet request
+   * @return the attached correlation, or {@code null} if this is not an async dispatch, or there
+   *     isn't one
+   */
+  private RequestCorrelation getAsyncDispatchCorrelation(HttpServletRequest request) {
+    if (request.getDispatcherType() != DispatcherType.ASYNC) {
+      return null;
+    }
+    final Object attribute = request.getAttribute(RequestCorrelationConsts.ATTRIBUTE_NAME);
+    return attribute instanceof RequestCorrelation ? (RequestCorrelation) attribute : null;
+  }
+
+  /**
+   * Resolves the correlation ids of the request, using the ids from the request headers when they
+   * are present, and generating new ones when they are not. When lazy id generation is enabled,
+   * generation is deferred until something reads the ids, except for session ids that may need a
+   * new HTTP session.
+   *
+   * @param request the http servlet request
+   * @return the request correlation
+   */
+  private RequestCorrelation resolveCorrelation(HttpServletRequest request) {
+
     // retrieve the correlation session id
     String sessionId = getSessionId(request);
 
+    // retrieve the  correlation request id
+    String requestId = getRequestId(request);
+
+    // replace ids that are too long or malformed with generated ones
+    if (StringUtils.isNotBlank(sessionId)) {
+      if (validator.isValid(sessionId)) {
+        metrics.sessionIdPropagated();
+      } else {
+        logger.debug("Session correlation id was rejected, a new one will be generated");
+        metrics.sessionIdRejected();
+        sessionId = null;
+      }
+    }
+    if (StringUtils.isNotBlank(requestId)) {
+      if (validator.isValid(requestId)) {
+        metrics.requestIdPropagated();
+      } else {
+        logger.debug("Request correlation id was rejected, a new one will be generated");
+        metrics.requestIdRejected();
+        requestId = null;
+      }
+    }
+
+    // fall back to the trace id of a trace context header
+    if (StringUtils.isBlank(requestId) && properties.getTraceContext().isEnabled()) {
+      requestId = TraceParent.parseTraceId(request.getHeader(TraceParent.HEADER_NAME));
+      if (requestId != null) {
+        metrics.requestIdPropagated();
+      }
+    }
+
+    // keep the sampling decision of the caller, if there was one
+    final Boolean sampled =
+        sampler != null
+            ? CorrelationSampler.parse(request.getHeader(properties.getSampling().getHeaderName()))
+            : null;
+
+    if (properties.isLazyIdGeneration()) {
+      // a session can't be created once the response is committed, which it may well be when
+      // something first reads the id, so only ids that can't create sessions are left for later
+      if (StringUtils.isBlank(sessionId)
+          && properties.getSessionIdStrategy() != SessionIdStrategy.EXISTING_SESSION) {
+        sessionId = generateSessionId(request);
+        logger.debug("Session correlation id was not present, generated new one: {}", sessionId);
+      }
+      return new LazyRequestCorrelation(
+          request,
+          correlationIdGenerator,
+          StringUtils.isBlank(sessionId) ? null : sessionId,
+          StringUtils.isBlank(requestId) ? null : requestId,
+          sampler,
+          sampled);
+    }
+
     // verify the correlation session id was set
     if (StringUtils.isBlank(sessionId)) {
-      logger.debug("Session correlation id was not present, generating new one: {}", sessionId);
       sessionId = generateSessionId(request);
+      logger.debug("Session correlation id was not present, generated new one: {}", sessionId);
     }
 
-    // retrieve the  correlation request id
-    String requestId = getRequestId(request);
-
     // verify the correlation request id was set
     if (StringUtils.isBlank(requestId)) {
-      logger.debug("Request correlation id was not present, generating new one: {}", requestId);
       requestId = generateRequestId(request);
+      logger.debug("Request correlation id was not present, generated new one: {}", requestId);
     }
 
-    // trigger the interceptors
-    triggerInterceptors(sessionId, requestId);
-
     // instantiate a new request correlation
-    final RequestCorrelation requestCorrelation =
-        new DefaultRequestCorrelation(sessionId, requestId);
-
-    // populate the request attribute
-    final ServletRequest req = enrichRequest(request, requestCorrelation);
+    return new DefaultRequestCorrelation(sessionId, requestId, isSampled(sampled, requestId));
+  }
 
-    try {
-      // proceed with execution
-      chain.doFilter(req, response);
-    } finally {
-      triggerInterceptorsCleanup(sessionId, requestId);
+  /**
+   * Decides whether the request is sampled, unless the caller already decided.
+   *
+   * @param sampled the decision of the caller, or {@code null}
+   * @param requestId the request id
+   * @return whether the request is sampled
+   */
+  private boolean isSampled(Boolean sampled, String requestId) {
+    if (sampler == null) {
+      return false;
     }
+    return sampled != null ? sampled : sampler.isSampled(requestId);
   }
 
   /**
@@ -200,27 +432,121 @@ public class RequestCorrelationFilter implements Filter {
   }
 
   /**
-   * Triggers the configured interceptors.
+   * Triggers the configured interceptors. The ids are only read when there is at least one
+   * interceptor, so lazily generated ids stay lazy when there are none.
    *
-   * @param sessionId the correlation session id
-   * @param requestId the correlation request id
+   * @param correlation the request correlation
    */
-  private void triggerInterceptors(String sessionId, String requestId) {
+  private void triggerInterceptors(RequestCorrelation correlation) {
     for (RequestCorrelationInterceptor interceptor : interceptors) {
-      interceptor.afterCorrelationIdSet(sessionId, requestId);
+      interceptor.afterCorrelationIdSet(correlation.getSessionId(), correlation.getRequestId());
     }
   }
 
   /**
    * Triggers the configured interceptors cleanUp methods.
    *
-   * @param sessionId the correlation session id
-   * @param requestId the correlation request id
+   * @param correlation the request correlation
    */
-  private void triggerInterceptorsCleanup(String sessionId, String requestId) {
+  private void triggerInterceptorsCleanup(RequestCorrelation correlation) {
 
     for (RequestCorrelationInterceptor interceptor : interceptors) {
-      interceptor.cleanUp(sessionId, requestId);
+      interceptor.cleanUp(correlation.getSessionId(), correlation.getRequestId());
+    }
+  }
+
+  /**
+   * Retrieves the byte count of the response of a request, creating it on the first dispatch.
+   *
+   * @param request the http servlet request
+   * @return the byte count
+   */
+  private ByteCount getByteCount(HttpServletRequest request) {
+    final Object attribute = request.getAttribute(BYTE_COUNT_ATTRIBUTE);
+    if (attribute instanceof ByteCount count) {
+      return count;
+    }
+    final ByteCount count = new ByteCount();
+    request.setAttribute(BYTE_COUNT_ATTRIBUTE, count);
+    return count;
+  }
+
+  /**
+   * Tells whether a response, or any response it wraps, already counts the bytes of the body.
+   *
+   * @param response the http servlet response
+   * @return {@code true} if an earlier dispatch of the request wrapped the response to count it
+   */
+  private static boolean isCounted(ServletResponse response) {
+    ServletResponse current = response;
+    while (current instanceof ServletResponseWrapper wrapper) {
+      if (wrapper instanceof CountingServletResponse) {
+        return true;
+      }
+      current = wrapper.getResponse();
+    }
+    return false;
+  }
+
+  /**
+   * Writes the access log line of a completed request, if the access log is enabled. Ids that are
+   * generated lazily and were never needed are not generated for the access log.
+   *
+   * @param request the http servlet request
+   * @param response the http servlet response
+   * @param correlation the correlation of the request
+   * @param startNanos the {@link System#nanoTime()} when the request started
+   * @param bytes the byte count of the response body, or {@code null} if the dispatch that
+   *     completed is not the first dispatch of the request, which writes the line
+   */
+  private void logAccess(
+      HttpServletRequest request,
+      HttpServletResponse response,
+      RequestCorrelation correlation,
+      long startNanos,
+      ByteCount bytes) {
+    if (accessLog == null || bytes == null) {
+      return;
+    }
+    final String sessionId;
+    final String requestId;
+    if (correlation instanceof LazyRequestCorrelation lazy) {
+      sessionId = lazy.peekSessionId();
+      requestId = lazy.peekRequestId();
+    } else {
+      sessionId = correlation.getSessionId();
+      requestId = correlation.getRequestId();
+    }
+    accessLog.log(
+        sessionId,
+        requestId,
+        request.getMethod(),
+        request.getRequestURI(),
+        response.getStatus(),
+        System.nanoTime() - startNanos,
+        bytes.value);
+  }
+
+  /**
+   * Removes a request from the registry of requests in flight.
+   *
+   * @param slot the slot of the request in the registry
+   */
+  private void unregister(int slot) {
+    if (registry != null) {
+      registry.unregister(slot);
+    }
+  }
+
+  /**
+   * Detaches the request thread from a request in the registry of requests in flight, when the
+   * request continues asynchronously.
+   *
+   * @param slot the slot of the request in the registry
+   */
+  private void detach(int slot) {
+    if (registry != null) {
+      registry.detach(slot);
     }
   }
 
@@ -234,71 +560,548 @@ public class RequestCorrelationFilter implements Filter {
   private ServletRequest enrichRequest(
       HttpServletRequest request, RequestCorrelation correlationId) {
 
-    final CorrelatedServletRequest req = new CorrelatedServletRequest(request);
-    req.setAttribute(RequestCorrelationConsts.ATTRIBUTE_NAME, correlationId);
-    req.setHeader(properties.getSessionHeaderName(), correlationId.getSessionId());
-    req.setHeader(properties.getRequestHeaderName(), correlationId.getRequestId());
-    return req;
+    request.setAttribute(RequestCorrelationConsts.ATTRIBUTE_NAME, correlationId);
+    return new CorrelatedServletRequest(
+        request,
+        properties.getSessionHeaderName(),
+        properties.getRequestHeaderName(),
+        correlationId);
+  }
+
+  /**
+   * Triggers the interceptors cleanup when an asynchronous request completes. The listener
+   * registers itself again when the request starts another asynchronous cycle, because listeners
+   * only hear about the cycle they were added to.
+   */
+  private final class CleanupListener implements AsyncListener {
+
+    /** The correlation of the request. */
+    private final RequestCorrelation correlation;
+
+    /** The slot of the request in the registry of requests in flight. */
+    private final int slot;
+
+    /** The request, for the access log. */
+    private final HttpServletRequest request;
+
+    /** The response, for the access log. */
+    private final HttpServletResponse response;
+
+    /** The {@link System#nanoTime()} when the request started, for the access log. */
+    private final long startNanos;
+
+    /** The byte count of the response body, or {@code null} if it doesn't write the access log. */
+    private final ByteCount bytes;
+
+    /** Whether the cleanup already ran. */
+    private final AtomicBoolean cleanedUp = new AtomicBoolean();
+
+    private CleanupListener(
+        RequestCorrelation correlation,
+        int slot,
+        HttpServletRequest request,
+        HttpServletResponse response,
+        long startNanos,
+        ByteCount bytes) {
+      this.correlation = correlation;
+      this.slot = slot;
+      this.request = request;
+      this.response = response;
+      this.startNanos = startNanos;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      if (cleanedUp.compareAndSet(false, true)) {
+        logAccess(request, response, correlation, startNanos, bytes);
+        unregister(slot);
+        triggerInterceptorsCleanup(correlation);
+      }
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      // the request completes after the timeout is handled
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      // the request completes after the error is handled
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      event.getAsyncContext().addListener(this);
+    }
   }
 
   /**
-   * An http servlet wrapper that allows to register additional HTTP headers.
+   * An http servlet wrapper that overlays the two correlation headers on top of the headers of the
+   * wrapped request. Header names are matched case-insensitively, as they are by the servlet
+   * container, and the correlation values always replace whatever the client sent. Lookups of any
+   * other header go straight to the wrapped request without copying its values.
    *
    * @author Jakub Narloch
+   * @author Steven C. Saliman
    */
   private static class CorrelatedServletRequest extends HttpServletRequestWrapper {
 
-    /** Map with additional customizable headers. */
-    private final Map<String, String> additionalHeaders = new ConcurrentHashMap<>();
+    /** The name of the session id header. */
+    private final String sessionHeaderName;
+
+    /** The name of the request id header. */
+    private final String requestHeaderName;
+
+    /** The correlation ids to return for the two headers. */
+    private final RequestCorrelation correlation;
 
     /**
      * Creates a ServletRequest adaptor wrapping the given request object.
      *
      * @param request The request to wrap
+     * @param sessionHeaderName the name of the session id header
+     * @param requestHeaderName the name of the request id header
+     * @param correlation the correlation ids for the request
      * @throws IllegalArgumentException if the request is null
      */
-    public CorrelatedServletRequest(HttpServletRequest request) {
+    CorrelatedServletRequest(
+        HttpServletRequest request,
+        String sessionHeaderName,
+        String requestHeaderName,
+        RequestCorrelation correlation) {
       super(request);
+      this.sessionHeaderName = sessionHeaderName;
+      this.requestHeaderName = requestHeaderName;
+      this.correlation = correlation;
+    }
+
+    @Override
+    public String getHeader(String name) {
+      if (sessionHeaderName.equalsIgnoreCase(name)) {
+        return correlation.getSessionId();
+      }
+      if (requestHeaderName.equalsIgnoreCase(name)) {
+        return correlation.getRequestId();
+      }
+      return super.getHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+      if (sessionHeaderName.equalsIgnoreCase(name)) {
+        return new SingleValueEnumeration(correlation.getSessionId());
+      }
+      if (requestHeaderName.equalsIgnoreCase(name)) {
+        return new SingleValueEnumeration(correlation.getRequestId());
+      }
+      return super.getHeaders(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+      return new HeaderNameEnumeration(super.getHeaderNames());
     }
 
     /**
-     * Sets the header value.
-     *
-     * @param key the header name
-     * @param value the header value
+     * An enumeration of the header names that returns the two correlation header names, followed
+     * by the names of the wrapped request, minus the ones that match a correlation header.
      */
-    public void setHeader(String key, String value) {
+    private class HeaderNameEnumeration implements Enumeration<String> {
+
+      /** The header names of the wrapped request, may be {@code null}. */
+      private final Enumeration<String> names;
+
+      /** How many of the correlation header names have been returned so far. */
+      private int position;
+
+      /** The next name from the wrapped request, or {@code null} if we haven't looked ahead. */
+      private String next;
+
+      HeaderNameEnumeration(Enumeration<String> names) {
+        this.names = names;
+      }
+
+      @Override
+      public boolean hasMoreElements() {
+        if (position < 2 || next != null) {
+          return true;
+        }
+        while (names != null && names.hasMoreElements()) {
+          final String name = names.nextElement();
+          if (!sessionHeaderName.equalsIgnoreCase(name)
+              && !requestHeaderName.equalsIgnoreCase(name)) {
+            next = name;
+            return true;
+          }
+        }
+        return false;
+      }
+
+      @Override
+      public String nextElement() {
+        if (position == 0) {
+          position++;
+          return sessionHeaderName;
+        }
+        if (position == 1) {
+          position++;
+          return requestHeaderName;
+        }
+        if (!hasMoreElements()) {
+          throw new NoSuchElementException();
+        }
+        final String name = next;
+        next = null;
+        return name;
+      }
+    }
+  }
+
+  /**
+   * The number of bytes written to the body of a response. Dispatches of the same request don't
+   * overlap, so it doesn't need to be atomic, but during asynchronous processing it is written by
+   * application threads and read by the container thread that completes the request, so it is
+   * volatile.
+   */
+  private static final class ByteCount {
+
+    /** The number of bytes written so far. */
+    private volatile long value;
+  }
+
+  /**
+   * An http servlet response wrapper that counts the bytes written to the response body for the
+   * access log. Bytes written through the output stream are counted as they are written, and text
+   * written through the writer is counted in the bytes of the response's character encoding.
+   */
+  private static class CountingServletResponse extends HttpServletResponseWrapper {
 
-      this.additionalHeaders.put(key, value);
+    /** The byte count of the response. */
+    private final ByteCount bytes;
+
+    /** The counting output stream, created when it is first asked for. */
+    private ServletOutputStream outputStream;
+
+    /** The counting writer, created when it is first asked for. */
+    private PrintWriter writer;
+
+    CountingServletResponse(HttpServletResponse response, ByteCount bytes) {
+      super(response);
+      this.bytes = bytes;
     }
 
     @Override
-    public String getHeader(String name) {
-      if (additionalHeaders.containsKey(name)) {
-        return additionalHeaders.get(name);
+    public ServletOutputStream getOutputStream() throws IOException {
+      if (outputStream == null) {
+        outputStream = new CountingOutputStream(super.getOutputStream(), bytes);
       }
-      return super.getHeader(name);
+      return outputStream;
     }
 
     @Override
-    public Enumeration<String> getHeaders(String name) {
+    public PrintWriter getWriter() throws IOException {
+      if (writer == null) {
+        writer = new CountingPrintWriter(super.getWriter(), bytes, getCharacterEncoding());
+      }
+      return writer;
+    }
+  }
 
-      final List<String> values = new ArrayList<>();
-      if (additionalHeaders.containsKey(name)) {
-        values.add(additionalHeaders.get(name));
-      } else {
-        values.addAll(Collections.list(super.getHeaders(name)));
+  /** A servlet output stream that counts the bytes written to another one. */
+  private static class CountingOutputStream extends ServletOutputStream {
+
+    /** The stream the bytes are written to. */
+    private final ServletOutputStream delegate;
+
+    /** The byte count of the response. */
+    private final ByteCount bytes;
+
+    CountingOutputStream(ServletOutputStream delegate, ByteCount bytes) {
+      this.delegate = delegate;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      delegate.write(b);
+      bytes.value++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      delegate.write(b, off, len);
+      bytes.value += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      delegate.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+
+    @Override
+    public boolean isReady() {
+      return delegate.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      delegate.setWriteListener(writeListener);
+    }
+  }
+
+  /**
+   * A print writer over the container's writer that counts the bytes the text written to it takes
+   * in the response's character encoding. Errors are still reported by {@link #checkError()},
+   * which asks the container's writer.
+   */
+  private static class CountingPrintWriter extends PrintWriter {
+
+    /** The byte count of the response. */
+    private final ByteCount bytes;
+
+    /** Whether the response is encoded in UTF-8, which is counted without encoding the text. */
+    private final boolean utf8;
+
+    /** Whether the response is in a single byte encoding, where a character is a byte. */
+    private final boolean singleByte;
+
+    /** The encoder of any other encoding, kept so its state carries over between writes. */
+    private final CharsetEncoder encoder;
+
+    /** The buffer the other encodings are encoded into, only to count the bytes. */
+    private final ByteBuffer encoded;
+
+    /** A high surrogate the last write ended with, or {@code 0}, for the other encodings. */
+    private char pending;
+
+    CountingPrintWriter(PrintWriter delegate, ByteCount bytes, String characterEncoding) {
+      super(delegate);
+      this.bytes = bytes;
+      final Charset charset = toCharset(characterEncoding);
+      this.utf8 = StandardCharsets.UTF_8.equals(charset);
+      this.singleByte =
+          StandardCharsets.ISO_8859_1.equals(charset) || StandardCharsets.US_ASCII.equals(charset);
+      this.encoder =
+          utf8 || singleByte
+              ? null
+              : charset
+                  .newEncoder()
+                  .onMalformedInput(CodingErrorAction.REPLACE)
+                  .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      this.encoded = encoder != null ? ByteBuffer.allocate(256) : null;
+    }
+
+    @Override
+    public void write(int c) {
+      super.write(c);
+      bytes.value += encoder == null ? length((char) c) : encodedLength(String.valueOf((char) c));
+    }
+
+    @Override
+    public void write(char[] buf, int off, int len) {
+      super.write(buf, off, len);
+      bytes.value += length(CharBuffer.wrap(buf, off, len));
+    }
+
+    @Override
+    public void write(String s, int off, int len) {
+      super.write(s, off, len);
+      bytes.value += length(CharBuffer.wrap(s, off, off + len));
+    }
+
+    @Override
+    public void println() {
+      // PrintWriter writes the line separator to the container's writer directly
+      super.println();
+      bytes.value += length(CharBuffer.wrap(System.lineSeparator()));
+    }
+
+    /**
+     * Counts the bytes that text takes in the response's encoding.
+     *
+     * @param text the text
+     * @return the number of bytes
+     */
+    private long length(CharBuffer text) {
+      if (encoder != null) {
+        return encodedLength(text);
+      }
+      long length = 0;
+      while (text.hasRemaining()) {
+        length += length(text.get());
+      }
+      return length;
+    }
+
+    /**
+     * Counts the bytes a character takes in UTF-8 or a single byte encoding. Each half of a
+     * surrogate pair takes two bytes in UTF-8, so a pair split across two writes still counts four,
+     * and a pair is replaced by a single byte in a single byte encoding.
+     *
+     * @param c the character
+     * @return the number of bytes
+     */
+    private int length(char c) {
+      if (singleByte) {
+        return Character.isLowSurrogate(c) ? 0 : 1;
+      }
+      if (c < 0x80) {
+        return 1;
+      }
+      return c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+    }
+
+    /**
+     * Counts the bytes that text takes in an encoding other than UTF-8 and the single byte ones,
+     * by encoding it. A high surrogate at the end of the text is kept for the next write.
+     *
+     * @param text the text
+     * @return the number of bytes
+     */
+    private long encodedLength(CharSequence text) {
+      CharBuffer input = CharBuffer.wrap(text);
+      if (pending != 0 && input.hasRemaining()) {
+        final char[] joined = new char[input.remaining() + 1];
+        joined[0] = pending;
+        input.get(joined, 1, joined.length - 1);
+        input = CharBuffer.wrap(joined);
       }
-      return Collections.enumeration(values);
+      long length = 0;
+      CoderResult result;
+      do {
+        result = encoder.encode(input, encoded, false);
+        length += encoded.position();
+        encoded.clear();
+      } while (result.isOverflow());
+      pending = input.hasRemaining() ? input.get() : 0;
+      return length;
+    }
+
+    /**
+     * Resolves the character encoding of the response.
+     *
+     * @param characterEncoding the name of the encoding
+     * @return the charset, UTF-8 for encodings that aren't supported or can't be encoded
+     */
+    private static Charset toCharset(String characterEncoding) {
+      if (characterEncoding == null) {
+        return StandardCharsets.ISO_8859_1;
+      }
+      try {
+        final Charset charset = Charset.forName(characterEncoding);
+        return charset.canEncode() ? charset : StandardCharsets.UTF_8;
+      } catch (IllegalArgumentException ex) {
+        return StandardCharsets.UTF_8;
+      }
+    }
+  }
+
+  /** An enumeration of exactly one header value. */
+  private static class SingleValueEnumeration implements Enumeration<String> {
+
+    /** The value, or {@code null} once it has been returned. */
+    private String value;
+
+    SingleValueEnumeration(String value) {
+      this.value = value;
     }
 
     @Override
-    public Enumeration<String> getHeaderNames() {
+    public boolean hasMoreElements() {
+      return value != null;
+    }
+
+    @Override
+    public String nextElement() {
+      if (value == null) {
+        throw new NoSuchElementException();
+      }
+      final String result = value;
+      value = null;
+      return result;
+    }
+  }
+
+  /** Builds a {@link RequestCorrelationFilter} with its optional collaborators. */
+  public static final class Builder {
+
+    private final CorrelationIdGenerator correlationIdGenerator;
 
-      final Set<String> names = new HashSet<>();
-      names.addAll(additionalHeaders.keySet());
-      names.addAll(Collections.list(super.getHeaderNames()));
-      return Collections.enumeration(names);
+    private final List<RequestCorrelationInterceptor> interceptors;
+
+    private final RequestCorrelationProperties properties;
+
+    private CorrelationMetrics metrics = CorrelationMetrics.NOOP;
+
+    private AsyncInterceptorDispatcher dispatcher;
+
+    private InFlightRequestRegistry registry;
+
+    private AccessLogWriter accessLog;
+
+    private Builder(
+        CorrelationIdGenerator correlationIdGenerator,
+        List<RequestCorrelationInterceptor> interceptors,
+        RequestCorrelationProperties properties) {
+      this.correlationIdGenerator = correlationIdGenerator;
+      this.interceptors = interceptors;
+      this.properties = properties;
+    }
+
+    /**
+     * @param metrics the metrics to report to, {@link CorrelationMetrics#NOOP} by default.
+     * @return this builder.
+     * @throws IllegalArgumentException if {@code metrics} is {@code null}
+     */
+    public Builder metrics(CorrelationMetrics metrics) {
+      Assert.notNull(metrics, "Parameter 'metrics' can not be null.");
+      this.metrics = metrics;
+      return this;
+    }
+
+    /**
+     * @param dispatcher the dispatcher for asynchronous interceptors, or {@code null} to call all
+     *     interceptors on the request thread.
+     * @return this builder.
+     */
+    public Builder dispatcher(AsyncInterceptorDispatcher dispatcher) {
+      this.dispatcher = dispatcher;
+      return this;
+    }
+
+    /**
+     * @param registry the registry of requests in flight, or {@code null} to not record them.
+     * @return this builder.
+     */
+    public Builder registry(InFlightRequestRegistry registry) {
+      this.registry = registry;
+      return this;
+    }
+
+    /**
+     * @param accessLog the access log writer, or {@code null} to not write an access log.
+     * @return this builder.
+     */
+    public Builder accessLog(AccessLogWriter accessLog) {
+      this.accessLog = accessLog;
+      return this;
+    }
+
+    /**
+     * Creates the filter.
+     *
+     * @return the filter
+     * @throws IllegalArgumentException if the generator, the interceptors or the properties are
+     *     {@code null}
+     */
+    public RequestCorrelationFilter build() {
+      return new RequestCorrelationFilter(this);
     }
   }
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.filter;
+
+import com.tipsymcstagger.spring.request.correlation.api.SlowRequestListener;
+import com.tipsymcstagger.spring.request.correlation.api.SlowRequestSample;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * A watchdog that finds requests in the {@link InFlightRequestRegistry} that have been running
+ * longer than a threshold, and samples the stacks of their threads. Each sample is logged, tagged
+ * with the correlation ids of the request, and handed to the {@link SlowRequestListener}s.
+ *
+ * <p>The overhead is bounded whatever the request rate. The watchdog wakes up once per interval,
+ * scans the fixed number of slots in the registry, and takes at most a fixed number of samples per
+ * interval, from the oldest requests first, and at most a fixed number of samples of each request.
+ * Requests that continue asynchronously have no thread to sample, and are skipped.
+ *
+ * <p>Instances own a thread, and should be closed when they are no longer needed.
+ *
+ * @author Steven C. Saliman
+ */
+public class SlowRequestDetector implements AutoCloseable {
+
+  /** Logger instance used by this class. */
+  private static final Logger logger = LoggerFactory.getLogger(SlowRequestDetector.class);
+
+  /** The registry of requests in flight. */
+  private final InFlightRequestRegistry registry;
+
+  /** How long a request runs before it is sampled, in nanoseconds. */
+  private final long thresholdNanos;
+
+  /** How long the watchdog sleeps between scans, in nanoseconds. */
+  private final long intervalNanos;
+
+  /** The maximum number of samples taken of one request. */
+  private final int maxSamplesPerRequest;
+
+  /** The maximum number of samples taken per scan. */
+  private final int maxSamplesPerInterval;
+
+  /** The maximum number of frames kept of each stack. */
+  private final int maxStackDepth;
+
+  /** The listeners to hand the samples to. */
+  private final List<SlowRequestListener> listeners;
+
+  /** The number of samples taken. */
+  private final LongAdder samples = new LongAdder();
+
+  /** The watchdog thread. */
+  private final Thread watchdog;
+
+  /** Whether the watchdog thread should keep running. */
+  private volatile boolean running = true;
+
+  /**
+   * Creates new instance of {@link SlowRequestDetector} class, and starts the watchdog thread.
+   *
+   * @param registry the registry of requests in flight
+   * @param thresholdMillis how long a request runs before it is sampled, in milliseconds
+   * @param intervalMillis how long the watchdog sleeps between scans, in milliseconds
+   * @param maxSamplesPerRequest the maximum number of samples taken of one request
+   * @param maxSamplesPerInterval the maximum number of samples taken per scan
+   * @param maxStackDepth the maximum number of frames kept of each stack
+   * @param listeners the listeners to hand the samples to
+   * @throws IllegalArgumentException if {@code registry} or {@code listeners} is {@code null}, or
+   *     any of the numbers is not positive
+   */
+  public SlowRequestDetector(
+      InFlightRequestRegistry registry,
+      long thresholdMillis,
+      long intervalMillis,
+      int maxSamplesPerRequest,
+      int maxSamplesPerInterval,
+      int maxStackDepth,
+      List<SlowRequestListener> listeners) {
+    Assert.notNull(registry, "Parameter 'registry' can not be null.");
+    Assert.isTrue(thresholdMillis > 0, "Parameter 'thresholdMillis' must be positive.");
+    Assert.isTrue(intervalMillis > 0, "Parameter 'intervalMillis' must be positive.");
+    Assert.isTrue(maxSamplesPerRequest > 0, "Parameter 'maxSamplesPerRequest' must be positive.");
+    Assert.isTrue(
+        maxSamplesPerInterval > 0, "Parameter 'maxSamplesPerInterval' must be positive.");
+    Assert.isTrue(maxStackDepth > 0, "Parameter 'maxStackDepth' must be positive.");
+    Assert.notNull(listeners, "Parameter 'listeners' can not be null.");
+
+    this.registry = registry;
+    this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    this.maxSamplesPerRequest = maxSamplesPerRequest;
+    this.maxSamplesPerInterval = maxSamplesPerInterval;
+    this.maxStackDepth = maxStackDepth;
+    this.listeners = listeners;
+    this.watchdog = new Thread(this::watch, "request-correlation-slow-requests");
+    this.watchdog.setDaemon(true);
+    this.watchdog.start();
+  }
+
+  /**
+   * @return the number of stack samples taken.
+   */
+  public long getSamples() {
+    return samples.sum();
+  }
+
+  /** Stops the watchdog thread. */
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(watchdog);
+    try {
+      watchdog.join(TimeUnit.SECONDS.toMillis(1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** The body of the watchdog thread. */
+  private void watch() {
+    while (running) {
+      LockSupport.parkNanos(this, intervalNanos);
+      if (!running) {
+        break;
+      }
+      try {
+        scan();
+      } catch (RuntimeException e) {
+        logger.warn("Unable to sample slow requests", e);
+      }
+    }
+  }
+
+  /**
+   * Samples the stacks of the requests that have been running longer than the threshold.
+   *
+   * @return the number of samples taken
+   */
+  int scan() {
+    final long now = System.nanoTime();
+    int taken = 0;
+    for (InFlightRequestRegistry.Entry entry : registry.getEntries()) {
+      final long ageNanos = now - entry.getStartNanos();
+      // the entries are the oldest first, so the rest are younger still
+      if (taken >= maxSamplesPerInterval || ageNanos < thresholdNanos) {
+        break;
+      }
+      final Thread thread = entry.getThread();
+      if (thread == null || entry.samples >= maxSamplesPerRequest) {
+        continue;
+      }
+      final StackTraceElement[] stack = thread.getStackTrace();
+      // the thread may have moved on to other work while we took the stack
+      if (!registry.contains(entry) || entry.getThread() != thread) {
+        continue;
+      }
+      entry.samples++;
+      taken++;
+      samples.increment();
+      publish(
+          new SlowRequestSample(
+              entry.getSessionId(),
+              entry.getRequestId(),
+              entry.getUri(),
+              thread.getName(),
+              TimeUnit.NANOSECONDS.toMillis(ageNanos),
+              stack.length > maxStackDepth ? Arrays.copyOf(stack, maxStackDepth) : stack));
+    }
+    return taken;
+  }
+
+  /**
+   * Logs a sample, and hands it to the listeners.
+   *
+   * @param sample the sample
+   */
+  private void publish(SlowRequestSample sample) {
+    if (logger.isWarnEnabled()) {
+      final StringBuilder stack = new StringBuilder();
+      for (StackTraceElement frame : sample.getStackTrace()) {
+        stack.append(System.lineSeparator()).append("\tat ").append(frame);
+      }
+      logger.warn(
+          "Request {} of session {} to {} has been running for {} ms on {}{}",
+          sample.getRequestId(),
+          sample.getSessionId(),
+          sample.getUri(),
+          sample.getAgeMillis(),
+          sample.getThreadName(),
+          stack);
+    }
+    for (SlowRequestListener listener : listeners) {
+      try {
+        listener.onSlowRequest(sample);
+      } catch (RuntimeException e) {
+        logger.warn("Slow request listener {} failed", listener.getClass().getName(), e);
+      }
+    }
+  }
+}
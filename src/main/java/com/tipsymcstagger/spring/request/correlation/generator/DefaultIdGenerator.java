@@ -14,19 +14,65 @@
 package com.tipsymcstagger.spring.request.correlation.generator;
 
 import com.tipsymcstagger.spring.request.correlation.api.CorrelationIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.support.IdEncoding;
+import com.tipsymcstagger.spring.request.correlation.support.SessionIdStrategy;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import java.util.UUID;
+import org.springframework.util.Assert;
 
 /**
  * Default implementation of the {@link CorrelationIdGenerator} that uses the HTTP session id for
  * session ids and a {@link UUID#randomUUID()} for generating new requests ids.
  *
+ * <p>New ids can be written in one of the compact {@link IdEncoding}s instead of the UUID form.
+ *
+ * <p>By default, a session is created if the request doesn't have one. Use the {@link
+ * SessionIdStrategy#EXISTING_SESSION} strategy to keep stateless requests from creating sessions.
+ *
  * @author Jakub Narloch
  * @author Steven C. Saliman
  */
 public class DefaultIdGenerator implements CorrelationIdGenerator {
 
+  /** How we come up with session ids. */
+  private final SessionIdStrategy sessionIdStrategy;
+
+  /** How new ids are written. */
+  private final IdEncoding encoding;
+
+  /** Creates a new instance that creates HTTP sessions for new session ids. */
+  public DefaultIdGenerator() {
+    this(SessionIdStrategy.HTTP_SESSION);
+  }
+
+  /**
+   * Creates a new instance that uses the given strategy for new session ids.
+   *
+   * @param sessionIdStrategy how to come up with new session ids.
+   * @throws IllegalArgumentException if {@code sessionIdStrategy} is {@code null}
+   */
+  public DefaultIdGenerator(SessionIdStrategy sessionIdStrategy) {
+    this(sessionIdStrategy, IdEncoding.UUID);
+  }
+
+  /**
+   * Creates a new instance that uses the given strategy for new session ids, and the given
+   * encoding for new ids.
+   *
+   * @param sessionIdStrategy how to come up with new session ids.
+   * @param encoding how to write new ids.
+   * @throws IllegalArgumentException if {@code sessionIdStrategy} or {@code encoding} is {@code
+   *     null}
+   */
+  public DefaultIdGenerator(SessionIdStrategy sessionIdStrategy, IdEncoding encoding) {
+    Assert.notNull(sessionIdStrategy, "Parameter 'sessionIdStrategy' can not be null.");
+    Assert.notNull(encoding, "Parameter 'encoding' can not be null.");
+
+    this.sessionIdStrategy = sessionIdStrategy;
+    this.encoding = encoding;
+  }
+
   /**
    * Generates a new session id from the session's id.
    *
@@ -34,17 +80,38 @@ public class DefaultIdGenerator implements CorrelationIdGenerator {
    */
   @Override
   public String generateSessionId(HttpServletRequest request) {
-    HttpSession session = request.getSession();
-    return session.getId();
+    if (sessionIdStrategy == SessionIdStrategy.HTTP_SESSION) {
+      HttpSession session = request.getSession();
+      return session.getId();
+    }
+
+    HttpSession session = request.getSession(false);
+    if (session != null) {
+      return session.getId();
+    }
+    // Never fall back to the session id the client asked for. It is an unvalidated session token,
+    // and the correlation id ends up in logs and in the headers of downstream calls.
+    return generateRequestId(request);
   }
 
   /**
-   * Generates a new request id as a random UUID.
+   * Generates a new request id from a random UUID.
    *
-   * @return random uuid
+   * @return random uuid, in the configured encoding
    */
   @Override
   public String generateRequestId(HttpServletRequest request) {
-    return UUID.randomUUID().toString();
+    final UUID id = UUID.randomUUID();
+    if (encoding == IdEncoding.UUID) {
+      return id.toString();
+    }
+    return encoding.encode(id.getMostSignificantBits(), id.getLeastSignificantBits());
+  }
+
+  /**
+   * @return how new ids are written.
+   */
+  protected IdEncoding getEncoding() {
+    return encoding;
   }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.generator;
+
+import com.tipsymcstagger.spring.request.correlation.api.ReactiveCorrelationIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.support.IdEncoding;
+import com.tipsymcstagger.spring.request.correlation.support.RequestIdStrategy;
+import com.tipsymcstagger.spring.request.correlation.support.SessionIdStrategy;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebSession;
+import reactor.core.publisher.Mono;
+
+/**
+ * Default implementation of the {@link ReactiveCorrelationIdGenerator} that uses the web session id
+ * for session ids, and generates request ids the same way as the servlet generators.
+ *
+ * <p>Reading the id of a {@link WebSession} never saves the session. A session is only saved when
+ * the application starts it or stores attributes in it, so requests that don't use sessions don't
+ * create any.
+ *
+ * @author Steven C. Saliman
+ */
+public class DefaultReactiveIdGenerator implements ReactiveCorrelationIdGenerator {
+
+  /** The generator used for request ids. */
+  private final DefaultIdGenerator requestIdGenerator;
+
+  /** Creates a new instance that generates random request ids. */
+  public DefaultReactiveIdGenerator() {
+    this(RequestIdStrategy.RANDOM);
+  }
+
+  /**
+   * Creates a new instance that generates request ids with the given strategy.
+   *
+   * @param requestIdStrategy how to generate request ids.
+   * @throws IllegalArgumentException if {@code requestIdStrategy} is {@code null}
+   */
+  public DefaultReactiveIdGenerator(RequestIdStrategy requestIdStrategy) {
+    this(requestIdStrategy, IdEncoding.UUID);
+  }
+
+  /**
+   * Creates a new instance that generates request ids with the given strategy and encoding.
+   *
+   * @param requestIdStrategy how to generate request ids.
+   * @param encoding how to write request ids.
+   * @throws IllegalArgumentException if {@code requestIdStrategy} or {@code encoding} is {@code
+   *     null}
+   */
+  public DefaultReactiveIdGenerator(RequestIdStrategy requestIdStrategy, IdEncoding encoding) {
+    Assert.notNull(requestIdStrategy, "Parameter 'requestIdStrategy' can not be null.");
+
+    this.requestIdGenerator =
+        requestIdStrategy == RequestIdStrategy.TIME_ORDERED
+            ? new TimeOrderedIdGenerator(SessionIdStrategy.HTTP_SESSION, encoding)
+            : new DefaultIdGenerator(SessionIdStrategy.HTTP_SESSION, encoding);
+  }
+
+  /**
+   * Generates a new session id from the web session's id.
+   *
+   * @return The session id.
+   */
+  @Override
+  public Mono<String> generateSessionId(ServerWebExchange exchange) {
+    return exchange.getSession().map(WebSession::getId);
+  }
+
+  /**
+   * Generates a new request id.
+   *
+   * @return the request id
+   */
+  @Override
+  public String generateRequestId(ServerWebExchange exchange) {
+    // The servlet generators don't use the request for request ids.
+    return requestIdGenerator.generateRequestId(null);
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.generator;
+
+import com.tipsymcstagger.spring.request.correlation.api.CorrelationIdGenerator;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link CorrelationIdGenerator} that hands out request ids from a pool of ids generated ahead of
+ * time by another generator. A background thread refills the pool in batches once it drops to half
+ * its capacity, so bursts of requests don't pay for id generation on the request thread. When the
+ * pool is empty, the id is generated inline, the same way it would be without the pool.
+ *
+ * <p>The pool is filled without a request, so the request ids of the wrapped generator must not
+ * depend on the request it is given, or on when it is generated. The {@link DefaultIdGenerator}
+ * qualifies, but the {@link TimeOrderedIdGenerator} doesn't, since its ids would carry the time the
+ * pool was refilled. Session ids are always generated inline by the wrapped generator.
+ *
+ * <p>Instances own a thread, and should be closed when they are no longer needed.
+ *
+ * @author Steven C. Saliman
+ */
+public class PooledIdGenerator implements CorrelationIdGenerator, AutoCloseable {
+
+  /** Logger instance used by this class. */
+  private static final Logger logger = LoggerFactory.getLogger(PooledIdGenerator.class);
+
+  /** How long the refill thread sleeps when nobody asks it to refill the pool. */
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  /** The generator that creates the ids. */
+  private final CorrelationIdGenerator delegate;
+
+  /** The maximum number of ids in the pool. */
+  private final int capacity;
+
+  /** The number of ids generated between updates of the pool size. */
+  private final int batchSize;
+
+  /** The pool size at or below which the pool is refilled. */
+  private final int refillThreshold;
+
+  /** The pre-generated ids. */
+  private final Queue<String> pool = new ConcurrentLinkedQueue<>();
+
+  /** The number of ids in the pool, tracked separately because the queue's size() is slow. */
+  private final AtomicInteger size = new AtomicInteger();
+
+  /** Whether the refill thread has been woken up and hasn't finished refilling yet. */
+  private final AtomicBoolean refillRequested = new AtomicBoolean();
+
+  /** The number of ids that came from the pool. */
+  private final LongAdder hits = new LongAdder();
+
+  /** The number of ids that had to be generated inline because the pool was empty. */
+  private final LongAdder misses = new LongAdder();
+
+  /** The thread that refills the pool. */
+  private final Thread refillThread;
+
+  /** Whether the refill thread should keep running. */
+  private volatile boolean running = true;
+
+  /**
+   * Creates new instance of {@link PooledIdGenerator} class, and starts the thread that fills the
+   * pool.
+   *
+   * @param delegate the generator that creates the ids
+   * @param capacity the maximum number of ids in the pool
+   * @param batchSize the number of ids to generate at a time when refilling the pool
+   * @throws IllegalArgumentException if {@code delegate} is {@code null}, or {@code capacity} or
+   *     {@code batchSize} is not positive
+   */
+  public PooledIdGenerator(CorrelationIdGenerator delegate, int capacity, int batchSize) {
+    Assert.notNull(delegate, "Parameter 'delegate' can not be null.");
+    Assert.isTrue(capacity > 0, "Parameter 'capacity' must be positive.");
+    Assert.isTrue(batchSize > 0, "Parameter 'batchSize' must be positive.");
+
+    this.delegate = delegate;
+    this.capacity = capacity;
+    this.batchSize = batchSize;
+    this.refillThreshold = capacity / 2;
+    this.refillThread = new Thread(this::refillLoop, "request-correlation-id-pool");
+    this.refillThread.setDaemon(true);
+    this.refillThread.start();
+  }
+
+  /**
+   * Generates a session id using the wrapped generator.
+   *
+   * @return The session id.
+   */
+  @Override
+  public String generateSessionId(HttpServletRequest request) {
+    return delegate.generateSessionId(request);
+  }
+
+  /**
+   * Takes a request id from the pool, or generates one with the wrapped generator if the pool is
+   * empty.
+   *
+   * @return the request id
+   */
+  @Override
+  public String generateRequestId(HttpServletRequest request) {
+    final String id = pool.poll();
+    if (id != null) {
+      hits.increment();
+      if (size.decrementAndGet() <= refillThreshold) {
+        requestRefill();
+      }
+      return id;
+    }
+    misses.increment();
+    requestRefill();
+    return delegate.generateRequestId(request);
+  }
+
+  /**
+   * @return the number of request ids that came from the pool.
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * @return the number of request ids that were generated inline because the pool was empty.
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the number of request ids currently in the pool.
+   */
+  public int getSize() {
+    return size.get();
+  }
+
+  /** Stops the thread that refills the pool. Ids left in the pool can still be handed out. */
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(refillThread);
+    try {
+      refillThread.join(TimeUnit.SECONDS.toMillis(1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Wakes up the refill thread, unless it has already been woken up. */
+  private void requestRefill() {
+    if (refillRequested.compareAndSet(false, true)) {
+      LockSupport.unpark(refillThread);
+    }
+  }
+
+  /** The body of the refill thread. */
+  private void refillLoop() {
+    while (running) {
+      boolean failed = false;
+      try {
+        refill();
+      } catch (RuntimeException e) {
+        logger.warn("Unable to refill the request id pool", e);
+        failed = true;
+      }
+      refillRequested.set(false);
+      // A request that drained the pool after refill() returned but before the flag was reset
+      // couldn't wake us up, so check again before sleeping.
+      if (running && (failed || size.get() > refillThreshold)) {
+        LockSupport.parkNanos(this, IDLE_NANOS);
+      }
+    }
+  }
+
+  /** Fills the pool up to its capacity, one batch at a time. */
+  private void refill() {
+    int missing = capacity - size.get();
+    while (running && missing > 0) {
+      final int batch = Math.min(batchSize, missing);
+      int added = 0;
+      try {
+        while (added < batch) {
+          pool.offer(delegate.generateRequestId(null));
+          added++;
+        }
+      } finally {
+        missing = capacity - size.addAndGet(added);
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.generator;
+
+import com.tipsymcstagger.spring.request.correlation.api.CorrelationIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.support.IdEncoding;
+import com.tipsymcstagger.spring.request.correlation.support.SessionIdStrategy;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An implementation of the {@link CorrelationIdGenerator} that generates time ordered, version 7
+ * UUIDs for request ids. The first 48 bits of the id are the Unix time in milliseconds, so ids sort
+ * in the order they were generated, and log stores that index on the id keep recent ids together.
+ *
+ * <p>The remaining 74 bits come from {@link ThreadLocalRandom}, which has no shared state between
+ * threads, so generating an id never contends with other request threads the way {@link
+ * UUID#randomUUID()} does. Request ids are not secrets, so they don't need a cryptographically
+ * strong source of randomness. Session ids are handled the same way as the {@link
+ * DefaultIdGenerator}, and when a session id has to be generated, it is time ordered as well.
+ *
+ * @author Steven C. Saliman
+ */
+public class TimeOrderedIdGenerator extends DefaultIdGenerator {
+
+  /** Creates a new instance that creates HTTP sessions for new session ids. */
+  public TimeOrderedIdGenerator() {
+    super();
+  }
+
+  /**
+   * Creates a new instance that uses the given strategy for new session ids.
+   *
+   * @param sessionIdStrategy how to come up with new session ids.
+   * @throws IllegalArgumentException if {@code sessionIdStrategy} is {@code null}
+   */
+  public TimeOrderedIdGenerator(SessionIdStrategy sessionIdStrategy) {
+    super(sessionIdStrategy);
+  }
+
+  /**
+   * Creates a new instance that uses the given strategy for new session ids, and the given
+   * encoding for new ids. Base62 ids still sort in time order, base64url ids don't.
+   *
+   * @param sessionIdStrategy how to come up with new session ids.
+   * @param encoding how to write new ids.
+   * @throws IllegalArgumentException if {@code sessionIdStrategy} or {@code encoding} is {@code
+   *     null}
+   */
+  public TimeOrderedIdGenerator(SessionIdStrategy sessionIdStrategy, IdEncoding encoding) {
+    super(sessionIdStrategy, encoding);
+  }
+
+  /**
+   * Generates a new request id as a version 7 UUID.
+   *
+   * @return a time ordered uuid, in the configured encoding
+   */
+  @Override
+  public String generateRequestId(HttpServletRequest request) {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    // 48 bits of timestamp, the version, and 12 random bits.
+    final long mostSigBits =
+        (System.currentTimeMillis() << 16) | 0x7000L | (random.nextLong() & 0x0FFFL);
+    // the IETF variant and 62 random bits.
+    final long leastSigBits = (random.nextLong() >>> 2) | 0x8000000000000000L;
+    return getEncoding().encode(mostSigBits, leastSigBits);
+  }
+}
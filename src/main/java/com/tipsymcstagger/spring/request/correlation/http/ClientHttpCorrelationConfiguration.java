@@ -20,16 +20,23 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.support.InterceptingHttpAccessor;
+import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestTemplate;
 
 /**
- * Configures any {@link RestTemplate} bean by adding a request interceptor to any {@link
- * RestTemplate} beans if it finds the RestTemplate in the class path, and we haven't disabled it in
- * the properties.
+ * Configures RestTemplates and RestClients to propagate the correlation ids, if it finds the
+ * RestTemplate in the class path, and we haven't disabled it in the properties.
+ *
+ * <p>Clients built from Spring Boot's {@code RestTemplateBuilder} or {@code RestClient.Builder} get
+ * the interceptor through a customizer when they are built, however many of them the application
+ * creates. {@link RestTemplate} beans built some other way get it when this configuration is
+ * initialized. Either way, a client gets the interceptor only once.
  *
  * @author Jakub Narloch
  */
@@ -41,20 +48,78 @@ public class ClientHttpCorrelationConfiguration {
   @Autowired(required = false)
   private List<InterceptingHttpAccessor> clients = new ArrayList<>();
 
+  @Bean
+  public ClientHttpRequestCorrelationInterceptor clientHttpRequestCorrelationInterceptor(
+      RequestCorrelationProperties properties) {
+    return new ClientHttpRequestCorrelationInterceptor(properties);
+  }
+
+  @Bean
+  public RestTemplateCustomizer restTemplateCorrelationCustomizer(
+      final ClientHttpRequestCorrelationInterceptor interceptor) {
+    return restTemplate -> addInterceptor(restTemplate, interceptor);
+  }
+
   @Bean
   public InitializingBean clientsCorrelationInitializer(
-      final RequestCorrelationProperties properties) {
+      final ClientHttpRequestCorrelationInterceptor interceptor) {
     // InitializingBean is a functional interface, so we can just return a lambda implementation
     // of its afterPropertiesSet() function.
     return () -> {
       if (clients != null) {
         for (InterceptingHttpAccessor client : clients) {
-          final List<ClientHttpRequestInterceptor> interceptors =
-              new ArrayList<>(client.getInterceptors());
-          interceptors.add(new ClientHttpRequestCorrelationInterceptor(properties));
-          client.setInterceptors(interceptors);
+          addInterceptor(client, interceptor);
         }
       }
     };
   }
+
+  /**
+   * Adds the interceptor to a client, unless the client already has one.
+   *
+   * @param client the client
+   * @param interceptor the correlation interceptor
+   */
+  static void addInterceptor(
+      InterceptingHttpAccessor client, ClientHttpRequestCorrelationInterceptor interceptor) {
+    if (!hasCorrelationInterceptor(client.getInterceptors())) {
+      final List<ClientHttpRequestInterceptor> interceptors =
+          new ArrayList<>(client.getInterceptors());
+      interceptors.add(interceptor);
+      client.setInterceptors(interceptors);
+    }
+  }
+
+  /**
+   * Checks whether a list of interceptors already propagates the correlation ids.
+   *
+   * @param interceptors the interceptors of a client
+   * @return whether one of them is a {@link ClientHttpRequestCorrelationInterceptor}
+   */
+  static boolean hasCorrelationInterceptor(List<ClientHttpRequestInterceptor> interceptors) {
+    for (ClientHttpRequestInterceptor interceptor : interceptors) {
+      if (interceptor instanceof ClientHttpRequestCorrelationInterceptor) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Configures the builders of the RestClients, available since Spring Framework 6.1. */
+  @Configuration
+  @ConditionalOnClass(RestClient.class)
+  public static class RestClientCorrelationConfiguration {
+
+    @Bean
+    public RestClientCustomizer restClientCorrelationCustomizer(
+        final ClientHttpRequestCorrelationInterceptor interceptor) {
+      return builder ->
+          builder.requestInterceptors(
+              interceptors -> {
+                if (!hasCorrelationInterceptor(interceptors)) {
+                  interceptors.add(interceptor);
+                }
+              });
+    }
+  }
 }
@@ -13,8 +13,11 @@
  */
 package com.tipsymcstagger.spring.request.correlation.http;
 
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.CorrelationSampler;
 import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
 import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationUtils;
+import com.tipsymcstagger.spring.request.correlation.support.TraceParent;
 import java.io.IOException;
 import org.springframework.http.HttpRequest;
 import org.springframework.http.client.ClientHttpRequestExecution;
@@ -27,6 +30,9 @@ import org.springframework.web.client.RestTemplate;
  * {@link RestTemplate} http interceptor, that propagates the currents thread bound request
  * identifier to the outgoing request, through the 'X-Session-Id' and 'X-Request-Id' headers.
  *
+ * <p>The headers are replaced rather than added to, so a request that is retried, goes through the
+ * interceptor twice, or already carries one of the headers still sends each of them once.
+ *
  * @author Jakub Narloch
  * @author Steven C. Saliman
  */
@@ -52,16 +58,35 @@ public class ClientHttpRequestCorrelationInterceptor implements ClientHttpReques
   public ClientHttpResponse intercept(
       HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
 
-    // set the correlation session id
-    final String sessionId = RequestCorrelationUtils.getCurrentSessionId();
-    if (sessionId != null) {
-      request.getHeaders().add(properties.getSessionHeaderName(), sessionId);
-    }
+    final RequestCorrelation correlation = RequestCorrelationUtils.getCurrentCorrelation();
+    if (correlation != null) {
+      // set the correlation session id
+      final String sessionId = correlation.getSessionId();
+      if (sessionId != null) {
+        request.getHeaders().set(properties.getSessionHeaderName(), sessionId);
+      }
+
+      // set the correlation request id
+      final String requestId = correlation.getRequestId();
+      if (requestId != null) {
+        request.getHeaders().set(properties.getRequestHeaderName(), requestId);
+      }
+
+      // set the sampling decision
+      if (properties.getSampling().isEnabled()) {
+        request
+            .getHeaders()
+            .set(
+                properties.getSampling().getHeaderName(),
+                CorrelationSampler.format(correlation.isSampled()));
+      }
 
-    // set the correlation request id
-    final String requestId = RequestCorrelationUtils.getCurrentRequestId();
-    if (requestId != null) {
-      request.getHeaders().add(properties.getRequestHeaderName(), requestId);
+      // set the trace context
+      if (requestId != null && properties.getTraceContext().isEnabled()) {
+        request
+            .getHeaders()
+            .set(TraceParent.HEADER_NAME, TraceParent.format(requestId, correlation.isSampled()));
+      }
     }
 
     // proceed with execution
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.messaging;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationInterceptor;
+import com.tipsymcstagger.spring.request.correlation.metrics.CorrelationMetrics;
+import com.tipsymcstagger.spring.request.correlation.support.AsyncInterceptorDispatcher;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+
+/**
+ * Defines a {@link MessageCorrelationInterceptor} bean if it finds spring-messaging in the class
+ * path, and we haven't disabled it in the properties. The application adds it to the channels that
+ * should carry the correlation ids.
+ *
+ * @author Steven C. Saliman
+ */
+@Configuration
+@ConditionalOnClass(ExecutorChannelInterceptor.class)
+@ConditionalOnProperty(value = "request.correlation.messaging.enabled", matchIfMissing = true)
+public class MessageCorrelationConfiguration {
+
+  /** a list of {@link RequestCorrelationInterceptor}s to call when a message is handled. */
+  @Autowired(required = false)
+  private List<RequestCorrelationInterceptor> interceptors = new ArrayList<>();
+
+  /**
+   * Create the channel interceptor that carries the correlation ids across message channels. The
+   * interceptors it calls are timed by the metrics, and the callbacks of asynchronous interceptors
+   * are handed to the dispatcher, the same way as for the servlet filter.
+   *
+   * @param properties the correlation properties.
+   * @param metrics the metrics the interceptor calls are timed by, if metrics are enabled.
+   * @param dispatcher the dispatcher for asynchronous interceptors, if it is enabled.
+   * @return the channel interceptor.
+   */
+  @Bean
+  public MessageCorrelationInterceptor messageCorrelationInterceptor(
+      RequestCorrelationProperties properties,
+      ObjectProvider<CorrelationMetrics> metrics,
+      ObjectProvider<AsyncInterceptorDispatcher> dispatcher) {
+    final List<RequestCorrelationInterceptor> instrumented =
+        metrics.getIfAvailable(() -> CorrelationMetrics.NOOP).instrument(interceptors);
+    final AsyncInterceptorDispatcher asyncDispatcher = dispatcher.getIfAvailable();
+    return new MessageCorrelationInterceptor(
+        asyncDispatcher != null ? asyncDispatcher.wrap(instrumented) : instrumented, properties);
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.messaging;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationHolderStrategy;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationInterceptor;
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.CorrelationIdValidator;
+import com.tipsymcstagger.spring.request.correlation.support.CorrelationSampler;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationHolder;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationUtils;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.Assert;
+
+/**
+ * Channel interceptor that carries the correlation ids across message channels. When a message is
+ * sent, the ids of the current request are copied into the message headers, using the same names
+ * as the HTTP headers. When a subscribed handler takes the message, the ids are bound to the
+ * handling thread and the {@link RequestCorrelationInterceptor}s are called, the same way the
+ * request correlation filter does for an HTTP request.
+ *
+ * <p>A message that already carries a request id keeps its ids, so messages passed along by a
+ * handler aren't copied again. A message without ids is handled without a correlation. Ids that
+ * fail validation are ignored.
+ *
+ * <p>Handlers are only told about the correlation on channels that call {@link
+ * ExecutorChannelInterceptor}s, like subscribable channels. Consumers of pollable channels can
+ * bind the ids themselves with {@link #getCorrelation(Message)} and {@link
+ * RequestCorrelationHolder#callWith}.
+ *
+ * <p>The ids can only be bound to the handling thread when the holder strategy {@link
+ * RequestCorrelationHolder#supportsBinding() supports binding}, because the interceptor is told
+ * when handling starts and ends instead of being handed the handler. With strategies that can only
+ * bind for the length of a call, like scoped values, the interceptors are still called but handlers
+ * run without the correlation bound, and a warning is logged once. Such handlers can bind the ids
+ * themselves, the same way as consumers of pollable channels.
+ *
+ * @author Steven C. Saliman
+ */
+public class MessageCorrelationInterceptor implements ExecutorChannelInterceptor {
+
+  /** Logger instance used by this class. */
+  private static final Logger logger = LoggerFactory.getLogger(MessageCorrelationInterceptor.class);
+
+  /** List of optional interceptors. */
+  private final List<RequestCorrelationInterceptor> interceptors;
+
+  /** The correlation properties. */
+  private final RequestCorrelationProperties properties;
+
+  /** The validator for ids that come in with a message. */
+  private final CorrelationIdValidator validator;
+
+  /** The message being handled on each thread, linked to the ones it interrupted. */
+  private final ThreadLocal<Handling> handling = new ThreadLocal<>();
+
+  /** Whether the warning about a strategy that can't bind the ids was logged. */
+  private final AtomicBoolean unboundWarned = new AtomicBoolean();
+
+  /**
+   * Creates new instance of {@link MessageCorrelationInterceptor} class.
+   *
+   * @param interceptors the correlation interceptors
+   * @param properties the correlation properties
+   * @throws IllegalArgumentException if {@code interceptors} is {@code null} or {@code properties}
+   *     is {@code null}
+   */
+  public MessageCorrelationInterceptor(
+      List<RequestCorrelationInterceptor> interceptors, RequestCorrelationProperties properties) {
+    Assert.notNull(interceptors, "Parameter 'interceptors' can not be null.");
+    Assert.notNull(properties, "Parameter 'properties' can not be null.");
+
+    this.interceptors = interceptors;
+    this.properties = properties;
+    this.validator = CorrelationIdValidator.from(properties.getValidation());
+  }
+
+  /**
+   * Copies the ids of the current request into the message headers.
+   *
+   * @param message the message being sent
+   * @param channel the channel it is sent to
+   * @return the message with the correlation headers, or the same message if there is no current
+   *     request or the message already has ids
+   */
+  @Override
+  public Message<?> preSend(Message<?> message, MessageChannel channel) {
+    if (message.getHeaders().containsKey(properties.getRequestHeaderName())) {
+      return message;
+    }
+    final RequestCorrelation correlation = RequestCorrelationUtils.getCurrentCorrelation();
+    if (correlation == null) {
+      return message;
+    }
+
+    final MessageBuilder<?> builder = MessageBuilder.fromMessage(message);
+
+    // set the correlation session id
+    final String sessionId = correlation.getSessionId();
+    if (sessionId != null) {
+      builder.setHeader(properties.getSessionHeaderName(), sessionId);
+    }
+
+    // set the correlation request id
+    final String requestId = correlation.getRequestId();
+    if (requestId != null) {
+      builder.setHeader(properties.getRequestHeaderName(), requestId);
+    }
+
+    // set the sampling decision
+    if (properties.getSampling().isEnabled()) {
+      builder.setHeader(
+          properties.getSampling().getHeaderName(),
+          CorrelationSampler.format(correlation.isSampled()));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Binds the ids of the message to the handling thread if the holder strategy supports it, and
+   * triggers the interceptors.
+   *
+   * @param message the message about to be handled
+   * @param channel the channel it was sent to
+   * @param handler the handler
+   * @return the same message
+   */
+  @Override
+  public Message<?> beforeHandle(
+      Message<?> message, MessageChannel channel, MessageHandler handler) {
+    final RequestCorrelation correlation = getCorrelation(message);
+    RequestCorrelationHolderStrategy.Binding binding = null;
+    if (correlation != null) {
+      if (RequestCorrelationHolder.supportsBinding()) {
+        binding = RequestCorrelationHolder.bind(correlation);
+      } else if (unboundWarned.compareAndSet(false, true)) {
+        logger.warn(
+            "The correlation holder strategy {} can only bind ids for the length of a call, so"
+                + " message handlers run without the correlation bound. Handlers can bind it with"
+                + " getCorrelation(message) and RequestCorrelationHolder.callWith.",
+            RequestCorrelationHolder.getStrategy().getClass().getName());
+      }
+    }
+    handling.set(new Handling(correlation, binding, handling.get()));
+
+    // trigger the interceptors
+    if (correlation != null) {
+      triggerInterceptors(correlation);
+    }
+    return message;
+  }
+
+  /**
+   * Unbinds the ids of the message, and triggers the interceptors cleanUp methods.
+   *
+   * @param message the message that was handled
+   * @param channel the channel it was sent to
+   * @param handler the handler
+   * @param ex the exception the handler threw, or {@code null}
+   */
+  @Override
+  public void afterMessageHandled(
+      Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+    final Handling current = handling.get();
+    if (current == null) {
+      return;
+    }
+    if (current.outer == null) {
+      handling.remove();
+    } else {
+      handling.set(current.outer);
+    }
+
+    if (current.binding != null) {
+      current.binding.close();
+    }
+    if (current.correlation != null) {
+      triggerInterceptorsCleanup(current.correlation);
+    }
+  }
+
+  /**
+   * Reads the correlation ids from the headers of a message.
+   *
+   * @param message the message
+   * @return the correlation, or {@code null} if the message doesn't carry any valid ids
+   */
+  public RequestCorrelation getCorrelation(Message<?> message) {
+    final MessageHeaders headers = message.getHeaders();
+    final String sessionId = getId(headers, properties.getSessionHeaderName());
+    final String requestId = getId(headers, properties.getRequestHeaderName());
+    if (sessionId == null && requestId == null) {
+      return null;
+    }
+    boolean sampled = false;
+    if (properties.getSampling().isEnabled()) {
+      final Object value = headers.get(properties.getSampling().getHeaderName());
+      sampled = value != null && Boolean.TRUE.equals(CorrelationSampler.parse(value.toString()));
+    }
+    return new DefaultRequestCorrelation(sessionId, requestId, sampled);
+  }
+
+  /**
+   * Reads an id from the message headers.
+   *
+   * @param headers the message headers
+   * @param name the header name
+   * @return the id, or {@code null} if it is missing or fails validation
+   */
+  private String getId(MessageHeaders headers, String name) {
+    final Object value = headers.get(name);
+    if (value instanceof String) {
+      final String id = (String) value;
+      if (!id.isEmpty() && validator.isValid(id)) {
+        return id;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Triggers the configured interceptors.
+   *
+   * @param correlation the request correlation
+   */
+  private void triggerInterceptors(RequestCorrelation correlation) {
+    for (RequestCorrelationInterceptor interceptor : interceptors) {
+      interceptor.afterCorrelationIdSet(correlation.getSessionId(), correlation.getRequestId());
+    }
+  }
+
+  /**
+   * Triggers the configured interceptors cleanUp methods.
+   *
+   * @param correlation the request correlation
+   */
+  private void triggerInterceptorsCleanup(RequestCorrelation correlation) {
+    for (RequestCorrelationInterceptor interceptor : interceptors) {
+      interceptor.cleanUp(correlation.getSessionId(), correlation.getRequestId());
+    }
+  }
+
+  /** A message being handled on the current thread. */
+  private static final class Handling {
+
+    /** The correlation of the message, or {@code null}. */
+    private final RequestCorrelation correlation;
+
+    /** The binding of the correlation, or {@code null}. */
+    private final RequestCorrelationHolderStrategy.Binding binding;
+
+    /** The message whose handling was interrupted by this one, or {@code null}. */
+    private final Handling outer;
+
+    private Handling(
+        RequestCorrelation correlation,
+        RequestCorrelationHolderStrategy.Binding binding,
+        Handling outer) {
+      this.correlation = correlation;
+      this.binding = binding;
+      this.outer = outer;
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.metrics;
+
+import com.tipsymcstagger.spring.request.correlation.api.CorrelationIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationInterceptor;
+import java.util.List;
+
+/**
+ * Records what the {@link
+ * com.tipsymcstagger.spring.request.correlation.filter.RequestCorrelationFilter} does with each
+ * request. Generation and interceptor calls are measured by decorating the generator and the
+ * interceptors once, when the filter is created, so the filter itself only reports the ids that
+ * came in with the request.
+ *
+ * <p>The {@link #NOOP} instance returns the generator and interceptors it is given as they are, so
+ * applications without metrics don't pay anything for them.
+ *
+ * @author Steven C. Saliman
+ */
+public interface CorrelationMetrics {
+
+  /** Metrics that record nothing. */
+  CorrelationMetrics NOOP =
+      new CorrelationMetrics() {
+        @Override
+        public void sessionIdPropagated() {
+          // nothing to record
+        }
+
+        @Override
+        public void requestIdPropagated() {
+          // nothing to record
+        }
+
+        @Override
+        public void sessionIdRejected() {
+          // nothing to record
+        }
+
+        @Override
+        public void requestIdRejected() {
+          // nothing to record
+        }
+
+        @Override
+        public CorrelationIdGenerator instrument(CorrelationIdGenerator generator) {
+          return generator;
+        }
+
+        @Override
+        public List<RequestCorrelationInterceptor> instrument(
+            List<RequestCorrelationInterceptor> interceptors) {
+          return interceptors;
+        }
+      };
+
+  /** Records a session id that came in with the request. */
+  void sessionIdPropagated();
+
+  /** Records a request id that came in with the request. */
+  void requestIdPropagated();
+
+  /** Records a session id that came in with the request and was rejected by validation. */
+  void sessionIdRejected();
+
+  /** Records a request id that came in with the request and was rejected by validation. */
+  void requestIdRejected();
+
+  /**
+   * Decorates a generator so that the ids it generates are counted and timed.
+   *
+   * @param generator the generator
+   * @return the decorated generator
+   */
+  CorrelationIdGenerator instrument(CorrelationIdGenerator generator);
+
+  /**
+   * Decorates interceptors so that their calls are timed.
+   *
+   * @param interceptors the interceptors
+   * @return the decorated interceptors, in the same order
+   */
+  List<RequestCorrelationInterceptor> instrument(List<RequestCorrelationInterceptor> interceptors);
+}
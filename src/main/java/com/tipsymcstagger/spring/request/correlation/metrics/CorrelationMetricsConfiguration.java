@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Adds {@link CorrelationMetrics} backed by Micrometer if Micrometer is detected in the classpath,
+ * and we haven't disabled metrics in the properties. Without a {@link MeterRegistry} bean, the
+ * metrics record nothing.
+ *
+ * @author Steven C. Saliman
+ */
+@Configuration
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnProperty(value = "request.correlation.metrics.enabled", matchIfMissing = true)
+public class CorrelationMetricsConfiguration {
+
+  /**
+   * Create the {@link CorrelationMetrics} bean that the correlation filter reports to.
+   *
+   * @param registry the application's meter registry, if it has one.
+   * @return Micrometer metrics if there is a registry, or metrics that record nothing.
+   */
+  @Bean
+  @ConditionalOnMissingBean(CorrelationMetrics.class)
+  public CorrelationMetrics correlationMetrics(ObjectProvider<MeterRegistry> registry) {
+    final MeterRegistry meterRegistry = registry.getIfAvailable();
+    if (meterRegistry == null) {
+      return CorrelationMetrics.NOOP;
+    }
+    return new MicrometerCorrelationMetrics(meterRegistry);
+  }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.metrics;
+
+import com.tipsymcstagger.spring.request.correlation.api.AsyncRequestCorrelationInterceptor;
+import com.tipsymcstagger.spring.request.correlation.api.CorrelationIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationInterceptor;
+import com.tipsymcstagger.spring.request.correlation.generator.PooledIdGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.util.Assert;
+
+/**
+ * {@link CorrelationMetrics} backed by a Micrometer {@link MeterRegistry}. It records the following
+ * meters:
+ *
+ * <ul>
+ *   <li>{@code request.correlation.ids}: a counter of ids, tagged with the id {@code type} ({@code
+ *       session} or {@code request}) and its {@code source} ({@code propagated}, {@code
+ *       generated} or {@code rejected}).
+ *   <li>{@code request.correlation.generation}: a timer of id generation, tagged with the id {@code
+ *       type}.
+ *   <li>{@code request.correlation.interceptor}: a timer of interceptor calls, tagged with the
+ *       {@code interceptor} class and the {@code phase} ({@code set} or {@code cleanup}).
+ *   <li>{@code request.correlation.pool.*}: the hits, misses and size of the id pool, when the
+ *       generator is a {@link PooledIdGenerator}.
+ * </ul>
+ *
+ * <p>All meters are registered up front, so recording is a plain counter increment or timer
+ * update.
+ *
+ * @author Steven C. Saliman
+ */
+public class MicrometerCorrelationMetrics implements CorrelationMetrics {
+
+  /** The name of the id counter. */
+  public static final String IDS = "request.correlation.ids";
+
+  /** The name of the id generation timer. */
+  public static final String GENERATION = "request.correlation.generation";
+
+  /** The name of the interceptor timer. */
+  public static final String INTERCEPTOR = "request.correlation.interceptor";
+
+  /** The prefix of the id pool meters. */
+  public static final String POOL = "request.correlation.pool";
+
+  /** The registry the meters are registered with. */
+  private final MeterRegistry registry;
+
+  /** Session ids that came in with the request. */
+  private final Counter sessionIdsPropagated;
+
+  /** Request ids that came in with the request. */
+  private final Counter requestIdsPropagated;
+
+  /** Session ids that came in with the request and were rejected. */
+  private final Counter sessionIdsRejected;
+
+  /** Request ids that came in with the request and were rejected. */
+  private final Counter requestIdsRejected;
+
+  /** Session ids that were generated. */
+  private final Counter sessionIdsGenerated;
+
+  /** Request ids that were generated. */
+  private final Counter requestIdsGenerated;
+
+  /** The time spent generating session ids. */
+  private final Timer sessionIdGeneration;
+
+  /** The time spent generating request ids. */
+  private final Timer requestIdGeneration;
+
+  /**
+   * Creates new instance of {@link MicrometerCorrelationMetrics} class.
+   *
+   * @param registry the registry to register the meters with
+   * @throws IllegalArgumentException if {@code registry} is {@code null}
+   */
+  public MicrometerCorrelationMetrics(MeterRegistry registry) {
+    Assert.notNull(registry, "Parameter 'registry' can not be null.");
+
+    this.registry = registry;
+    this.sessionIdsPropagated = idCounter("session", "propagated");
+    this.requestIdsPropagated = idCounter("request", "propagated");
+    this.sessionIdsRejected = idCounter("session", "rejected");
+    this.requestIdsRejected = idCounter("request", "rejected");
+    this.sessionIdsGenerated = idCounter("session", "generated");
+    this.requestIdsGenerated = idCounter("request", "generated");
+    this.sessionIdGeneration = generationTimer("session");
+    this.requestIdGeneration = generationTimer("request");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void sessionIdPropagated() {
+    sessionIdsPropagated.increment();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void requestIdPropagated() {
+    requestIdsPropagated.increment();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void sessionIdRejected() {
+    sessionIdsRejected.increment();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void requestIdRejected() {
+    requestIdsRejected.increment();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public CorrelationIdGenerator instrument(CorrelationIdGenerator generator) {
+    Assert.notNull(generator, "Parameter 'generator' can not be null.");
+
+    if (generator instanceof PooledIdGenerator) {
+      final PooledIdGenerator pool = (PooledIdGenerator) generator;
+      FunctionCounter.builder(POOL + ".hits", pool, PooledIdGenerator::getHits)
+          .description("Request ids that came from the pool")
+          .register(registry);
+      FunctionCounter.builder(POOL + ".misses", pool, PooledIdGenerator::getMisses)
+          .description("Request ids generated inline because the pool was empty")
+          .register(registry);
+      Gauge.builder(POOL + ".size", pool, PooledIdGenerator::getSize)
+          .description("Request ids currently in the pool")
+          .register(registry);
+    }
+    return new TimedIdGenerator(generator);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<RequestCorrelationInterceptor> instrument(
+      List<RequestCorrelationInterceptor> interceptors) {
+    Assert.notNull(interceptors, "Parameter 'interceptors' can not be null.");
+
+    final List<RequestCorrelationInterceptor> timed = new ArrayList<>(interceptors.size());
+    for (RequestCorrelationInterceptor interceptor : interceptors) {
+      timed.add(
+          interceptor instanceof AsyncRequestCorrelationInterceptor
+              ? new TimedAsyncInterceptor(interceptor)
+              : new TimedInterceptor(interceptor));
+    }
+    return timed;
+  }
+
+  private Counter idCounter(String type, String source) {
+    return Counter.builder(IDS)
+        .description("Correlation ids of incoming requests")
+        .tag("type", type)
+        .tag("source", source)
+        .register(registry);
+  }
+
+  private Timer generationTimer(String type) {
+    return Timer.builder(GENERATION)
+        .description("Time spent generating correlation ids")
+        .tag("type", type)
+        .register(registry);
+  }
+
+  private Timer interceptorTimer(RequestCorrelationInterceptor interceptor, String phase) {
+    return Timer.builder(INTERCEPTOR)
+        .description("Time spent in request correlation interceptors")
+        .tag("interceptor", interceptor.getClass().getName())
+        .tag("phase", phase)
+        .register(registry);
+  }
+
+  /** A generator that counts and times the ids generated by another generator. */
+  private final class TimedIdGenerator implements CorrelationIdGenerator {
+
+    private final CorrelationIdGenerator delegate;
+
+    private TimedIdGenerator(CorrelationIdGenerator delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public String generateSessionId(HttpServletRequest request) {
+      sessionIdsGenerated.increment();
+      return sessionIdGeneration.record(() -> delegate.generateSessionId(request));
+    }
+
+    @Override
+    public String generateRequestId(HttpServletRequest request) {
+      requestIdsGenerated.increment();
+      return requestIdGeneration.record(() -> delegate.generateRequestId(request));
+    }
+  }
+
+  /** An interceptor that times the calls to another interceptor. */
+  private class TimedInterceptor implements RequestCorrelationInterceptor {
+
+    private final RequestCorrelationInterceptor delegate;
+
+    private final Timer set;
+
+    private final Timer cleanUp;
+
+    private TimedInterceptor(RequestCorrelationInterceptor delegate) {
+      this.delegate = delegate;
+      this.set = interceptorTimer(delegate, "set");
+      this.cleanUp = interceptorTimer(delegate, "cleanup");
+    }
+
+    @Override
+    public void afterCorrelationIdSet(String sessionId, String requestId) {
+      set.record(() -> delegate.afterCorrelationIdSet(sessionId, requestId));
+    }
+
+    @Override
+    public void cleanUp(String sessionId, String requestId) {
+      cleanUp.record(() -> delegate.cleanUp(sessionId, requestId));
+    }
+  }
+
+  /**
+   * A timed interceptor that stays asynchronous, so that its calls are timed where they actually
+   * run.
+   */
+  private final class TimedAsyncInterceptor extends TimedInterceptor
+      implements AsyncRequestCorrelationInterceptor {
+
+    private TimedAsyncInterceptor(RequestCorrelationInterceptor delegate) {
+      super(delegate);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.reactive;
+
+import com.tipsymcstagger.spring.request.correlation.api.EnableRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.api.ReactiveCorrelationIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationInterceptor;
+import com.tipsymcstagger.spring.request.correlation.generator.DefaultReactiveIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.metrics.CorrelationMetrics;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the {@link RequestCorrelationWebFilter} to assign correlating ids to all incoming
+ * requests of a reactive web application.
+ *
+ * @author Steven C. Saliman
+ * @see EnableRequestCorrelation
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableConfigurationProperties(RequestCorrelationProperties.class)
+public class ReactiveRequestCorrelationConfiguration {
+  /** The properties to use when configuring the filter. */
+  @Autowired private RequestCorrelationProperties properties;
+
+  /** a list of {@link RequestCorrelationInterceptor}s to call when ids get set. */
+  @Autowired(required = false)
+  private List<RequestCorrelationInterceptor> interceptors = new ArrayList<>();
+
+  /**
+   * Define a default {@link ReactiveCorrelationIdGenerator} if the application hasn't defined one
+   * of its own.
+   *
+   * @return an instance of the {@link DefaultReactiveIdGenerator} to use for id generation.
+   */
+  @Bean
+  @ConditionalOnMissingBean(ReactiveCorrelationIdGenerator.class)
+  public ReactiveCorrelationIdGenerator reactiveRequestIdGenerator() {
+    return new DefaultReactiveIdGenerator(
+        properties.getRequestIdStrategy(), properties.getRequestIdEncoding());
+  }
+
+  /**
+   * Define a {@link RequestCorrelationWebFilter} bean that WebFlux will add to the application's
+   * filter chain.
+   *
+   * @param generator the generator to use for creating correlating ids.
+   * @param metrics the metrics the filter reports to, if metrics are enabled.
+   * @param properties the properties to use when configuring the filter.
+   * @return a {@link RequestCorrelationWebFilter} bean.
+   */
+  @Bean
+  public RequestCorrelationWebFilter requestCorrelationWebFilter(
+      ReactiveCorrelationIdGenerator generator,
+      ObjectProvider<CorrelationMetrics> metrics,
+      RequestCorrelationProperties properties) {
+    return new RequestCorrelationWebFilter(
+        generator,
+        interceptors,
+        properties,
+        metrics.getIfAvailable(() -> CorrelationMetrics.NOOP));
+  }
+}
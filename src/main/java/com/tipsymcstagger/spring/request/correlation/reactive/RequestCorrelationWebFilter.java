@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.reactive;
+
+import com.tipsymcstagger.spring.request.correlation.api.ReactiveCorrelationIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationInterceptor;
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.metrics.CorrelationMetrics;
+import com.tipsymcstagger.spring.request.correlation.support.CorrelationIdValidator;
+import com.tipsymcstagger.spring.request.correlation.support.CorrelationSampler;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationConsts;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import com.tipsymcstagger.spring.request.correlation.support.TraceParent;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * The entry point for request correlation in reactive web applications. This filter intercepts all
+ * incoming requests. If they don't contain the correlation headers, it creates new identifiers and
+ * adds them to the request headers. The ids are also stored as an exchange attribute, and in the
+ * Reactor Context of the rest of the chain, where outgoing WebClient requests can find them.
+ *
+ * <p>Interceptors are called on the thread that runs the filter, and their cleanUp methods are
+ * called when the response completes, which may be on another thread.
+ *
+ * @author Steven C. Saliman
+ */
+public class RequestCorrelationWebFilter implements WebFilter, Ordered {
+
+  /** Logger instance used by this class. */
+  private static final Logger logger = LoggerFactory.getLogger(RequestCorrelationWebFilter.class);
+
+  /** The request generator used for generating new identifiers. */
+  private final ReactiveCorrelationIdGenerator correlationIdGenerator;
+
+  /** List of optional interceptors. */
+  private final List<RequestCorrelationInterceptor> interceptors;
+
+  /** The request correlation properties. */
+  private final RequestCorrelationProperties properties;
+
+  /** The validator for ids that come in with a request. */
+  private final CorrelationIdValidator validator;
+
+  /** The sampler for requests that arrive without a sampling decision, or {@code null}. */
+  private final CorrelationSampler sampler;
+
+  /** The metrics the filter reports to. */
+  private final CorrelationMetrics metrics;
+
+  /**
+   * Creates new instance of {@link RequestCorrelationWebFilter} class that doesn't record metrics.
+   *
+   * @param correlationIdGenerator the request id generator
+   * @param interceptors the correlation interceptors
+   * @param properties the request properties
+   * @throws IllegalArgumentException if {@code requestIdGenerator} is {@code null} or {@code
+   *     interceptors} is {@code null} or {@code properties} is {@code null}
+   */
+  public RequestCorrelationWebFilter(
+      ReactiveCorrelationIdGenerator correlationIdGenerator,
+      List<RequestCorrelationInterceptor> interceptors,
+      RequestCorrelationProperties properties) {
+    this(correlationIdGenerator, interceptors, properties, CorrelationMetrics.NOOP);
+  }
+
+  /**
+   * Creates new instance of {@link RequestCorrelationWebFilter} class that records the ids it
+   * propagates and rejects in the given metrics.
+   *
+   * @param correlationIdGenerator the request id generator
+   * @param interceptors the correlation interceptors
+   * @param properties the request properties
+   * @param metrics the metrics to report to
+   * @throws IllegalArgumentException if {@code requestIdGenerator} is {@code null} or {@code
+   *     interceptors} is {@code null} or {@code properties} is {@code null} or {@code metrics} is
+   *     {@code null}
+   */
+  public RequestCorrelationWebFilter(
+      ReactiveCorrelationIdGenerator correlationIdGenerator,
+      List<RequestCorrelationInterceptor> interceptors,
+      RequestCorrelationProperties properties,
+      CorrelationMetrics metrics) {
+    Assert.notNull(correlationIdGenerator, "Parameter 'correlationIdGenerator' can not be null.");
+    Assert.notNull(interceptors, "Parameter 'interceptors' can not be null.");
+    Assert.notNull(properties, "Parameter 'properties' can not be null.");
+    Assert.notNull(metrics, "Parameter 'metrics' can not be null.");
+
+    this.correlationIdGenerator = correlationIdGenerator;
+    this.interceptors = interceptors;
+    this.properties = properties;
+    this.metrics = metrics;
+    this.validator = CorrelationIdValidator.from(properties.getValidation());
+    this.sampler =
+        properties.getSampling().isEnabled()
+            ? new CorrelationSampler(properties.getSampling().getRate())
+            : null;
+  }
+
+  /**
+   * The order of the filter, from the same properties that order the servlet filter.
+   *
+   * @return the order of the filter
+   */
+  @Override
+  public int getOrder() {
+    return properties.getFilterOrderFrom().offset + properties.getFilterOrder();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    final HttpHeaders headers = exchange.getRequest().getHeaders();
+    final String sessionId = validateSessionId(headers.getFirst(properties.getSessionHeaderName()));
+    final String headerRequestId =
+        validateRequestId(headers.getFirst(properties.getRequestHeaderName()));
+    final String requestId =
+        StringUtils.isBlank(headerRequestId) ? getTraceId(headers) : headerRequestId;
+    // the request headers need the request id if it came from the trace context
+    final boolean traceIdUsed = StringUtils.isBlank(headerRequestId) && requestId != null;
+
+    // Only go through a Mono when we actually need to generate a session id.
+    if (StringUtils.isBlank(sessionId)) {
+      return correlationIdGenerator
+          .generateSessionId(exchange)
+          .switchIfEmpty(
+              Mono.fromSupplier(() -> correlationIdGenerator.generateRequestId(exchange)))
+          .flatMap(
+              generatedId -> {
+                logger.debug(
+                    "Session correlation id was not present, generated new one: {}", generatedId);
+                return doFilter(exchange, chain, generatedId, requestId, true);
+              });
+    }
+    return doFilter(exchange, chain, sessionId, requestId, traceIdUsed);
+  }
+
+  /**
+   * Retrieves the trace id of the trace context header, if that is enabled.
+   *
+   * @param headers the request headers
+   * @return the trace id, or {@code null} if it is disabled, missing or invalid
+   */
+  private String getTraceId(HttpHeaders headers) {
+    if (!properties.getTraceContext().isEnabled()) {
+      return null;
+    }
+    final String traceId = TraceParent.parseTraceId(headers.getFirst(TraceParent.HEADER_NAME));
+    if (traceId != null) {
+      metrics.requestIdPropagated();
+    }
+    return traceId;
+  }
+
+  /**
+   * Drops a session id that came in with the request if it is too long or malformed, so that a new
+   * one is generated, and records the outcome.
+   *
+   * @param id the id from the request, may be blank
+   * @return the id, or {@code null} if it was rejected
+   */
+  private String validateSessionId(String id) {
+    if (StringUtils.isBlank(id)) {
+      return id;
+    }
+    if (validator.isValid(id)) {
+      metrics.sessionIdPropagated();
+      return id;
+    }
+    logger.debug("Session correlation id was rejected, a new one will be generated");
+    metrics.sessionIdRejected();
+    return null;
+  }
+
+  /**
+   * Drops a request id that came in with the request if it is too long or malformed, so that a new
+   * one is generated, and records the outcome.
+   *
+   * @param id the id from the request, may be blank
+   * @return the id, or {@code null} if it was rejected
+   */
+  private String validateRequestId(String id) {
+    if (StringUtils.isBlank(id)) {
+      return id;
+    }
+    if (validator.isValid(id)) {
+      metrics.requestIdPropagated();
+      return id;
+    }
+    logger.debug("Request correlation id was rejected, a new one will be generated");
+    metrics.requestIdRejected();
+    return null;
+  }
+
+  /**
+   * Performs 'enrichment' of the incoming request once the session id is known.
+   *
+   * @param exchange the current exchange
+   * @param chain the filter processing chain
+   * @param sessionId the correlation session id
+   * @param headerRequestId the correlation request id from the request, may be blank
+   * @param headersChanged whether the session id was generated, or the request id was taken from
+   *     the trace context
+   * @return the completion of the rest of the chain
+   */
+  private Mono<Void> doFilter(
+      ServerWebExchange exchange,
+      WebFilterChain chain,
+      String sessionId,
+      String headerRequestId,
+      boolean headersChanged) {
+
+    String requestId = headerRequestId;
+    boolean generated = headersChanged;
+
+    // verify the correlation request id was set
+    if (StringUtils.isBlank(requestId)) {
+      requestId = correlationIdGenerator.generateRequestId(exchange);
+      logger.debug("Request correlation id was not present, generated new one: {}", requestId);
+      generated = true;
+    }
+
+    final RequestCorrelation correlation =
+        new DefaultRequestCorrelation(
+            sessionId, requestId, isSampled(exchange.getRequest().getHeaders(), requestId));
+
+    // trigger the interceptors
+    triggerInterceptors(correlation);
+
+    // populate the exchange attribute, and the headers if we had to generate an id
+    exchange.getAttributes().put(RequestCorrelationConsts.ATTRIBUTE_NAME, correlation);
+    final ServerWebExchange correlatedExchange =
+        generated ? enrichExchange(exchange, correlation) : exchange;
+
+    return chain
+        .filter(correlatedExchange)
+        .contextWrite(context -> context.put(RequestCorrelationConsts.ATTRIBUTE_NAME, correlation))
+        .doFinally(signal -> triggerInterceptorsCleanup(correlation));
+  }
+
+  /**
+   * Decides whether the request is sampled, unless the caller already decided.
+   *
+   * @param headers the request headers
+   * @param requestId the request id
+   * @return whether the request is sampled
+   */
+  private boolean isSampled(HttpHeaders headers, String requestId) {
+    if (sampler == null) {
+      return false;
+    }
+    final Boolean sampled =
+        CorrelationSampler.parse(headers.getFirst(properties.getSampling().getHeaderName()));
+    return sampled != null ? sampled : sampler.isSampled(requestId);
+  }
+
+  /**
+   * "Enriches" the exchange by replacing the correlation headers of its request.
+   *
+   * @param exchange the current exchange
+   * @param correlation the correlation ids
+   * @return the exchange to use for the rest of the chain
+   */
+  private ServerWebExchange enrichExchange(
+      ServerWebExchange exchange, RequestCorrelation correlation) {
+    return exchange
+        .mutate()
+        .request(
+            request ->
+                request.headers(
+                    headers -> {
+                      headers.set(properties.getSessionHeaderName(), correlation.getSessionId());
+                      headers.set(properties.getRequestHeaderName(), correlation.getRequestId());
+                    }))
+        .build();
+  }
+
+  /**
+   * Triggers the configured interceptors.
+   *
+   * @param correlation the request correlation
+   */
+  private void triggerInterceptors(RequestCorrelation correlation) {
+    for (RequestCorrelationInterceptor interceptor : interceptors) {
+      interceptor.afterCorrelationIdSet(correlation.getSessionId(), correlation.getRequestId());
+    }
+  }
+
+  /**
+   * Triggers the configured interceptors cleanUp methods.
+   *
+   * @param correlation the request correlation
+   */
+  private void triggerInterceptorsCleanup(RequestCorrelation correlation) {
+    for (RequestCorrelationInterceptor interceptor : interceptors) {
+      interceptor.cleanUp(correlation.getSessionId(), correlation.getRequestId());
+    }
+  }
+}
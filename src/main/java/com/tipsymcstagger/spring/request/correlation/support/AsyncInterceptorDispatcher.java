@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import com.tipsymcstagger.spring.request.correlation.api.AsyncRequestCorrelationInterceptor;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationInterceptor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Calls the callbacks of {@link AsyncRequestCorrelationInterceptor}s on a background thread. The
+ * callbacks are put in a bounded queue, and the background thread takes them off the queue in
+ * batches. When the queue is full, the {@link AsyncOverflowPolicy} decides whether the callback is
+ * dropped or called on the request thread.
+ *
+ * <p>The two callbacks of a request are kept together. Only {@code afterCorrelationIdSet} callbacks
+ * count against the capacity of the queue. When one of them is queued, the {@code cleanUp} of the
+ * same request is always queued after it, even if the queue is full by then. When one is dropped
+ * or called on the request thread, the {@code cleanUp} is dropped or called on the request thread
+ * too. So an interceptor never sees a {@code cleanUp} without the {@code afterCorrelationIdSet}
+ * before it.
+ *
+ * <p>Instances own a thread, and should be closed when they are no longer needed. Callbacks that
+ * are still queued when the dispatcher is closed are called before it stops.
+ *
+ * @author Steven C. Saliman
+ */
+public class AsyncInterceptorDispatcher implements AutoCloseable {
+
+  /** Logger instance used by this class. */
+  private static final Logger logger = LoggerFactory.getLogger(AsyncInterceptorDispatcher.class);
+
+  /** How long the worker waits for a callback before checking whether it should stop. */
+  private static final long POLL_MILLIS = 100;
+
+  /** The callbacks waiting to be called. */
+  private final BlockingQueue<Callback> queue = new LinkedBlockingQueue<>();
+
+  /** The number of callbacks waiting to be called. */
+  private final AtomicInteger queued = new AtomicInteger();
+
+  /** The maximum number of {@code afterCorrelationIdSet} callbacks waiting to be called. */
+  private final int queueCapacity;
+
+  /** The maximum number of callbacks the worker takes off the queue at a time. */
+  private final int batchSize;
+
+  /** What to do with a callback when the queue is full. */
+  private final AsyncOverflowPolicy overflowPolicy;
+
+  /** The number of callbacks that were dropped because the queue was full. */
+  private final LongAdder dropped = new LongAdder();
+
+  /** The thread that calls the interceptors. */
+  private final Thread worker;
+
+  /** Whether the worker should keep running. */
+  private volatile boolean running = true;
+
+  /**
+   * Creates new instance of {@link AsyncInterceptorDispatcher} class, and starts the thread that
+   * calls the interceptors.
+   *
+   * @param queueCapacity the maximum number of callbacks waiting to be called
+   * @param batchSize the maximum number of callbacks taken off the queue at a time
+   * @param overflowPolicy what to do with a callback when the queue is full
+   * @throws IllegalArgumentException if {@code queueCapacity} or {@code batchSize} is not positive,
+   *     or {@code overflowPolicy} is {@code null}
+   */
+  public AsyncInterceptorDispatcher(
+      int queueCapacity, int batchSize, AsyncOverflowPolicy overflowPolicy) {
+    Assert.isTrue(queueCapacity > 0, "Parameter 'queueCapacity' must be positive.");
+    Assert.isTrue(batchSize > 0, "Parameter 'batchSize' must be positive.");
+    Assert.notNull(overflowPolicy, "Parameter 'overflowPolicy' can not be null.");
+
+    this.queueCapacity = queueCapacity;
+    this.batchSize = batchSize;
+    this.overflowPolicy = overflowPolicy;
+    this.worker = new Thread(this::drainLoop, "request-correlation-interceptors");
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  /**
+   * Replaces the asynchronous interceptors in a list with interceptors that queue their callbacks
+   * for this dispatcher. Other interceptors are left as they are.
+   *
+   * @param interceptors the interceptors
+   * @return the interceptors to call from the request thread, in the same order
+   */
+  public List<RequestCorrelationInterceptor> wrap(
+      List<RequestCorrelationInterceptor> interceptors) {
+    Assert.notNull(interceptors, "Parameter 'interceptors' can not be null.");
+
+    final List<RequestCorrelationInterceptor> wrapped = new ArrayList<>(interceptors.size());
+    for (RequestCorrelationInterceptor interceptor : interceptors) {
+      wrapped.add(
+          interceptor instanceof AsyncRequestCorrelationInterceptor
+              ? new QueuedInterceptor(interceptor)
+              : interceptor);
+    }
+    return wrapped;
+  }
+
+  /**
+   * @return the number of callbacks that were dropped because the queue was full.
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  /** Stops the worker once the callbacks that are already queued have been called. */
+  @Override
+  public void close() {
+    running = false;
+    try {
+      worker.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Queues an {@code afterCorrelationIdSet} callback if the queue has room.
+   *
+   * @param callback the callback
+   * @return {@code true} if the callback was queued
+   */
+  private boolean offer(Callback callback) {
+    int current = queued.get();
+    while (running && current < queueCapacity) {
+      if (queued.compareAndSet(current, current + 1)) {
+        queue.add(callback);
+        return true;
+      }
+      current = queued.get();
+    }
+    return false;
+  }
+
+  /**
+   * Queues a {@code cleanUp} callback whose {@code afterCorrelationIdSet} was queued. The queue
+   * always takes it, so the pair isn't split.
+   *
+   * @param callback the callback
+   * @return {@code true} if the callback was queued, {@code false} if the dispatcher is closed
+   */
+  private boolean offerCleanUp(Callback callback) {
+    if (!running) {
+      return false;
+    }
+    queued.incrementAndGet();
+    queue.add(callback);
+    return true;
+  }
+
+  /**
+   * Applies the overflow policy to a callback that could not be queued.
+   *
+   * @param callback the callback
+   */
+  private void overflow(Callback callback) {
+    if (overflowPolicy == AsyncOverflowPolicy.CALLER_RUNS) {
+      callback.run();
+    } else {
+      dropped.increment();
+      logger.debug(
+          "Interceptor queue is full, dropped callback for request {}", callback.requestId);
+    }
+  }
+
+  /** The body of the worker thread. */
+  private void drainLoop() {
+    final List<Callback> batch = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        final Callback first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        queued.addAndGet(-batch.size());
+        for (Callback callback : batch) {
+          callback.runSafely();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  /** An interceptor that queues its callbacks instead of calling the real interceptor. */
+  private final class QueuedInterceptor implements RequestCorrelationInterceptor {
+
+    private final RequestCorrelationInterceptor delegate;
+
+    /**
+     * The ids of the requests whose {@code afterCorrelationIdSet} was not queued, with the number
+     * of such requests, so their {@code cleanUp} gets the same treatment.
+     */
+    private final ConcurrentMap<List<String>, Integer> overflowed = new ConcurrentHashMap<>();
+
+    private QueuedInterceptor(RequestCorrelationInterceptor delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void afterCorrelationIdSet(String sessionId, String requestId) {
+      final Callback callback = new Callback(delegate, sessionId, requestId, false);
+      if (!offer(callback)) {
+        overflowed.merge(Arrays.asList(sessionId, requestId), 1, Integer::sum);
+        overflow(callback);
+      }
+    }
+
+    @Override
+    public void cleanUp(String sessionId, String requestId) {
+      final Callback callback = new Callback(delegate, sessionId, requestId, true);
+      if (takeOverflowed(sessionId, requestId) || !offerCleanUp(callback)) {
+        overflow(callback);
+      }
+    }
+
+    /**
+     * Tells whether the {@code afterCorrelationIdSet} of a request was not queued, and forgets it.
+     *
+     * @param sessionId the session id of the request
+     * @param requestId the request id of the request
+     * @return {@code true} if the callback was dropped or called on the request thread
+     */
+    private boolean takeOverflowed(String sessionId, String requestId) {
+      if (overflowed.isEmpty()) {
+        return false;
+      }
+      final List<String> key = Arrays.asList(sessionId, requestId);
+      Integer count = overflowed.get(key);
+      while (count != null) {
+        final boolean taken =
+            count == 1 ? overflowed.remove(key, count) : overflowed.replace(key, count, count - 1);
+        if (taken) {
+          return true;
+        }
+        count = overflowed.get(key);
+      }
+      return false;
+    }
+  }
+
+  /** A queued interceptor callback. */
+  private static final class Callback {
+
+    private final RequestCorrelationInterceptor interceptor;
+
+    private final String sessionId;
+
+    private final String requestId;
+
+    private final boolean cleanUp;
+
+    private Callback(
+        RequestCorrelationInterceptor interceptor,
+        String sessionId,
+        String requestId,
+        boolean cleanUp) {
+      this.interceptor = interceptor;
+      this.sessionId = sessionId;
+      this.requestId = requestId;
+      this.cleanUp = cleanUp;
+    }
+
+    private void run() {
+      if (cleanUp) {
+        interceptor.cleanUp(sessionId, requestId);
+      } else {
+        interceptor.afterCorrelationIdSet(sessionId, requestId);
+      }
+    }
+
+    private void runSafely() {
+      try {
+        run();
+      } catch (Throwable e) {
+        // nothing an interceptor throws may stop the worker, or the queue would only grow
+        logger.warn("Request correlation interceptor {} failed", interceptor.getClass(), e);
+      }
+    }
+  }
+}
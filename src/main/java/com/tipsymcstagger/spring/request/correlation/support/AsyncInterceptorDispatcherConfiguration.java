@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Adds the {@link AsyncInterceptorDispatcher} if asynchronous interceptors are enabled in the
+ * properties. It is shared by everything that calls the interceptors, the servlet filter and the
+ * message channel interceptor, so it doesn't depend on the type of application.
+ *
+ * @author Steven C. Saliman
+ */
+@Configuration
+@ConditionalOnProperty("request.correlation.async-interceptors.enabled")
+public class AsyncInterceptorDispatcherConfiguration {
+
+  /**
+   * Define the {@link AsyncInterceptorDispatcher} that calls asynchronous interceptors on a
+   * background thread. Spring closes it when the context shuts down.
+   *
+   * @param properties the correlation properties.
+   * @return the dispatcher.
+   */
+  @Bean
+  public AsyncInterceptorDispatcher asyncInterceptorDispatcher(
+      RequestCorrelationProperties properties) {
+    final RequestCorrelationProperties.AsyncInterceptors async = properties.getAsyncInterceptors();
+    return new AsyncInterceptorDispatcher(
+        async.getQueueCapacity(), async.getBatchSize(), async.getOverflowPolicy());
+  }
+}
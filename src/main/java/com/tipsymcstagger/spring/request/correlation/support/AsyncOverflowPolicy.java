@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+/**
+ * This enum defines what happens to an asynchronous interceptor callback when the queue of pending
+ * callbacks is full.
+ *
+ * @author Steven C. Saliman
+ */
+public enum AsyncOverflowPolicy {
+  /** Drop the callback, so a slow interceptor never slows down requests. This is the default. */
+  DROP,
+
+  /**
+   * Call the interceptor on the request thread, so no callback is lost, at the cost of the latency
+   * the queue was meant to hide.
+   */
+  CALLER_RUNS
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+/**
+ * This enum defines the ways the correlation of the current request can be bound to the thread that
+ * handles it.
+ *
+ * @author Steven C. Saliman
+ */
+public enum CorrelationHolderMode {
+  /** Bind the correlation to a {@link ThreadLocal}. This is the default. */
+  THREAD_LOCAL,
+
+  /**
+   * Bind the correlation to a {@code ScopedValue}, which is cheaper than a thread local when
+   * requests are handled by virtual threads. This needs JDK 21 or newer, started with {@code
+   * --enable-preview} on JDK versions where scoped values are still a preview feature.
+   */
+  SCOPED_VALUE
+}
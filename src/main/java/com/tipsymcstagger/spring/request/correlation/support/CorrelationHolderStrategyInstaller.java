@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationHolderStrategy;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+/**
+ * Puts a {@link RequestCorrelationHolderStrategy} in place in the {@link RequestCorrelationHolder}
+ * for the life of an application context. The holder is shared by the whole JVM, so the strategy
+ * that was in place before is put back when the context is closed, unless another context has
+ * replaced the strategy since.
+ *
+ * @author Steven C. Saliman
+ */
+public class CorrelationHolderStrategyInstaller implements InitializingBean, DisposableBean {
+
+  /** The strategy to put in place. */
+  private final RequestCorrelationHolderStrategy strategy;
+
+  /** The strategy that was in place before, or {@code null} if not installed. */
+  private RequestCorrelationHolderStrategy previous;
+
+  /**
+   * Creates new instance of {@link CorrelationHolderStrategyInstaller} class.
+   *
+   * @param strategy the strategy to put in place
+   * @throws IllegalArgumentException if {@code strategy} is {@code null}
+   */
+  public CorrelationHolderStrategyInstaller(RequestCorrelationHolderStrategy strategy) {
+    Assert.notNull(strategy, "Parameter 'strategy' can not be null.");
+
+    this.strategy = strategy;
+  }
+
+  /** Puts the strategy in place, remembering the one it replaces. */
+  @Override
+  public void afterPropertiesSet() {
+    previous = RequestCorrelationHolder.getStrategy();
+    RequestCorrelationHolder.setStrategy(strategy);
+  }
+
+  /** Puts the previous strategy back, if the strategy is still the one in place. */
+  @Override
+  public void destroy() {
+    if (previous != null && RequestCorrelationHolder.getStrategy() == strategy) {
+      RequestCorrelationHolder.setStrategy(previous);
+    }
+    previous = null;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import org.springframework.util.Assert;
+
+/**
+ * Checks correlation ids that came in with a request against a maximum length and a set of allowed
+ * characters, so that oversized or malformed ids aren't copied into logs and outbound requests.
+ *
+ * <p>The allowed characters are given as a string in which {@code a-z} style ranges can be used. A
+ * {@code -} at the start or end of the string stands for itself. Only ASCII characters can be
+ * allowed. The check is a single pass over the id, with a table lookup per character.
+ *
+ * @author Steven C. Saliman
+ */
+public class CorrelationIdValidator {
+
+  /** A validator that accepts every id. */
+  public static final CorrelationIdValidator ACCEPT_ALL = new CorrelationIdValidator();
+
+  /** The maximum length of an id. */
+  private final int maxLength;
+
+  /** Whether each ASCII character is allowed, or {@code null} to allow every character. */
+  private final boolean[] allowed;
+
+  /**
+   * Creates new instance of {@link CorrelationIdValidator} class.
+   *
+   * @param maxLength the maximum length of an id
+   * @param allowedCharacters the allowed characters, with optional ranges
+   * @throws IllegalArgumentException if {@code maxLength} is not positive, or {@code
+   *     allowedCharacters} is empty, malformed or contains a non-ASCII character
+   */
+  public CorrelationIdValidator(int maxLength, String allowedCharacters) {
+    Assert.isTrue(maxLength > 0, "Parameter 'maxLength' must be positive.");
+    Assert.hasLength(allowedCharacters, "Parameter 'allowedCharacters' can not be empty.");
+
+    this.maxLength = maxLength;
+    this.allowed = parse(allowedCharacters);
+  }
+
+  /** Creates the validator that accepts every id. */
+  private CorrelationIdValidator() {
+    this.maxLength = Integer.MAX_VALUE;
+    this.allowed = null;
+  }
+
+  /**
+   * Creates the validator described by the validation properties.
+   *
+   * @param validation the validation properties
+   * @return the validator, or {@link #ACCEPT_ALL} if validation is disabled
+   */
+  public static CorrelationIdValidator from(RequestCorrelationProperties.Validation validation) {
+    if (!validation.isEnabled()) {
+      return ACCEPT_ALL;
+    }
+    return new CorrelationIdValidator(validation.getMaxLength(), validation.getAllowedCharacters());
+  }
+
+  /**
+   * Checks an id.
+   *
+   * @param id the id, not {@code null}
+   * @return whether the id is short enough and only contains allowed characters
+   */
+  public boolean isValid(String id) {
+    final int length = id.length();
+    if (length > maxLength) {
+      return false;
+    }
+    if (allowed == null) {
+      return true;
+    }
+    for (int i = 0; i < length; i++) {
+      final char c = id.charAt(i);
+      if (c >= allowed.length || !allowed[c]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Builds the table of allowed characters.
+   *
+   * @param spec the allowed characters, with optional ranges
+   * @return the table
+   */
+  private static boolean[] parse(String spec) {
+    final boolean[] table = new boolean[128];
+    final int length = spec.length();
+    int i = 0;
+    while (i < length) {
+      final char first = spec.charAt(i);
+      char last = first;
+      if (i + 2 < length && spec.charAt(i + 1) == '-') {
+        last = spec.charAt(i + 2);
+        i += 3;
+      } else {
+        i++;
+      }
+      Assert.isTrue(first <= last, "Invalid character range '" + first + "-" + last + "'.");
+      Assert.isTrue(last < table.length, "Only ASCII characters can be allowed.");
+      for (char c = first; c <= last; c++) {
+        table[c] = true;
+      }
+    }
+    return table;
+  }
+}
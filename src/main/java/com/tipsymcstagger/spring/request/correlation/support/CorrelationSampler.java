@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import org.springframework.util.Assert;
+
+/**
+ * Decides whether a request is sampled for expensive diagnostics. The decision is a hash of the
+ * request id compared against the sampling rate, so every service that sees the same request id
+ * with the same rate comes to the same decision. Services downstream of the edge normally don't
+ * decide at all, because the decision is propagated in a header.
+ *
+ * @author Steven C. Saliman
+ */
+public class CorrelationSampler {
+
+  /** The header value of a sampled request. */
+  public static final String SAMPLED = "1";
+
+  /** The header value of a request that isn't sampled. */
+  public static final String NOT_SAMPLED = "0";
+
+  /** Hashes below this value are sampled. */
+  private final long threshold;
+
+  /**
+   * Creates new instance of {@link CorrelationSampler} class.
+   *
+   * @param rate the fraction of requests to sample, from 0 to 1
+   * @throws IllegalArgumentException if {@code rate} is not between 0 and 1
+   */
+  public CorrelationSampler(double rate) {
+    Assert.isTrue(rate >= 0 && rate <= 1, "Parameter 'rate' must be between 0 and 1.");
+
+    this.threshold = (long) (rate * (1L << 32));
+  }
+
+  /**
+   * Decides whether the request with the given id is sampled.
+   *
+   * @param requestId the request id
+   * @return whether the request is sampled
+   */
+  public boolean isSampled(String requestId) {
+    // String.hashCode() is the same on every JVM, the mixing spreads similar ids apart.
+    int hash = requestId.hashCode();
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return Integer.toUnsignedLong(hash) < threshold;
+  }
+
+  /**
+   * Reads a sampling decision from a header value.
+   *
+   * @param value the header value, may be {@code null}
+   * @return the decision, or {@code null} if the value doesn't hold one
+   */
+  public static Boolean parse(String value) {
+    if (value == null) {
+      return null;
+    }
+    if (SAMPLED.equals(value) || "true".equalsIgnoreCase(value)) {
+      return Boolean.TRUE;
+    }
+    if (NOT_SAMPLED.equals(value) || "false".equalsIgnoreCase(value)) {
+      return Boolean.FALSE;
+    }
+    return null;
+  }
+
+  /**
+   * Writes a sampling decision as a header value.
+   *
+   * @param sampled the decision
+   * @return the header value
+   */
+  public static String format(boolean sampled) {
+    return sampled ? SAMPLED : NOT_SAMPLED;
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+/**
+ * A utility class for retrieving the request correlation ids from the Reactor Context in reactive
+ * web applications, where there is no request bound to the thread.
+ *
+ * @author Steven C. Saliman
+ */
+public class ReactiveRequestCorrelationUtils {
+
+  /**
+   * Retrieves the current request correlation from the Reactor Context of the subscriber.
+   *
+   * @return a Mono with the request correlation, or an empty Mono if there isn't one
+   */
+  public static Mono<RequestCorrelation> getCurrentCorrelation() {
+    return Mono.deferContextual(context -> Mono.justOrEmpty(getCorrelation(context)));
+  }
+
+  /**
+   * Retrieves the request correlation from the given Reactor Context.
+   *
+   * @param context the context to look in
+   * @return the request correlation or {@code null}
+   */
+  public static RequestCorrelation getCorrelation(ContextView context) {
+    final Object correlation = context.getOrDefault(RequestCorrelationConsts.ATTRIBUTE_NAME, null);
+    if (correlation instanceof RequestCorrelation) {
+      return (RequestCorrelation) correlation;
+    }
+    return null;
+  }
+}
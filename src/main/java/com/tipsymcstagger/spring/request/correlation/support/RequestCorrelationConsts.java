@@ -26,6 +26,12 @@ public interface RequestCorrelationConsts {
   /** The correlation request id header name. */
   String REQUEST_HEADER_NAME = "X-Request-Id";
 
-  /** The request attribute name for storing the ids, separate from the headers. */
+  /** The sampling decision header name. */
+  String SAMPLED_HEADER_NAME = "X-Sampled";
+
+  /**
+   * The request attribute name for storing the ids, separate from the headers. Reactive
+   * applications use the same name for the exchange attribute and the Reactor Context key.
+   */
   String ATTRIBUTE_NAME = "RequestCorrelation.ATTRIBUTE";
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationHolderStrategy;
+import java.util.concurrent.Callable;
+import org.springframework.util.Assert;
+
+/**
+ * Holds the {@link RequestCorrelationHolderStrategy} used to bind the correlation of the current
+ * request. The default strategy uses a {@link ThreadLocal}. The strategy is meant to be chosen
+ * once, when the application starts, before any request is handled. Spring applications get a
+ * {@link CorrelationHolderStrategyInstaller}, which does that for the life of the context.
+ *
+ * @author Steven C. Saliman
+ */
+public final class RequestCorrelationHolder {
+
+  /** The strategy in use. */
+  private static volatile RequestCorrelationHolderStrategy strategy =
+      new ThreadLocalCorrelationHolderStrategy();
+
+  /** Prevents instantiation. */
+  private RequestCorrelationHolder() {}
+
+  /**
+   * Creates the built-in strategy for the given mode.
+   *
+   * @param mode the holder mode
+   * @return the strategy
+   * @throws IllegalStateException if the mode needs a feature this JVM doesn't have
+   */
+  public static RequestCorrelationHolderStrategy createStrategy(CorrelationHolderMode mode) {
+    if (mode == CorrelationHolderMode.SCOPED_VALUE) {
+      return new ScopedValueCorrelationHolderStrategy();
+    }
+    return new ThreadLocalCorrelationHolderStrategy();
+  }
+
+  /**
+   * Retrieves the strategy in use.
+   *
+   * @return the strategy
+   */
+  public static RequestCorrelationHolderStrategy getStrategy() {
+    return strategy;
+  }
+
+  /**
+   * Sets the strategy to use.
+   *
+   * @param strategy the strategy
+   * @throws IllegalArgumentException if {@code strategy} is {@code null}
+   */
+  public static void setStrategy(RequestCorrelationHolderStrategy strategy) {
+    Assert.notNull(strategy, "Parameter 'strategy' can not be null.");
+    RequestCorrelationHolder.strategy = strategy;
+  }
+
+  /**
+   * Retrieves the correlation bound to the current thread.
+   *
+   * @return the correlation, or {@code null} if none is bound
+   */
+  public static RequestCorrelation getCorrelation() {
+    return strategy.getCorrelation();
+  }
+
+  /**
+   * Calls a task with a correlation bound to the current thread.
+   *
+   * @param correlation the correlation to bind
+   * @param task the task to call
+   * @param <T> the result type of the task
+   * @return the result of the task
+   * @throws Exception if the task throws an exception
+   */
+  public static <T> T callWith(RequestCorrelation correlation, Callable<T> task)
+      throws Exception {
+    return strategy.callWith(correlation, task);
+  }
+
+  /**
+   * Tells whether the strategy in use supports {@link #bind(RequestCorrelation)}.
+   *
+   * @return {@code true} if correlations can be bound until a binding is closed
+   * @see RequestCorrelationHolderStrategy#supportsBinding()
+   */
+  public static boolean supportsBinding() {
+    return strategy.supportsBinding();
+  }
+
+  /**
+   * Binds a correlation to the current thread until the returned binding is closed.
+   *
+   * @param correlation the correlation to bind
+   * @return the binding
+   * @throws UnsupportedOperationException if the strategy can only bind for the length of a call
+   * @see RequestCorrelationHolderStrategy#bind(RequestCorrelation)
+   */
+  public static RequestCorrelationHolderStrategy.Binding bind(RequestCorrelation correlation) {
+    return strategy.bind(correlation);
+  }
+}
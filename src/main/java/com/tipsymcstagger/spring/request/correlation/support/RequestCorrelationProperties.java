@@ -48,6 +48,70 @@ public class RequestCorrelationProperties {
   /** Header name for the request id. Defaults to "X-Request-Id" */
   private String requestHeaderName = RequestCorrelationConsts.REQUEST_HEADER_NAME;
 
+  /**
+   * How the built-in id generator creates new request ids. Defaults to "random" UUIDs. Use
+   * "time_ordered" for version 7 UUIDs that sort by creation time and can be generated without
+   * contention on busy hosts. Ignored if the application declares its own CorrelationIdGenerator.
+   */
+  private RequestIdStrategy requestIdStrategy = RequestIdStrategy.RANDOM;
+
+  /**
+   * How the built-in id generator writes new ids. Defaults to "uuid", the 36 character UUID form.
+   * Use "base64url" or "base62" for 22 character ids with the same 128 bits. Downstream services
+   * that validate incoming ids must allow the characters of the encoding. Ignored if the
+   * application declares its own CorrelationIdGenerator.
+   */
+  private IdEncoding requestIdEncoding = IdEncoding.UUID;
+
+  /**
+   * How the built-in id generator comes up with a session id when a request arrives without one.
+   * Defaults to "http_session", which creates an HTTP session if there isn't one. Use
+   * "existing_session" to only use sessions that already exist, so stateless requests don't create
+   * sessions. Ignored if the application declares its own CorrelationIdGenerator.
+   */
+  private SessionIdStrategy sessionIdStrategy = SessionIdStrategy.HTTP_SESSION;
+
+  /**
+   * Whether missing ids are generated when the request arrives, or only when something reads them.
+   * Defaults to false. When true, requests that never read their ids, such as static resources,
+   * don't pay for id generation. RequestCorrelationInterceptors read the ids as soon as the request
+   * arrives, so this only helps when there are none. Only the request id is generated lazily with
+   * the default "http_session" session id strategy, because creating an HTTP session fails once the
+   * response is committed. Use the "existing_session" strategy to generate session ids lazily too.
+   */
+  private boolean lazyIdGeneration = false;
+
+  /**
+   * How the correlation of the current request is bound to the thread that handles it. Defaults to
+   * "thread_local". Use "scoped_value" on JDK 21 or newer when requests are handled by virtual
+   * threads.
+   */
+  private CorrelationHolderMode holderMode = CorrelationHolderMode.THREAD_LOCAL;
+
+  /** Settings for the pool of pre-generated request ids. */
+  private final Pool pool = new Pool();
+
+  /** Settings for calling asynchronous interceptors on a background thread. */
+  private final AsyncInterceptors asyncInterceptors = new AsyncInterceptors();
+
+  /** Settings for checking the ids that come in with a request. */
+  private final Validation validation = new Validation();
+
+  /** Settings for sampling requests for expensive diagnostics. */
+  private final Sampling sampling = new Sampling();
+
+  /** Settings for exchanging ids with W3C trace context headers. */
+  private final TraceContext traceContext = new TraceContext();
+
+  /** Settings for the registry of requests that are being processed. */
+  private final InFlight inFlight = new InFlight();
+
+  /** Settings for the detection of slow requests. */
+  private final SlowRequests slowRequests = new SlowRequests();
+
+  /** Settings for the access log. */
+  private final AccessLog accessLog = new AccessLog();
+
   /** Creates new instance of {@link RequestCorrelationProperties} class. */
   public RequestCorrelationProperties() {}
 
@@ -108,4 +172,752 @@ public class RequestCorrelationProperties {
   public void setFilterOrderFrom(FilterOrderOffset filterOrderFrom) {
     this.filterOrderFrom = filterOrderFrom;
   }
+
+  /**
+   * Retrieves the strategy the built-in generator uses for new request ids.
+   *
+   * @return the request id strategy
+   */
+  public RequestIdStrategy getRequestIdStrategy() {
+    return requestIdStrategy;
+  }
+
+  /**
+   * Sets the strategy the built-in generator uses for new request ids.
+   *
+   * @param requestIdStrategy the request id strategy
+   */
+  public void setRequestIdStrategy(RequestIdStrategy requestIdStrategy) {
+    this.requestIdStrategy = requestIdStrategy;
+  }
+
+  /**
+   * Retrieves how the built-in generator writes new ids.
+   *
+   * @return the id encoding
+   */
+  public IdEncoding getRequestIdEncoding() {
+    return requestIdEncoding;
+  }
+
+  /**
+   * Sets how the built-in generator writes new ids.
+   *
+   * @param requestIdEncoding the id encoding
+   */
+  public void setRequestIdEncoding(IdEncoding requestIdEncoding) {
+    this.requestIdEncoding = requestIdEncoding;
+  }
+
+  /**
+   * Retrieves the strategy the built-in generator uses for new session ids.
+   *
+   * @return the session id strategy
+   */
+  public SessionIdStrategy getSessionIdStrategy() {
+    return sessionIdStrategy;
+  }
+
+  /**
+   * Sets the strategy the built-in generator uses for new session ids.
+   *
+   * @param sessionIdStrategy the session id strategy
+   */
+  public void setSessionIdStrategy(SessionIdStrategy sessionIdStrategy) {
+    this.sessionIdStrategy = sessionIdStrategy;
+  }
+
+  /**
+   * Whether missing ids are generated only when they are first read.
+   *
+   * @return true if id generation is lazy
+   */
+  public boolean isLazyIdGeneration() {
+    return lazyIdGeneration;
+  }
+
+  /**
+   * Sets whether missing ids are generated only when they are first read.
+   *
+   * @param lazyIdGeneration true to generate ids lazily
+   */
+  public void setLazyIdGeneration(boolean lazyIdGeneration) {
+    this.lazyIdGeneration = lazyIdGeneration;
+  }
+
+  /**
+   * Retrieves how the correlation of the current request is bound to its thread.
+   *
+   * @return the holder mode
+   */
+  public CorrelationHolderMode getHolderMode() {
+    return holderMode;
+  }
+
+  /**
+   * Sets how the correlation of the current request is bound to its thread.
+   *
+   * @param holderMode the holder mode
+   */
+  public void setHolderMode(CorrelationHolderMode holderMode) {
+    this.holderMode = holderMode;
+  }
+
+  /**
+   * Retrieves the settings for the pool of pre-generated request ids.
+   *
+   * @return the pool settings
+   */
+  public Pool getPool() {
+    return pool;
+  }
+
+  /**
+   * Retrieves the settings for calling asynchronous interceptors on a background thread.
+   *
+   * @return the asynchronous interceptor settings
+   */
+  public AsyncInterceptors getAsyncInterceptors() {
+    return asyncInterceptors;
+  }
+
+  /**
+   * Retrieves the settings for checking the ids that come in with a request.
+   *
+   * @return the validation settings
+   */
+  public Validation getValidation() {
+    return validation;
+  }
+
+  /**
+   * Retrieves the settings for sampling requests for expensive diagnostics.
+   *
+   * @return the sampling settings
+   */
+  public Sampling getSampling() {
+    return sampling;
+  }
+
+  /**
+   * Retrieves the settings for exchanging ids with W3C trace context headers.
+   *
+   * @return the trace context settings
+   */
+  public TraceContext getTraceContext() {
+    return traceContext;
+  }
+
+  /**
+   * Retrieves the settings for the registry of requests that are being processed.
+   *
+   * @return the in-flight registry settings
+   */
+  public InFlight getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * Retrieves the settings for the detection of slow requests.
+   *
+   * @return the slow request settings
+   */
+  public SlowRequests getSlowRequests() {
+    return slowRequests;
+  }
+
+  /**
+   * Retrieves the settings for the access log.
+   *
+   * @return the access log settings
+   */
+  public AccessLog getAccessLog() {
+    return accessLog;
+  }
+
+  /** The settings for the pool of pre-generated request ids. */
+  public static class Pool {
+    /**
+     * Whether the built-in id generator hands out request ids generated ahead of time by a
+     * background thread. Ignored with time ordered request ids. Defaults to false.
+     */
+    private boolean enabled = false;
+
+    /** The maximum number of request ids in the pool. Defaults to 1024. */
+    private int capacity = 1024;
+
+    /** The number of request ids generated at a time when the pool is refilled. Defaults to 64. */
+    private int batchSize = 64;
+
+    /**
+     * @return whether request ids come from the pool.
+     */
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    /**
+     * @param enabled whether request ids come from the pool.
+     */
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    /**
+     * @return the maximum number of request ids in the pool.
+     */
+    public int getCapacity() {
+      return capacity;
+    }
+
+    /**
+     * @param capacity the maximum number of request ids in the pool.
+     */
+    public void setCapacity(int capacity) {
+      this.capacity = capacity;
+    }
+
+    /**
+     * @return the number of request ids generated at a time.
+     */
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    /**
+     * @param batchSize the number of request ids generated at a time.
+     */
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+  }
+
+  /** The settings for calling asynchronous interceptors on a background thread. */
+  public static class AsyncInterceptors {
+    /**
+     * Whether the callbacks of interceptors that implement AsyncRequestCorrelationInterceptor are
+     * queued and called on a background thread. Defaults to false, which calls every interceptor on
+     * the request thread.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The maximum number of afterCorrelationIdSet callbacks waiting to be called. The cleanUp
+     * callbacks of requests whose first callback was queued are always queued too. Defaults to
+     * 1024.
+     */
+    private int queueCapacity = 1024;
+
+    /** The maximum number of callbacks the background thread takes at a time. Defaults to 64. */
+    private int batchSize = 64;
+
+    /**
+     * What to do with a callback when the queue is full. Defaults to "drop". Use "caller_runs" to
+     * call the interceptor on the request thread instead.
+     */
+    private AsyncOverflowPolicy overflowPolicy = AsyncOverflowPolicy.DROP;
+
+    /**
+     * @return whether asynchronous interceptors are called on a background thread.
+     */
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    /**
+     * @param enabled whether asynchronous interceptors are called on a background thread.
+     */
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    /**
+     * @return the maximum number of afterCorrelationIdSet callbacks waiting to be called.
+     */
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    /**
+     * @param queueCapacity the maximum number of afterCorrelationIdSet callbacks waiting to be
+     *     called.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @return the maximum number of callbacks taken at a time.
+     */
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    /**
+     * @param batchSize the maximum number of callbacks taken at a time.
+     */
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    /**
+     * @return what to do with a callback when the queue is full.
+     */
+    public AsyncOverflowPolicy getOverflowPolicy() {
+      return overflowPolicy;
+    }
+
+    /**
+     * @param overflowPolicy what to do with a callback when the queue is full.
+     */
+    public void setOverflowPolicy(AsyncOverflowPolicy overflowPolicy) {
+      this.overflowPolicy = overflowPolicy;
+    }
+  }
+
+  /** The settings for checking the ids that come in with a request. */
+  public static class Validation {
+    /**
+     * Whether ids that come in with a request are checked. Ids that are too long or contain other
+     * characters are replaced with generated ids. Defaults to true.
+     */
+    private boolean enabled = true;
+
+    /** The maximum length of an id. Defaults to 128. */
+    private int maxLength = 128;
+
+    /**
+     * The characters an id may contain, with a-z style ranges. A "-" at the start or end stands for
+     * itself. Defaults to letters, digits and "._:=+/-", which covers UUIDs and base64 ids.
+     */
+    private String allowedCharacters = "A-Za-z0-9._:=+/-";
+
+    /**
+     * @return whether ids that come in with a request are checked.
+     */
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    /**
+     * @param enabled whether ids that come in with a request are checked.
+     */
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    /**
+     * @return the maximum length of an id.
+     */
+    public int getMaxLength() {
+      return maxLength;
+    }
+
+    /**
+     * @param maxLength the maximum length of an id.
+     */
+    public void setMaxLength(int maxLength) {
+      this.maxLength = maxLength;
+    }
+
+    /**
+     * @return the characters an id may contain.
+     */
+    public String getAllowedCharacters() {
+      return allowedCharacters;
+    }
+
+    /**
+     * @param allowedCharacters the characters an id may contain.
+     */
+    public void setAllowedCharacters(String allowedCharacters) {
+      this.allowedCharacters = allowedCharacters;
+    }
+  }
+
+  /** The settings for sampling requests for expensive diagnostics. */
+  public static class Sampling {
+    /**
+     * Whether requests carry a sampling decision. When true, a request that arrives without a
+     * decision is sampled based on a hash of its request id, and the decision is propagated to
+     * outgoing requests. Defaults to false.
+     */
+    private boolean enabled = false;
+
+    /** Header name for the sampling decision. Defaults to "X-Sampled" */
+    private String headerName = RequestCorrelationConsts.SAMPLED_HEADER_NAME;
+
+    /** The fraction of requests to sample, from 0 to 1. Defaults to 0.01. */
+    private double rate = 0.01;
+
+    /**
+     * @return whether requests carry a sampling decision.
+     */
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    /**
+     * @param enabled whether requests carry a sampling decision.
+     */
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    /**
+     * @return the header name for the sampling decision.
+     */
+    public String getHeaderName() {
+      return headerName;
+    }
+
+    /**
+     * @param headerName the header name for the sampling decision.
+     */
+    public void setHeaderName(String headerName) {
+      this.headerName = headerName;
+    }
+
+    /**
+     * @return the fraction of requests to sample.
+     */
+    public double getRate() {
+      return rate;
+    }
+
+    /**
+     * @param rate the fraction of requests to sample.
+     */
+    public void setRate(double rate) {
+      this.rate = rate;
+    }
+  }
+
+  /** The settings for exchanging ids with W3C trace context headers. */
+  public static class TraceContext {
+    /**
+     * Whether the trace id of an incoming traceparent header is used as the request id when the
+     * request doesn't have one, and outgoing requests get a traceparent header. Defaults to false.
+     */
+    private boolean enabled = false;
+
+    /**
+     * @return whether ids are exchanged with trace context headers.
+     */
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    /**
+     * @param enabled whether ids are exchanged with trace context headers.
+     */
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+  }
+
+  /** The settings for the registry of requests that are being processed. */
+  public static class InFlight {
+    /**
+     * Whether the servlet filter records the requests it is processing, so they can be listed by
+     * the inflightrequests actuator endpoint. Defaults to false.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The maximum number of requests recorded at the same time. Requests beyond that are processed
+     * as usual, but not recorded. Defaults to 1024.
+     */
+    private int capacity = 1024;
+
+    /**
+     * Whether the inflightrequests actuator endpoint lists the session ids of the requests. With
+     * the built-in id generators, the session id is usually the id of the live HTTP session, so
+     * anyone who can read the endpoint could take over the sessions. Defaults to false.
+     */
+    private boolean includeSessionId = false;
+
+    /**
+     * @return whether requests in flight are recorded.
+     */
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    /**
+     * @param enabled whether requests in flight are recorded.
+     */
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    /**
+     * @return the maximum number of requests recorded at the same time.
+     */
+    public int getCapacity() {
+      return capacity;
+    }
+
+    /**
+     * @param capacity the maximum number of requests recorded at the same time.
+     */
+    public void setCapacity(int capacity) {
+      this.capacity = capacity;
+    }
+
+    /**
+     * @return whether the actuator endpoint lists session ids.
+     */
+    public boolean isIncludeSessionId() {
+      return includeSessionId;
+    }
+
+    /**
+     * @param includeSessionId whether the actuator endpoint lists session ids.
+     */
+    public void setIncludeSessionId(boolean includeSessionId) {
+      this.includeSessionId = includeSessionId;
+    }
+  }
+
+  /** The settings for the detection of slow requests. */
+  public static class SlowRequests {
+    /**
+     * Whether a background thread samples the stacks of requests that run longer than the
+     * threshold. This also records the requests the servlet filter is processing. Defaults to
+     * false.
+     */
+    private boolean enabled = false;
+
+    /** How long a request runs before it is sampled, in milliseconds. Defaults to 5000. */
+    private long thresholdMillis = 5000;
+
+    /** How often the thread looks for slow requests, in milliseconds. Defaults to 1000. */
+    private long intervalMillis = 1000;
+
+    /** The maximum number of samples taken of one request. Defaults to 3. */
+    private int maxSamplesPerRequest = 3;
+
+    /** The maximum number of samples taken each time the thread looks. Defaults to 8. */
+    private int maxSamplesPerInterval = 8;
+
+    /** The maximum number of stack frames kept in a sample. Defaults to 64. */
+    private int maxStackDepth = 64;
+
+    /**
+     * @return whether slow requests are sampled.
+     */
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    /**
+     * @param enabled whether slow requests are sampled.
+     */
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    /**
+     * @return how long a request runs before it is sampled, in milliseconds.
+     */
+    public long getThresholdMillis() {
+      return thresholdMillis;
+    }
+
+    /**
+     * @param thresholdMillis how long a request runs before it is sampled, in milliseconds.
+     */
+    public void setThresholdMillis(long thresholdMillis) {
+      this.thresholdMillis = thresholdMillis;
+    }
+
+    /**
+     * @return how often slow requests are looked for, in milliseconds.
+     */
+    public long getIntervalMillis() {
+      return intervalMillis;
+    }
+
+    /**
+     * @param intervalMillis how often slow requests are looked for, in milliseconds.
+     */
+    public void setIntervalMillis(long intervalMillis) {
+      this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * @return the maximum number of samples taken of one request.
+     */
+    public int getMaxSamplesPerRequest() {
+      return maxSamplesPerRequest;
+    }
+
+    /**
+     * @param maxSamplesPerRequest the maximum number of samples taken of one request.
+     */
+    public void setMaxSamplesPerRequest(int maxSamplesPerRequest) {
+      this.maxSamplesPerRequest = maxSamplesPerRequest;
+    }
+
+    /**
+     * @return the maximum number of samples taken each time slow requests are looked for.
+     */
+    public int getMaxSamplesPerInterval() {
+      return maxSamplesPerInterval;
+    }
+
+    /**
+     * @param maxSamplesPerInterval the maximum number of samples taken each time slow requests are
+     *     looked for.
+     */
+    public void setMaxSamplesPerInterval(int maxSamplesPerInterval) {
+      this.maxSamplesPerInterval = maxSamplesPerInterval;
+    }
+
+    /**
+     * @return the maximum number of stack frames kept in a sample.
+     */
+    public int getMaxStackDepth() {
+      return maxStackDepth;
+    }
+
+    /**
+     * @param maxStackDepth the maximum number of stack frames kept in a sample.
+     */
+    public void setMaxStackDepth(int maxStackDepth) {
+      this.maxStackDepth = maxStackDepth;
+    }
+  }
+
+  /** The settings for the access log. */
+  public static class AccessLog {
+    /**
+     * Whether the servlet filter writes an access log line with the correlation ids of every
+     * request, from a background thread. Defaults to false.
+     */
+    private boolean enabled = false;
+
+    /** The access log file. Defaults to "access.log" in the working directory. */
+    private String file = "access.log";
+
+    /**
+     * The maximum number of lines waiting to be written, rounded up to a power of two. Defaults to
+     * 8192.
+     */
+    private int bufferCapacity = 8192;
+
+    /** The maximum number of lines written at a time. Defaults to 256. */
+    private int batchSize = 256;
+
+    /** The size at which the file is rolled, in bytes. Defaults to 10 MB. */
+    private long maxFileSize = 10L * 1024 * 1024;
+
+    /** The number of rolled files to keep. Defaults to 5. */
+    private int maxHistory = 5;
+
+    /**
+     * What to do with a line when the buffer is full. Defaults to "drop". Use "wait" to make the
+     * request wait until there is room instead.
+     */
+    private AccessLogOverflowPolicy overflowPolicy = AccessLogOverflowPolicy.DROP;
+
+    /**
+     * @return whether the access log is written.
+     */
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    /**
+     * @param enabled whether the access log is written.
+     */
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    /**
+     * @return the access log file.
+     */
+    public String getFile() {
+      return file;
+    }
+
+    /**
+     * @param file the access log file.
+     */
+    public void setFile(String file) {
+      this.file = file;
+    }
+
+    /**
+     * @return the maximum number of lines waiting to be written.
+     */
+    public int getBufferCapacity() {
+      return bufferCapacity;
+    }
+
+    /**
+     * @param bufferCapacity the maximum number of lines waiting to be written.
+     */
+    public void setBufferCapacity(int bufferCapacity) {
+      this.bufferCapacity = bufferCapacity;
+    }
+
+    /**
+     * @return the maximum number of lines written at a time.
+     */
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    /**
+     * @param batchSize the maximum number of lines written at a time.
+     */
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the size at which the file is rolled, in bytes.
+     */
+    public long getMaxFileSize() {
+      return maxFileSize;
+    }
+
+    /**
+     * @param maxFileSize the size at which the file is rolled, in bytes.
+     */
+    public void setMaxFileSize(long maxFileSize) {
+      this.maxFileSize = maxFileSize;
+    }
+
+    /**
+     * @return the number of rolled files to keep.
+     */
+    public int getMaxHistory() {
+      return maxHistory;
+    }
+
+    /**
+     * @param maxHistory the number of rolled files to keep.
+     */
+    public void setMaxHistory(int maxHistory) {
+      this.maxHistory = maxHistory;
+    }
+
+    /**
+     * @return what to do with a line when the buffer is full.
+     */
+    public AccessLogOverflowPolicy getOverflowPolicy() {
+      return overflowPolicy;
+    }
+
+    /**
+     * @param overflowPolicy what to do with a line when the buffer is full.
+     */
+    public void setOverflowPolicy(AccessLogOverflowPolicy overflowPolicy) {
+      this.overflowPolicy = overflowPolicy;
+    }
+  }
 }
@@ -26,39 +26,58 @@ import org.springframework.web.context.request.RequestContextHolder;
 public class RequestCorrelationUtils {
 
   /**
-   * Retrieves the current correlation session id from the request attributes if present.
+   * Retrieves the current correlation session id if present.
    *
    * @return the correlation id or {@code null}
    */
   public static String getCurrentSessionId() {
-    final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
-    if (requestAttributes != null) {
-      Object correlationId =
-          requestAttributes.getAttribute(
-              RequestCorrelationConsts.ATTRIBUTE_NAME, RequestAttributes.SCOPE_REQUEST);
-
-      if (correlationId instanceof RequestCorrelation) {
-        return ((RequestCorrelation) correlationId).getSessionId();
-      }
-    }
-    return null;
+    final RequestCorrelation correlation = getCurrentCorrelation();
+    return correlation != null ? correlation.getSessionId() : null;
   }
 
   /**
-   * Retrieves the current correlation request id from the request attributes if present.
+   * Retrieves the current correlation request id if present.
    *
    * @return the correlation id or {@code null}
    */
   public static String getCurrentRequestId() {
+    final RequestCorrelation correlation = getCurrentCorrelation();
+    return correlation != null ? correlation.getRequestId() : null;
+  }
+
+  /**
+   * Retrieves whether the current request is sampled for expensive diagnostics.
+   *
+   * @return whether the current request is sampled, {@code false} if there is no current request
+   */
+  public static boolean isCurrentRequestSampled() {
+    final RequestCorrelation correlation = getCurrentCorrelation();
+    return correlation != null && correlation.isSampled();
+  }
 
+  /**
+   * Retrieves the current correlation with a single lookup. Callers that need both ids should use
+   * this instead of calling {@link #getCurrentSessionId()} and {@link #getCurrentRequestId()}.
+   *
+   * <p>The correlation bound by the {@link RequestCorrelationHolder} is used when there is one. It
+   * is bound once per request, so this is a single thread-local read on request threads. Otherwise,
+   * the request attributes are checked, which covers threads the request attributes were handed
+   * to, such as async dispatches.
+   *
+   * @return the correlation or {@code null}
+   */
+  public static RequestCorrelation getCurrentCorrelation() {
+    final RequestCorrelation correlation = RequestCorrelationHolder.getCorrelation();
+    if (correlation != null) {
+      return correlation;
+    }
     final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
     if (requestAttributes != null) {
-      Object correlationId =
+      final Object attribute =
           requestAttributes.getAttribute(
               RequestCorrelationConsts.ATTRIBUTE_NAME, RequestAttributes.SCOPE_REQUEST);
-
-      if (correlationId instanceof RequestCorrelation) {
-        return ((RequestCorrelation) correlationId).getRequestId();
+      if (attribute instanceof RequestCorrelation) {
+        return (RequestCorrelation) attribute;
       }
     }
     return null;
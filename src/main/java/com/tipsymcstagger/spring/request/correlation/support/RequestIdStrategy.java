@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+/**
+ * This enum defines the ways the built-in id generator can create new request ids. It is ignored
+ * when an application declares its own id generator bean.
+ *
+ * @author Steven C. Saliman
+ */
+public enum RequestIdStrategy {
+  /** Random version 4 UUIDs. This is the default. */
+  RANDOM,
+
+  /** Time ordered version 7 UUIDs, generated without contention between threads. */
+  TIME_ORDERED
+}
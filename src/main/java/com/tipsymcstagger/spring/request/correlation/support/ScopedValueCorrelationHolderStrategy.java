@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationHolderStrategy;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.Callable;
+
+/**
+ * A {@link RequestCorrelationHolderStrategy} that binds the correlation to a {@code ScopedValue}.
+ * Scoped values are immutable and don't need to be copied or cleaned up per thread, which makes
+ * them a better fit than thread locals for applications that handle requests on virtual threads.
+ *
+ * <p>The starter is built for Java 17, so the {@code ScopedValue} API is looked up once, when the
+ * class is loaded, and called through exactly typed method handles. This needs JDK 21 or newer,
+ * started with {@code --enable-preview} on JDK versions where scoped values are still a preview
+ * feature.
+ *
+ * <p>Scoped values can only be bound for the length of a call, so this strategy doesn't support
+ * {@link #bind(RequestCorrelation)}.
+ *
+ * @author Steven C. Saliman
+ */
+public class ScopedValueCorrelationHolderStrategy implements RequestCorrelationHolderStrategy {
+
+  /**
+   * The {@code ScopedValue} the correlation is bound to, or {@code null} if scoped values are not
+   * available. Like the thread local of {@link ThreadLocalCorrelationHolderStrategy}, it is shared
+   * by all instances.
+   */
+  private static final Object SCOPED_VALUE;
+
+  /** {@code ScopedValue.isBound()}, typed {@code (Object)boolean}. */
+  private static final MethodHandle IS_BOUND;
+
+  /** {@code ScopedValue.get()}, typed {@code (Object)Object}. */
+  private static final MethodHandle GET;
+
+  /** {@code ScopedValue.where(ScopedValue, Object)}, typed {@code (Object, Object)Object}. */
+  private static final MethodHandle WHERE;
+
+  /** {@code ScopedValue.Carrier.run(Runnable)}, typed {@code (Object, Runnable)void}. */
+  private static final MethodHandle RUN;
+
+  /** Why scoped values are not available, or {@code null} if they are. */
+  private static final Throwable UNAVAILABLE;
+
+  static {
+    Object scopedValue = null;
+    MethodHandle isBound = null;
+    MethodHandle get = null;
+    MethodHandle where = null;
+    MethodHandle run = null;
+    Throwable unavailable = null;
+    try {
+      final Class<?> scopedValueClass = Class.forName("java.lang.ScopedValue");
+      final Class<?> carrierClass = Class.forName("java.lang.ScopedValue$Carrier");
+      final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      scopedValue =
+          lookup
+              .findStatic(scopedValueClass, "newInstance", MethodType.methodType(scopedValueClass))
+              .invoke();
+      isBound =
+          lookup
+              .findVirtual(scopedValueClass, "isBound", MethodType.methodType(boolean.class))
+              .asType(MethodType.methodType(boolean.class, Object.class));
+      get =
+          lookup
+              .findVirtual(scopedValueClass, "get", MethodType.methodType(Object.class))
+              .asType(MethodType.methodType(Object.class, Object.class));
+      where =
+          lookup
+              .findStatic(
+                  scopedValueClass,
+                  "where",
+                  MethodType.methodType(carrierClass, scopedValueClass, Object.class))
+              .asType(MethodType.methodType(Object.class, Object.class, Object.class));
+      run =
+          lookup
+              .findVirtual(carrierClass, "run", MethodType.methodType(void.class, Runnable.class))
+              .asType(MethodType.methodType(void.class, Object.class, Runnable.class));
+    } catch (Throwable e) {
+      scopedValue = null;
+      unavailable = e;
+    }
+    SCOPED_VALUE = scopedValue;
+    IS_BOUND = isBound;
+    GET = get;
+    WHERE = where;
+    RUN = run;
+    UNAVAILABLE = unavailable;
+  }
+
+  /**
+   * Creates new instance of {@link ScopedValueCorrelationHolderStrategy} class.
+   *
+   * @throws IllegalStateException if scoped values are not available in this JVM
+   */
+  public ScopedValueCorrelationHolderStrategy() {
+    if (UNAVAILABLE != null) {
+      throw new IllegalStateException(
+          "Scoped values are not available. They need JDK 21 or newer, and --enable-preview on"
+              + " JDK versions where they are a preview feature.",
+          UNAVAILABLE);
+    }
+  }
+
+  /**
+   * Retrieves the correlation bound to the current thread.
+   *
+   * @return the correlation, or {@code null} if none is bound
+   */
+  @Override
+  public RequestCorrelation getCorrelation() {
+    try {
+      if ((boolean) IS_BOUND.invokeExact(SCOPED_VALUE)) {
+        return (RequestCorrelation) (Object) GET.invokeExact(SCOPED_VALUE);
+      }
+      return null;
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("Unable to read the request correlation", e);
+    }
+  }
+
+  /**
+   * Calls a task with a correlation bound to the current thread. The binding ends when the task
+   * returns.
+   *
+   * @param correlation the correlation to bind
+   * @param task the task to call
+   * @return the result of the task
+   * @throws Exception if the task throws an exception
+   */
+  @Override
+  public <T> T callWith(RequestCorrelation correlation, Callable<T> task) throws Exception {
+    final CallResult<T> result = new CallResult<>();
+    final Runnable runnable =
+        () -> {
+          try {
+            result.value = task.call();
+          } catch (Exception e) {
+            result.failure = e;
+          }
+        };
+    try {
+      final Object carrier = (Object) WHERE.invokeExact(SCOPED_VALUE, (Object) correlation);
+      RUN.invokeExact(carrier, runnable);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("Unable to bind the request correlation", e);
+    }
+    if (result.failure != null) {
+      throw result.failure;
+    }
+    return result.value;
+  }
+
+  /**
+   * Always fails, because a scoped value can only be bound for the length of a call.
+   *
+   * @param correlation the correlation to bind
+   * @return never returns normally
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public Binding bind(RequestCorrelation correlation) {
+    throw new UnsupportedOperationException(
+        "Scoped values can only be bound for the length of a call, use callWith instead.");
+  }
+
+  /**
+   * Carries the outcome of a task out of the {@link Runnable} the scoped value runs.
+   *
+   * @param <T> the result type of the task
+   */
+  private static final class CallResult<T> {
+    private T value;
+    private Exception failure;
+  }
+}
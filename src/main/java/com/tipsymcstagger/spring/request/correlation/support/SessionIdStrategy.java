@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+/**
+ * This enum defines the ways the built-in id generators can come up with a session id when a
+ * request arrives without one. It is ignored when an application declares its own id generator
+ * bean.
+ *
+ * @author Steven C. Saliman
+ */
+public enum SessionIdStrategy {
+  /**
+   * Use the id of the HTTP session, creating a session if the request doesn't have one yet. This is
+   * the default.
+   */
+  HTTP_SESSION,
+
+  /**
+   * Use the id of the HTTP session if the request already has one. Otherwise, generate a new id
+   * the same way request ids are generated. The session id the client asked for is never used,
+   * because it is a session token that would end up in logs and in the headers of downstream
+   * calls. This never creates an HTTP session, which makes it the better choice for stateless
+   * services.
+   */
+  EXISTING_SESSION
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationHolderStrategy;
+import java.util.concurrent.Callable;
+
+/**
+ * A {@link RequestCorrelationHolderStrategy} that binds the correlation to a {@link ThreadLocal}.
+ * Unlike the request attributes, the thread local is not inherited by child threads, so binding a
+ * correlation doesn't cost anything when a request thread starts other threads.
+ *
+ * @author Steven C. Saliman
+ */
+public class ThreadLocalCorrelationHolderStrategy implements RequestCorrelationHolderStrategy {
+
+  /** The correlation bound to each thread. */
+  private static final ThreadLocal<RequestCorrelation> CORRELATION = new ThreadLocal<>();
+
+  /**
+   * Retrieves the correlation bound to the current thread.
+   *
+   * @return the correlation, or {@code null} if none is bound
+   */
+  @Override
+  public RequestCorrelation getCorrelation() {
+    return CORRELATION.get();
+  }
+
+  /**
+   * Calls a task with a correlation bound to the current thread, restoring the previous binding
+   * when the task returns.
+   *
+   * @param correlation the correlation to bind
+   * @param task the task to call
+   * @return the result of the task
+   * @throws Exception if the task throws an exception
+   */
+  @Override
+  public <T> T callWith(RequestCorrelation correlation, Callable<T> task) throws Exception {
+    final RequestCorrelation previous = CORRELATION.get();
+    CORRELATION.set(correlation);
+    try {
+      return task.call();
+    } finally {
+      restore(previous);
+    }
+  }
+
+  /**
+   * Tells whether this strategy supports {@link #bind(RequestCorrelation)}.
+   *
+   * @return always {@code true}
+   */
+  @Override
+  public boolean supportsBinding() {
+    return true;
+  }
+
+  /**
+   * Binds a correlation to the current thread until the returned binding is closed.
+   *
+   * @param correlation the correlation to bind
+   * @return the binding, which restores the previous binding when closed
+   */
+  @Override
+  public Binding bind(RequestCorrelation correlation) {
+    final RequestCorrelation previous = CORRELATION.get();
+    CORRELATION.set(correlation);
+    return () -> restore(previous);
+  }
+
+  /**
+   * Restores the binding that was in place before.
+   *
+   * @param previous the correlation bound before, or {@code null}
+   */
+  private static void restore(RequestCorrelation previous) {
+    if (previous == null) {
+      CORRELATION.remove();
+    } else {
+      CORRELATION.set(previous);
+    }
+  }
+}
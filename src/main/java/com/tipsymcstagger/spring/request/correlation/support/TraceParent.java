@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Reads and writes W3C trace context {@code traceparent} headers, so request ids can be exchanged
+ * with load balancers and services that only speak trace context. A header looks like {@code
+ * 00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01}: the version, the trace id, the id of
+ * the calling span, and the trace flags, all in lowercase hex.
+ *
+ * @author Steven C. Saliman
+ */
+public final class TraceParent {
+
+  /** The trace context header name. */
+  public static final String HEADER_NAME = "traceparent";
+
+  /** The length of the version 00 header. */
+  private static final int LENGTH = 55;
+
+  /** The offset of the trace id in the header. */
+  private static final int TRACE_ID_OFFSET = 3;
+
+  /** The length of the trace id. */
+  private static final int TRACE_ID_LENGTH = 32;
+
+  /** The offset of the parent id in the header. */
+  private static final int PARENT_ID_OFFSET = 36;
+
+  /** The length of the parent id. */
+  private static final int PARENT_ID_LENGTH = 16;
+
+  /** The offset of the trace flags in the header. */
+  private static final int FLAGS_OFFSET = 53;
+
+  /** The lowercase hex digits. */
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /** Prevents instantiation. */
+  private TraceParent() {}
+
+  /**
+   * Reads the trace id from a {@code traceparent} header, checking the whole header in one pass.
+   * Headers of later versions are accepted as long as they start like a version 00 header.
+   *
+   * @param header the header value, may be {@code null}
+   * @return the 32 character trace id, or {@code null} if the header is missing or invalid
+   */
+  public static String parseTraceId(String header) {
+    if (header == null || header.length() < LENGTH) {
+      return null;
+    }
+    // version 00 headers have a fixed length, later versions may add fields after a dash
+    final boolean version00 = header.charAt(0) == '0' && header.charAt(1) == '0';
+    if (version00
+        ? header.length() != LENGTH
+        : header.length() > LENGTH && header.charAt(LENGTH) != '-') {
+      return null;
+    }
+    // version ff is forbidden
+    if (header.charAt(0) == 'f' && header.charAt(1) == 'f') {
+      return null;
+    }
+
+    boolean traceIdZero = true;
+    boolean parentIdZero = true;
+    for (int i = 0; i < LENGTH; i++) {
+      final char c = header.charAt(i);
+      if (i == TRACE_ID_OFFSET - 1 || i == PARENT_ID_OFFSET - 1 || i == FLAGS_OFFSET - 1) {
+        if (c != '-') {
+          return null;
+        }
+      } else if (!isHex(c)) {
+        return null;
+      } else if (c != '0') {
+        if (i >= TRACE_ID_OFFSET && i < TRACE_ID_OFFSET + TRACE_ID_LENGTH) {
+          traceIdZero = false;
+        } else if (i >= PARENT_ID_OFFSET && i < PARENT_ID_OFFSET + PARENT_ID_LENGTH) {
+          parentIdZero = false;
+        }
+      }
+    }
+    if (traceIdZero || parentIdZero) {
+      return null;
+    }
+    return header.substring(TRACE_ID_OFFSET, TRACE_ID_OFFSET + TRACE_ID_LENGTH);
+  }
+
+  /**
+   * Writes a version 00 {@code traceparent} header for an outgoing request, with a new random
+   * parent id. The trace id is the request id when it already is a trace id or a UUID, and a hash
+   * of the request id otherwise, so every call made for a request has the same trace id.
+   *
+   * @param requestId the request id
+   * @param sampled whether the request is sampled
+   * @return the header value
+   */
+  public static String format(String requestId, boolean sampled) {
+    final char[] header = new char[LENGTH];
+    header[0] = '0';
+    header[1] = '0';
+    header[TRACE_ID_OFFSET - 1] = '-';
+    header[PARENT_ID_OFFSET - 1] = '-';
+    header[FLAGS_OFFSET - 1] = '-';
+
+    if (!copyTraceId(requestId, header)) {
+      writeHashedTraceId(requestId, header);
+    }
+
+    long parentId;
+    do {
+      parentId = ThreadLocalRandom.current().nextLong();
+    } while (parentId == 0);
+    writeHex(parentId, header, PARENT_ID_OFFSET);
+
+    header[FLAGS_OFFSET] = '0';
+    header[FLAGS_OFFSET + 1] = sampled ? '1' : '0';
+    return new String(header);
+  }
+
+  /**
+   * Checks whether a {@code traceparent} header already carries the trace id and the sampling
+   * decision that {@link #format} writes for a request. The parent id isn't compared, since it is
+   * new for every header.
+   *
+   * @param header the header value, may be {@code null}
+   * @param requestId the request id
+   * @param sampled whether the request is sampled
+   * @return whether the header is valid and has the request's trace id and sampled flag
+   */
+  public static boolean matches(String header, String requestId, boolean sampled) {
+    if (parseTraceId(header) == null) {
+      return false;
+    }
+    // the sampled flag is the lowest bit of the trace flags
+    if (((Character.digit(header.charAt(FLAGS_OFFSET + 1), 16) & 1) == 1) != sampled) {
+      return false;
+    }
+
+    final char[] expected = new char[LENGTH];
+    if (!copyTraceId(requestId, expected)) {
+      writeHashedTraceId(requestId, expected);
+    }
+    for (int i = TRACE_ID_OFFSET; i < TRACE_ID_OFFSET + TRACE_ID_LENGTH; i++) {
+      if (header.charAt(i) != expected[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Copies the request id into the header as the trace id, if it is 32 hex digits, with or without
+   * the dashes of a UUID.
+   *
+   * @param requestId the request id
+   * @param header the header being written
+   * @return whether the request id could be used as is
+   */
+  private static boolean copyTraceId(String requestId, char[] header) {
+    final int length = requestId.length();
+    if (length != TRACE_ID_LENGTH && length != TRACE_ID_LENGTH + 4) {
+      return false;
+    }
+    int position = TRACE_ID_OFFSET;
+    boolean zero = true;
+    for (int i = 0; i < length; i++) {
+      final char c = Character.toLowerCase(requestId.charAt(i));
+      if (c == '-' && length != TRACE_ID_LENGTH) {
+        continue;
+      }
+      if (!isHex(c) || position == TRACE_ID_OFFSET + TRACE_ID_LENGTH) {
+        return false;
+      }
+      zero &= c == '0';
+      header[position++] = c;
+    }
+    return position == TRACE_ID_OFFSET + TRACE_ID_LENGTH && !zero;
+  }
+
+  /**
+   * Writes a 128 bit hash of the request id into the header as the trace id.
+   *
+   * @param requestId the request id
+   * @param header the header being written
+   */
+  private static void writeHashedTraceId(String requestId, char[] header) {
+    // two rounds of 64 bit FNV-1a with different offsets, mixed so similar ids spread apart
+    long high = 0xcbf29ce484222325L;
+    long low = 0x84222325cbf29ce4L;
+    for (int i = 0; i < requestId.length(); i++) {
+      final char c = requestId.charAt(i);
+      high = (high ^ c) * 0x100000001b3L;
+      low = (low ^ c) * 0x100000001b3L;
+    }
+    high = mix(high);
+    low = mix(low) | 1;
+    writeHex(high, header, TRACE_ID_OFFSET);
+    writeHex(low, header, TRACE_ID_OFFSET + 16);
+  }
+
+  /**
+   * Spreads the bits of a hash, with the finalizer of MurmurHash3.
+   *
+   * @param hash the hash
+   * @return the mixed hash
+   */
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  /**
+   * Writes a long as 16 lowercase hex digits.
+   *
+   * @param value the value
+   * @param header the header being written
+   * @param offset where to write the digits
+   */
+  private static void writeHex(long value, char[] header, int offset) {
+    for (int i = 15; i >= 0; i--) {
+      header[offset + i] = HEX_DIGITS[(int) (value & 0xF)];
+      value >>>= 4;
+    }
+  }
+
+  /**
+   * Checks whether a character is a lowercase hex digit.
+   *
+   * @param c the character
+   * @return whether it is a lowercase hex digit
+   */
+  private static boolean isHex(char c) {
+    return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+  }
+}
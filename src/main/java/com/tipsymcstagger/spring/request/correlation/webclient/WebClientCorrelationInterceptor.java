@@ -13,17 +13,25 @@
  */
 package com.tipsymcstagger.spring.request.correlation.webclient;
 
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.CorrelationSampler;
+import com.tipsymcstagger.spring.request.correlation.support.ReactiveRequestCorrelationUtils;
 import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
 import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationUtils;
+import com.tipsymcstagger.spring.request.correlation.support.TraceParent;
+import java.util.List;
 import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.util.Assert;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 /**
- * Rest template http interceptor, that propagates the currents thread bound request identifier to
- * the outgoing request, through 'X-Request-Id' header.
+ * WebClient customizer that propagates the current request identifiers to the outgoing request,
+ * through the 'X-Session-Id' and 'X-Request-Id' headers. The identifiers come from the Reactor
+ * Context in reactive applications, and from the current thread in servlet applications.
  *
  * @author Jakub Narloch
  */
@@ -32,6 +40,9 @@ public class WebClientCorrelationInterceptor implements WebClientCustomizer {
   /** The correlation properties. */
   private final RequestCorrelationProperties properties;
 
+  /** The filter added to every builder, shared because it doesn't hold any per-request state. */
+  private final ExchangeFilterFunction correlationFilter;
+
   /**
    * Creates new instance of {@link WebClientCorrelationInterceptor}.
    *
@@ -42,6 +53,7 @@ public class WebClientCorrelationInterceptor implements WebClientCustomizer {
     Assert.notNull(properties, "Parameter 'properties' can not be null");
 
     this.properties = properties;
+    this.correlationFilter = addCorrelationHeaders();
   }
 
   /**
@@ -51,7 +63,7 @@ public class WebClientCorrelationInterceptor implements WebClientCustomizer {
    */
   @Override
   public void customize(WebClient.Builder webClientBuilder) {
-    webClientBuilder.filter(addCorrelationHeaders());
+    webClientBuilder.filter(correlationFilter);
   }
 
   /**
@@ -59,24 +71,114 @@ public class WebClientCorrelationInterceptor implements WebClientCustomizer {
    * be applied to all WebClients created from a Spring managed WebClient.Builder. The filter will
    * add our request correlation ids to the requests.
    *
+   * <p>The ids come from the Reactor Context of the subscriber when a reactive application's
+   * WebFilter put them there, and from the current thread's request otherwise. The request is only
+   * copied when there is a header to add or change, so calls made outside a correlated request,
+   * and retries of a correlated one, go through untouched.
+   *
    * @return an {@link ExchangeFilterFunction} that can add correlation ids to request headers.
    */
   private ExchangeFilterFunction addCorrelationHeaders() {
-    return (clientRequest, next) -> {
-      ClientRequest.Builder newRequest = ClientRequest.from(clientRequest);
-      // sets the correlation session id
-      final String sessionId = RequestCorrelationUtils.getCurrentSessionId();
-      if (sessionId != null) {
-        newRequest.header(properties.getSessionHeaderName(), sessionId);
-      }
-
-      // sets the correlation request id
-      final String requestId = RequestCorrelationUtils.getCurrentRequestId();
-      if (requestId != null) {
-        newRequest.header(properties.getRequestHeaderName(), requestId);
-      }
-
-      return next.exchange(newRequest.build());
-    };
+    return (clientRequest, next) ->
+        Mono.deferContextual(
+            context -> {
+              RequestCorrelation correlation =
+                  ReactiveRequestCorrelationUtils.getCorrelation(context);
+              if (correlation == null) {
+                correlation = RequestCorrelationUtils.getCurrentCorrelation();
+              }
+              final ClientRequest correlatedRequest =
+                  correlation != null ? correlate(clientRequest, correlation) : clientRequest;
+              return next.exchange(correlatedRequest);
+            });
+  }
+
+  /**
+   * Copies the request with the correlation headers set.
+   *
+   * @param clientRequest the outgoing request
+   * @param correlation the correlation ids
+   * @return the request with the correlation headers, or the same request if there is nothing to
+   *     add or it already has the same headers, as it does when it is retried. Headers the request
+   *     already had are replaced, so retries don't send them twice.
+   */
+  private ClientRequest correlate(ClientRequest clientRequest, RequestCorrelation correlation) {
+    final String sessionId = correlation.getSessionId();
+    final String requestId = correlation.getRequestId();
+    final String sampled =
+        properties.getSampling().isEnabled()
+            ? CorrelationSampler.format(correlation.isSampled())
+            : null;
+    final boolean traceContext = requestId != null && properties.getTraceContext().isEnabled();
+
+    final HttpHeaders current = clientRequest.headers();
+    if (hasHeader(current, properties.getSessionHeaderName(), sessionId)
+        && hasHeader(current, properties.getRequestHeaderName(), requestId)
+        && hasHeader(current, properties.getSampling().getHeaderName(), sampled)
+        && (!traceContext || hasTraceParent(current, requestId, correlation.isSampled()))) {
+      return clientRequest;
+    }
+
+    // a new header is only written when the request is copied, as it has a new parent id
+    final String traceParent =
+        traceContext ? TraceParent.format(requestId, correlation.isSampled()) : null;
+
+    return ClientRequest.from(clientRequest)
+        .headers(
+            headers -> {
+              // sets the correlation session id
+              if (sessionId != null) {
+                headers.set(properties.getSessionHeaderName(), sessionId);
+              }
+
+              // sets the correlation request id
+              if (requestId != null) {
+                headers.set(properties.getRequestHeaderName(), requestId);
+              }
+
+              // sets the sampling decision
+              if (sampled != null) {
+                headers.set(properties.getSampling().getHeaderName(), sampled);
+              }
+
+              // sets the trace context
+              if (traceParent != null) {
+                headers.set(TraceParent.HEADER_NAME, traceParent);
+              }
+            })
+        .build();
+  }
+
+  /**
+   * Tells whether a header doesn't need to be set, because there is no value for it or the request
+   * already has exactly that value.
+   *
+   * @param headers the headers of the outgoing request
+   * @param name the name of the header
+   * @param value the value to set, or {@code null} if the header isn't set
+   * @return {@code true} if the header doesn't need to be set
+   */
+  private static boolean hasHeader(HttpHeaders headers, String name, String value) {
+    if (value == null) {
+      return true;
+    }
+    final List<String> values = headers.get(name);
+    return values != null && values.size() == 1 && value.equals(values.get(0));
+  }
+
+  /**
+   * Tells whether the trace context header doesn't need to be set, because the request already has
+   * a single valid one for the request id. Its parent id differs on every call, so it is ignored.
+   *
+   * @param headers the headers of the outgoing request
+   * @param requestId the request id
+   * @param sampled whether the request is sampled
+   * @return {@code true} if the header doesn't need to be set
+   */
+  private static boolean hasTraceParent(HttpHeaders headers, String requestId, boolean sampled) {
+    final List<String> values = headers.get(TraceParent.HEADER_NAME);
+    return values != null
+        && values.size() == 1
+        && TraceParent.matches(values.get(0), requestId, sampled);
   }
 }
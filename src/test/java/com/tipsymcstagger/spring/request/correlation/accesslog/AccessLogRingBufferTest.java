@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.accesslog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link AccessLogRingBuffer} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class AccessLogRingBufferTest {
+
+  @Test
+  public void shouldRoundCapacityUpToPowerOfTwo() {
+    assertThat(new AccessLogRingBuffer(1).capacity()).isEqualTo(1);
+    assertThat(new AccessLogRingBuffer(5).capacity()).isEqualTo(8);
+    assertThat(new AccessLogRingBuffer(8).capacity()).isEqualTo(8);
+  }
+
+  @Test
+  public void shouldTakeRecordsInOrderUntilEmpty() {
+
+    // given
+    final AccessLogRingBuffer buffer = new AccessLogRingBuffer(4);
+
+    // when
+    for (int i = 0; i < 4; i++) {
+      assertThat(buffer.offer(record("r" + i))).isTrue();
+    }
+
+    // then
+    assertThat(buffer.offer(record("r4"))).isFalse();
+    for (int i = 0; i < 4; i++) {
+      assertThat(buffer.poll().requestId).isEqualTo("r" + i);
+    }
+    assertThat(buffer.poll()).isNull();
+    assertThat(buffer.isEmpty()).isTrue();
+    assertThat(buffer.offer(record("r5"))).isTrue();
+  }
+
+  @Test
+  public void shouldNotLoseRecordsOfConcurrentProducers() throws InterruptedException {
+
+    // given
+    final AccessLogRingBuffer buffer = new AccessLogRingBuffer(64);
+    final int producers = 4;
+    final int perProducer = 10_000;
+    final AtomicInteger offered = new AtomicInteger();
+    final List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      final int producer = p;
+      threads.add(
+          new Thread(
+              () -> {
+                for (int i = 0; i < perProducer; i++) {
+                  while (!buffer.offer(record(producer + "-" + i))) {
+                    Thread.onSpinWait();
+                  }
+                  offered.incrementAndGet();
+                }
+              }));
+    }
+
+    // when
+    threads.forEach(Thread::start);
+    final Set<String> taken = new HashSet<>();
+    while (taken.size() < producers * perProducer) {
+      final AccessLogRecord record = buffer.poll();
+      if (record != null) {
+        taken.add(record.requestId);
+      }
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // then
+    assertThat(offered.get()).isEqualTo(producers * perProducer);
+    assertThat(buffer.isEmpty()).isTrue();
+  }
+
+  private static AccessLogRecord record(String requestId) {
+    return new AccessLogRecord(0, "session", requestId, "GET", "/", 200, 0, 0);
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.accesslog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tipsymcstagger.spring.request.correlation.support.AccessLogOverflowPolicy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the {@link AccessLogWriter} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class AccessLogWriterTest {
+
+  @TempDir Path directory;
+
+  @Test
+  public void shouldWriteLines() throws IOException {
+
+    // given
+    final Path file = directory.resolve("logs/access.log");
+    final AccessLogWriter writer =
+        new AccessLogWriter(file, 16, 4, 1024 * 1024, 1, AccessLogOverflowPolicy.DROP);
+
+    // when
+    writer.log("s1", "r1", "GET", "/orders", 200, TimeUnit.MICROSECONDS.toNanos(1234), 512);
+    writer.log(null, "r2", "POST", "/orders", 201, TimeUnit.MICROSECONDS.toNanos(5), -1);
+    writer.close();
+
+    // then
+    final List<String> lines = Files.readAllLines(file);
+    assertThat(lines).hasSize(2);
+    assertThat(lines.get(0))
+        .matches("\\S+Z requestId=r1 sessionId=s1 method=GET uri=/orders status=200 .*")
+        .endsWith(" durationMs=1.234 bytes=512");
+    assertThat(lines.get(1))
+        .contains(" requestId=r2 sessionId=- method=POST ")
+        .endsWith(" durationMs=0.005 bytes=-");
+    assertThat(writer.getDropped()).isZero();
+  }
+
+  @Test
+  public void shouldAppendToExistingFile() throws IOException {
+
+    // given
+    final Path file = directory.resolve("access.log");
+    Files.writeString(file, "existing\n");
+    final AccessLogWriter writer =
+        new AccessLogWriter(file, 16, 4, 1024 * 1024, 1, AccessLogOverflowPolicy.DROP);
+
+    // when
+    writer.log("s1", "r1", "GET", "/", 200, 0, 0);
+    writer.close();
+
+    // then
+    assertThat(Files.readAllLines(file)).hasSize(2).first().isEqualTo("existing");
+  }
+
+  @Test
+  public void shouldRollFiles() throws IOException {
+
+    // given
+    final Path file = directory.resolve("access.log");
+    final AccessLogWriter writer =
+        new AccessLogWriter(file, 64, 1, 200, 2, AccessLogOverflowPolicy.WAIT);
+
+    // when
+    for (int i = 0; i < 20; i++) {
+      writer.log("s1", "r" + i, "GET", "/", 200, 0, 0);
+    }
+    writer.close();
+
+    // then
+    assertThat(file).exists();
+    assertThat(directory.resolve("access.log.1")).exists();
+    assertThat(directory.resolve("access.log.2")).exists();
+    assertThat(directory.resolve("access.log.3")).doesNotExist();
+    assertThat(Files.size(file)).isLessThanOrEqualTo(200);
+    assertThat(Files.readAllLines(file)).last().asString().contains("requestId=r19 ");
+  }
+
+  @Test
+  public void shouldKeepWritingWhenRollingFails() throws IOException {
+
+    // given a directory where the rolled file should go, so it can't be replaced
+    final Path file = directory.resolve("access.log");
+    Files.createDirectories(directory.resolve("access.log.1"));
+    Files.writeString(directory.resolve("access.log.1/keep"), "keep");
+    final AccessLogWriter writer =
+        new AccessLogWriter(file, 64, 1, 200, 1, AccessLogOverflowPolicy.WAIT);
+
+    // when
+    for (int i = 0; i < 20; i++) {
+      writer.log("s1", "r" + i, "GET", "/", 200, 0, 0);
+    }
+    writer.close();
+
+    // then every record landed in the current file
+    final List<String> lines = Files.readAllLines(file);
+    assertThat(lines).hasSize(20);
+    assertThat(lines.get(19)).contains("requestId=r19 ");
+    assertThat(directory.resolve("access.log.1")).isDirectory();
+  }
+
+  @Test
+  public void shouldDropRecordsOnceClosed() throws IOException {
+
+    // given
+    final AccessLogWriter writer =
+        new AccessLogWriter(
+            directory.resolve("access.log"), 16, 4, 1024, 1, AccessLogOverflowPolicy.WAIT);
+    writer.close();
+
+    // when
+    final boolean logged = writer.log("s1", "r1", "GET", "/", 200, 0, 0);
+
+    // then
+    assertThat(logged).isFalse();
+    assertThat(writer.getDropped()).isEqualTo(1);
+  }
+}
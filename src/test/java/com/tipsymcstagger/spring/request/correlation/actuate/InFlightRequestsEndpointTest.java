@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.actuate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.filter.InFlightRequestRegistry;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link InFlightRequestsEndpoint} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class InFlightRequestsEndpointTest {
+
+  @Test
+  public void shouldListRequestsInFlight() throws InterruptedException {
+
+    // given
+    final InFlightRequestRegistry registry = new InFlightRequestRegistry(1);
+    final Instant before = Instant.now();
+    registry.register(new DefaultRequestCorrelation("s1", "r1"), "/stuck");
+    registry.register(new DefaultRequestCorrelation("s2", "r2"), "/dropped");
+    Thread.sleep(5);
+
+    // when
+    final InFlightRequestsEndpoint.InFlightRequestsDescriptor descriptor =
+        new InFlightRequestsEndpoint(registry).inFlightRequests();
+
+    // then
+    assertThat(descriptor.getCapacity()).isEqualTo(1);
+    assertThat(descriptor.getDropped()).isEqualTo(1);
+    assertThat(descriptor.getRequests()).hasSize(1);
+    final InFlightRequestsEndpoint.RequestDescriptor request = descriptor.getRequests().get(0);
+    assertThat(request.getRequestId()).isEqualTo("r1");
+    assertThat(request.getSessionId()).isNull();
+    assertThat(request.getUri()).isEqualTo("/stuck");
+    assertThat(request.getThread()).isEqualTo(Thread.currentThread().getName());
+    assertThat(request.getAgeMillis()).isGreaterThanOrEqualTo(5);
+    assertThat(request.getStartTime()).isBetween(before.minusMillis(1), Instant.now());
+  }
+
+  @Test
+  public void shouldListSessionIdsWhenAskedFor() {
+
+    // given
+    final InFlightRequestRegistry registry = new InFlightRequestRegistry(1);
+    registry.register(new DefaultRequestCorrelation("s1", "r1"), "/stuck");
+
+    // when
+    final InFlightRequestsEndpoint.InFlightRequestsDescriptor descriptor =
+        new InFlightRequestsEndpoint(registry, true).inFlightRequests();
+
+    // then
+    assertThat(descriptor.getRequests())
+        .singleElement()
+        .extracting(InFlightRequestsEndpoint.RequestDescriptor::getSessionId)
+        .isEqualTo("s1");
+  }
+}
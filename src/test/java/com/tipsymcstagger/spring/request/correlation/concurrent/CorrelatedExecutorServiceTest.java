@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationHolder;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationUtils;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link CorrelatedExecutorService} and {@link CorrelatedScheduledExecutorService}
+ * classes.
+ *
+ * @author Steven C. Saliman
+ */
+public class CorrelatedExecutorServiceTest {
+
+  private ScheduledExecutorService executor;
+
+  @BeforeEach
+  public void setUp() {
+    executor = new CorrelatedScheduledExecutorService(Executors.newScheduledThreadPool(2));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldPropagateToSubmittedTasks() throws Exception {
+
+    // when
+    final Future<String> requestId =
+        RequestCorrelationHolder.callWith(
+            new DefaultRequestCorrelation("session", "request"),
+            () -> executor.submit(RequestCorrelationUtils::getCurrentRequestId));
+
+    // then
+    assertThat(requestId.get(5, TimeUnit.SECONDS)).isEqualTo("request");
+  }
+
+  @Test
+  public void shouldPropagateToInvokedTasks() throws Exception {
+
+    // given
+    final Callable<String> task = RequestCorrelationUtils::getCurrentRequestId;
+
+    // when
+    final List<Future<String>> requestIds =
+        RequestCorrelationHolder.callWith(
+            new DefaultRequestCorrelation("session", "request"),
+            () -> executor.invokeAll(List.of(task, task)));
+
+    // then
+    for (Future<String> requestId : requestIds) {
+      assertThat(requestId.get()).isEqualTo("request");
+    }
+  }
+
+  @Test
+  public void shouldPropagateToScheduledTasks() throws Exception {
+
+    // when
+    final Future<String> requestId =
+        RequestCorrelationHolder.callWith(
+            new DefaultRequestCorrelation("session", "request"),
+            () ->
+                executor.schedule(
+                    RequestCorrelationUtils::getCurrentRequestId, 10, TimeUnit.MILLISECONDS));
+
+    // then
+    assertThat(requestId.get(5, TimeUnit.SECONDS)).isEqualTo("request");
+  }
+
+  @Test
+  public void shouldNotLeakCorrelationToLaterTasks() throws Exception {
+
+    // given
+    RequestCorrelationHolder.callWith(
+            new DefaultRequestCorrelation("session", "request"),
+            () -> executor.submit(RequestCorrelationUtils::getCurrentRequestId))
+        .get(5, TimeUnit.SECONDS);
+
+    // when
+    final Future<String> requestId = executor.submit(RequestCorrelationUtils::getCurrentRequestId);
+
+    // then
+    assertThat(requestId.get(5, TimeUnit.SECONDS)).isNull();
+  }
+}
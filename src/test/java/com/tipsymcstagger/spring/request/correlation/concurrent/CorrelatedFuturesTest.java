@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationHolder;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationUtils;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link CorrelatedFutures} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class CorrelatedFuturesTest {
+
+  private final RequestCorrelation correlation =
+      new DefaultRequestCorrelation("session", "request");
+
+  @Test
+  public void shouldSupplyWithCorrelation() throws Exception {
+
+    // when
+    final CompletableFuture<String> requestId =
+        RequestCorrelationHolder.callWith(
+            correlation,
+            () -> CorrelatedFutures.supplyAsync(RequestCorrelationUtils::getCurrentRequestId));
+
+    // then
+    assertThat(requestId.get(5, TimeUnit.SECONDS)).isEqualTo("request");
+  }
+
+  @Test
+  public void shouldRunAsyncStagesWithCorrelation() throws Exception {
+
+    // when
+    final CompletableFuture<String> requestId =
+        RequestCorrelationHolder.callWith(
+            correlation,
+            () ->
+                CompletableFuture.completedFuture("ignored")
+                    .thenApplyAsync(
+                        value -> RequestCorrelationUtils.getCurrentRequestId(),
+                        CorrelatedFutures.executor(ForkJoinPool.commonPool())));
+
+    // then
+    assertThat(requestId.get(5, TimeUnit.SECONDS)).isEqualTo("request");
+  }
+
+  @Test
+  public void shouldRunParallelStreamWithCorrelation() throws Exception {
+
+    // given
+    final ForkJoinPool pool = new ForkJoinPool(4);
+
+    try {
+      // when
+      final Set<String> requestIds =
+          RequestCorrelationHolder.callWith(
+              correlation,
+              () -> {
+                final Function<Integer, String> lookup =
+                    CorrelatedTasks.function(
+                        value -> RequestCorrelationUtils.getCurrentRequestId());
+                return CorrelatedFutures.invoke(
+                    pool,
+                    () ->
+                        IntStream.range(0, 64)
+                            .boxed()
+                            .parallel()
+                            .map(lookup)
+                            .collect(Collectors.toSet()));
+              });
+
+      // then
+      assertThat(requestIds).containsExactly("request");
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void shouldNotPropagateCorrelationToUnwrappedStreamFunctions() throws Exception {
+
+    // given
+    final ForkJoinPool pool = new ForkJoinPool(4);
+
+    try {
+      // when
+      final List<Set<String>> requestIds =
+          RequestCorrelationHolder.callWith(
+              correlation,
+              () ->
+                  CorrelatedFutures.invoke(
+                      pool,
+                      () -> {
+                        final Thread taskThread = Thread.currentThread();
+                        final Set<String> streamIds =
+                            IntStream.range(0, 64)
+                                .boxed()
+                                .parallel()
+                                .map(
+                                    value ->
+                                        (Thread.currentThread() == taskThread ? "task " : "other ")
+                                            + RequestCorrelationUtils.getCurrentRequestId())
+                                .collect(Collectors.toSet());
+                        return List.of(
+                            Set.of(RequestCorrelationUtils.getCurrentRequestId()), streamIds);
+                      }));
+
+      // then the task sees the correlation, but only the elements it runs itself do
+      assertThat(requestIds.get(0)).containsExactly("request");
+      assertThat(requestIds.get(1)).isSubsetOf("task request", "other null");
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void shouldRunForkJoinTaskWithCorrelation() throws Exception {
+
+    // when
+    final List<String> requestIds =
+        RequestCorrelationHolder.callWith(
+            correlation,
+            () ->
+                List.of(
+                    ForkJoinPool.commonPool()
+                        .invoke(
+                            CorrelatedFutures.forkJoinTask(
+                                RequestCorrelationUtils::getCurrentRequestId))));
+
+    // then
+    assertThat(requestIds).containsExactly("request");
+  }
+}
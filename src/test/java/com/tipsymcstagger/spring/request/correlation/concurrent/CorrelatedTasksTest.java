@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationHolder;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationUtils;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link CorrelatedTasks} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class CorrelatedTasksTest {
+
+  private final RequestCorrelation correlation =
+      new DefaultRequestCorrelation("session", "request");
+
+  @Test
+  public void shouldNotWrapWithoutCorrelation() {
+
+    // given
+    final Runnable task = () -> {};
+
+    // when
+    final Runnable wrapped = CorrelatedTasks.wrap(task);
+
+    // then
+    assertThat(wrapped).isSameAs(task);
+  }
+
+  @Test
+  public void shouldRunWithCapturedCorrelation() throws Exception {
+
+    // given
+    final AtomicReference<String> seen = new AtomicReference<>();
+    final Runnable wrapped =
+        RequestCorrelationHolder.callWith(
+            correlation,
+            () ->
+                CorrelatedTasks.wrap(
+                    () -> seen.set(RequestCorrelationUtils.getCurrentRequestId())));
+
+    // when
+    final Thread worker = new Thread(wrapped);
+    worker.start();
+    worker.join();
+
+    // then
+    assertThat(seen.get()).isEqualTo("request");
+    assertThat(RequestCorrelationHolder.getCorrelation()).isNull();
+  }
+
+  @Test
+  public void shouldCallWithCapturedCorrelation() throws Exception {
+
+    // given
+    final Callable<RequestCorrelation> wrapped =
+        RequestCorrelationHolder.callWith(
+            correlation,
+            () -> CorrelatedTasks.wrap(RequestCorrelationUtils::getCurrentCorrelation));
+
+    // when
+    final RequestCorrelation seen = wrapped.call();
+
+    // then
+    assertThat(seen).isSameAs(correlation);
+    assertThat(RequestCorrelationHolder.getCorrelation()).isNull();
+  }
+
+  @Test
+  public void shouldSnapshotMutableCorrelation() throws Exception {
+
+    // given
+    final RequestCorrelation lazy =
+        new RequestCorrelation() {
+          @Override
+          public String getSessionId() {
+            return "session";
+          }
+
+          @Override
+          public String getRequestId() {
+            return "request";
+          }
+        };
+
+    // when
+    final RequestCorrelation captured =
+        RequestCorrelationHolder.callWith(lazy, CorrelatedTasks::capture);
+
+    // then
+    assertThat(captured).isInstanceOf(DefaultRequestCorrelation.class);
+    assertThat(captured.getSessionId()).isEqualTo("session");
+    assertThat(captured.getRequestId()).isEqualTo("request");
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Tests the {@link CorrelationTaskDecoratorConfiguration} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class CorrelationTaskDecoratorConfigurationTest {
+
+  private final ApplicationContextRunner runner =
+      new ApplicationContextRunner()
+          .withConfiguration(AutoConfigurations.of(TaskExecutionAutoConfiguration.class))
+          .withUserConfiguration(CorrelationTaskDecoratorConfiguration.class);
+
+  @Test
+  public void shouldNotRegisterDecoratorByDefault() {
+    runner.run(context -> assertThat(context).doesNotHaveBean(TaskDecorator.class));
+  }
+
+  @Test
+  public void shouldRegisterDecoratorWhenEnabled() {
+    runner
+        .withPropertyValues("request.correlation.task-decorator.enabled=true")
+        .run(
+            context ->
+                assertThat(context)
+                    .getBean(TaskDecorator.class)
+                    .isInstanceOf(CorrelationTaskDecorator.class));
+  }
+
+  @Test
+  public void shouldKeepApplicationDecorator() {
+    runner
+        .withUserConfiguration(ApplicationDecoratorConfiguration.class)
+        .run(
+            context ->
+                assertThat(context.getBeanProvider(TaskDecorator.class).getIfUnique())
+                    .isSameAs(context.getBean(ApplicationDecoratorConfiguration.class).decorator));
+  }
+
+  /** An application's configuration with a task decorator of its own. */
+  @Configuration
+  static class ApplicationDecoratorConfiguration {
+
+    private final TaskDecorator decorator = runnable -> runnable;
+
+    @Bean
+    public TaskDecorator applicationTaskDecorator() {
+      return decorator;
+    }
+  }
+}
@@ -16,6 +16,7 @@ package com.tipsymcstagger.spring.request.correlation.feign;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.tipsymcstagger.spring.request.correlation.CorrelationTestUtils;
+import com.tipsymcstagger.spring.request.correlation.support.CorrelationSampler;
 import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationConsts;
 import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
 import feign.RequestTemplate;
@@ -125,4 +126,72 @@ public class FeignCorrelationInterceptorTest {
             RequestCorrelationConsts.SESSION_HEADER_NAME,
             RequestCorrelationConsts.REQUEST_HEADER_NAME);
   }
+
+  @Test
+  public void shouldSetSamplingHeader() {
+
+    // given
+    properties.getSampling().setEnabled(true);
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+    final RequestTemplate request = new RequestTemplate();
+
+    // when
+    instance.apply(request);
+
+    // then
+    assertThat(request.headers().get(RequestCorrelationConsts.SAMPLED_HEADER_NAME))
+        .containsExactly(CorrelationSampler.NOT_SAMPLED);
+  }
+
+  @Test
+  public void shouldReplaceHeaderSetByCaller() {
+
+    // given
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+    final RequestTemplate request = new RequestTemplate();
+    request.header(RequestCorrelationConsts.REQUEST_HEADER_NAME, "OTHER_REQUEST_ID");
+
+    // when
+    instance.apply(request);
+
+    // then
+    assertThat(request.headers().get(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .containsExactly(REQUEST_ID);
+  }
+
+  @Test
+  public void shouldNotDuplicateHeaderWhenRetried() {
+
+    // given
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+    final RequestTemplate request = new RequestTemplate();
+
+    // when
+    instance.apply(request);
+    instance.apply(request);
+
+    // then
+    assertThat(request.headers().get(RequestCorrelationConsts.SESSION_HEADER_NAME))
+        .containsExactly(SESSION_ID);
+    assertThat(request.headers().get(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .containsExactly(REQUEST_ID);
+  }
+
+  @Test
+  public void shouldNotDuplicateHeaderWhenRegisteredTwice() {
+
+    // given
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+    final RequestTemplate request = new RequestTemplate();
+
+    // when
+    instance.apply(request);
+    new FeignCorrelationInterceptor(properties).apply(request);
+
+    // then
+    assertThat(request.headers().get(RequestCorrelationConsts.SESSION_HEADER_NAME))
+        .containsExactly(SESSION_ID);
+    assertThat(request.headers().get(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .containsExactly(REQUEST_ID);
+  }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tipsymcstagger.spring.request.correlation.generator.DefaultIdGenerator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Tests the {@link InFlightRequestRegistry} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class InFlightRequestRegistryTest {
+
+  @Test
+  public void shouldRecordRequestsOldestFirst() {
+
+    // given
+    final InFlightRequestRegistry registry = new InFlightRequestRegistry(4);
+
+    // when
+    final int first = registry.register(new DefaultRequestCorrelation("s1", "r1"), "/first");
+    final int second = registry.register(new DefaultRequestCorrelation("s2", "r2"), "/second");
+
+    // then
+    final List<InFlightRequestRegistry.Entry> entries = registry.getEntries();
+    assertThat(first).isNotEqualTo(second);
+    assertThat(entries)
+        .extracting(InFlightRequestRegistry.Entry::getRequestId)
+        .containsExactly("r1", "r2");
+    assertThat(entries.get(0).getSessionId()).isEqualTo("s1");
+    assertThat(entries.get(0).getUri()).isEqualTo("/first");
+    assertThat(entries.get(0).getThread()).isSameAs(Thread.currentThread());
+  }
+
+  @Test
+  public void shouldReleaseSlots() {
+
+    // given
+    final InFlightRequestRegistry registry = new InFlightRequestRegistry(1);
+    final int slot = registry.register(new DefaultRequestCorrelation("s1", "r1"), "/");
+
+    // when
+    registry.unregister(slot);
+
+    // then
+    assertThat(registry.getEntries()).isEmpty();
+    assertThat(registry.register(new DefaultRequestCorrelation("s2", "r2"), "/")).isEqualTo(slot);
+  }
+
+  @Test
+  public void shouldDropRequestsWhenFull() {
+
+    // given
+    final InFlightRequestRegistry registry = new InFlightRequestRegistry(2);
+    registry.register(new DefaultRequestCorrelation("s1", "r1"), "/");
+    registry.register(new DefaultRequestCorrelation("s2", "r2"), "/");
+
+    // when
+    final int slot = registry.register(new DefaultRequestCorrelation("s3", "r3"), "/");
+    registry.unregister(slot);
+
+    // then
+    assertThat(slot).isEqualTo(InFlightRequestRegistry.NOT_REGISTERED);
+    assertThat(registry.getEntries()).hasSize(2);
+    assertThat(registry.getDropped()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldNotGenerateLazyIds() {
+
+    // given
+    final InFlightRequestRegistry registry = new InFlightRequestRegistry(2);
+    final LazyRequestCorrelation correlation =
+        new LazyRequestCorrelation(
+            new MockHttpServletRequest(), new DefaultIdGenerator(), "s1", null, null, null);
+    registry.register(correlation, "/");
+
+    // when
+    final InFlightRequestRegistry.Entry entry = registry.getEntries().get(0);
+
+    // then
+    assertThat(entry.getSessionId()).isEqualTo("s1");
+    assertThat(entry.getRequestId()).isNull();
+
+    // when the request thread asks for the id
+    final String requestId = correlation.getRequestId();
+
+    // then
+    assertThat(entry.getRequestId()).isEqualTo(requestId);
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tipsymcstagger.spring.request.correlation.api.CorrelationIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.generator.PooledIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.generator.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+
+/**
+ * Tests the {@link RequestCorrelationConfiguration} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class RequestCorrelationConfigurationTest {
+
+  private final WebApplicationContextRunner runner =
+      new WebApplicationContextRunner()
+          .withUserConfiguration(RequestCorrelationConfiguration.class);
+
+  @Test
+  public void shouldPoolRandomIds() {
+    runner
+        .withPropertyValues("request.correlation.pool.enabled=true")
+        .run(
+            context ->
+                assertThat(context)
+                    .getBean(CorrelationIdGenerator.class)
+                    .isInstanceOf(PooledIdGenerator.class));
+  }
+
+  @Test
+  public void shouldNotPoolTimeOrderedIds() {
+    runner
+        .withPropertyValues(
+            "request.correlation.pool.enabled=true",
+            "request.correlation.request-id-strategy=time_ordered")
+        .run(
+            context ->
+                assertThat(context)
+                    .getBean(CorrelationIdGenerator.class)
+                    .isInstanceOf(TimeOrderedIdGenerator.class));
+  }
+}
@@ -14,23 +14,47 @@
 package com.tipsymcstagger.spring.request.correlation.filter;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import com.tipsymcstagger.spring.request.correlation.accesslog.AccessLogWriter;
 import com.tipsymcstagger.spring.request.correlation.api.CorrelationIdGenerator;
 import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
 import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationInterceptor;
 import com.tipsymcstagger.spring.request.correlation.generator.DefaultIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.support.AccessLogOverflowPolicy;
 import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationConsts;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationHolder;
 import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationUtils;
+import com.tipsymcstagger.spring.request.correlation.support.SessionIdStrategy;
+import com.tipsymcstagger.spring.request.correlation.support.TraceParent;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -177,4 +201,680 @@ public class RequestCorrelationFilterTest {
     verify(interceptor).afterCorrelationIdSet(sessionId, requestId);
     verify(interceptor).cleanUp(sessionId, requestId);
   }
+
+  @Test
+  public void shouldOverlayHeadersIgnoringCase() throws IOException, ServletException {
+
+    // given
+    final String requestId = UUID.randomUUID().toString();
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    final MockFilterChain chain = new MockFilterChain();
+
+    request.addHeader("x-request-id", requestId);
+    request.addHeader("Accept", "application/json");
+    request.addHeader("Accept", "text/plain");
+
+    // when
+    instance.doFilter(request, response, chain);
+
+    // then
+    final HttpServletRequest correlated = (HttpServletRequest) chain.getRequest();
+    assertThat(correlated.getHeader("X-REQUEST-ID")).isEqualTo(requestId);
+    assertThat(Collections.list(correlated.getHeaders("x-Request-Id"))).containsExactly(requestId);
+    assertThat(Collections.list(correlated.getHeaders("accept")))
+        .containsExactly("application/json", "text/plain");
+    assertThat(Collections.list(correlated.getHeaders("X-Unknown"))).isEmpty();
+  }
+
+  @Test
+  public void shouldNotDuplicateHeaderNames() throws IOException, ServletException {
+
+    // given
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    final MockFilterChain chain = new MockFilterChain();
+
+    request.addHeader("x-session-id", UUID.randomUUID().toString());
+    request.addHeader("Accept", "application/json");
+
+    // when
+    instance.doFilter(request, response, chain);
+
+    // then
+    final HttpServletRequest correlated = (HttpServletRequest) chain.getRequest();
+    assertThat(Collections.list(correlated.getHeaderNames()))
+        .containsExactly(
+            RequestCorrelationConsts.SESSION_HEADER_NAME,
+            RequestCorrelationConsts.REQUEST_HEADER_NAME,
+            "Accept");
+  }
+
+  @Test
+  public void shouldNotGenerateUnusedIdsLazily() throws IOException, ServletException {
+
+    // given
+    final CorrelationIdGenerator lazyGenerator =
+        spy(new DefaultIdGenerator(SessionIdStrategy.EXISTING_SESSION));
+    properties.setLazyIdGeneration(true);
+    properties.setSessionIdStrategy(SessionIdStrategy.EXISTING_SESSION);
+    instance = new RequestCorrelationFilter(lazyGenerator, interceptors, properties);
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    final MockFilterChain chain = new MockFilterChain();
+
+    // when
+    instance.doFilter(request, response, chain);
+
+    // then
+    assertThat(request.getAttribute(RequestCorrelationConsts.ATTRIBUTE_NAME)).isNotNull();
+    verify(lazyGenerator, never()).generateSessionId(any());
+    verify(lazyGenerator, never()).generateRequestId(any());
+  }
+
+  @Test
+  public void shouldGenerateIdsLazilyOnce() throws IOException, ServletException {
+
+    // given
+    final CorrelationIdGenerator lazyGenerator =
+        spy(new DefaultIdGenerator(SessionIdStrategy.EXISTING_SESSION));
+    properties.setLazyIdGeneration(true);
+    properties.setSessionIdStrategy(SessionIdStrategy.EXISTING_SESSION);
+    instance = new RequestCorrelationFilter(lazyGenerator, interceptors, properties);
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    final MockFilterChain chain = new MockFilterChain();
+
+    // when
+    instance.doFilter(request, response, chain);
+    final HttpServletRequest correlated = (HttpServletRequest) chain.getRequest();
+    final RequestCorrelation correlation =
+        (RequestCorrelation) request.getAttribute(RequestCorrelationConsts.ATTRIBUTE_NAME);
+    final String requestId = correlated.getHeader(RequestCorrelationConsts.REQUEST_HEADER_NAME);
+
+    // then
+    assertThat(requestId).isNotNull().isEqualTo(correlation.getRequestId());
+    assertThat(correlated.getHeader(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .isEqualTo(requestId);
+    verify(lazyGenerator, times(1)).generateRequestId(any());
+    verify(lazyGenerator, never()).generateSessionId(any());
+  }
+
+  @Test
+  public void shouldBindCorrelationDuringRequest() throws IOException, ServletException {
+
+    // given
+    final String requestId = UUID.randomUUID().toString();
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    request.addHeader(RequestCorrelationConsts.REQUEST_HEADER_NAME, requestId);
+    final List<String> boundRequestIds = new ArrayList<>();
+
+    // when
+    instance.doFilter(
+        request,
+        response,
+        (req, res) -> boundRequestIds.add(RequestCorrelationUtils.getCurrentRequestId()));
+
+    // then
+    assertThat(boundRequestIds).containsExactly(requestId);
+    assertThat(RequestCorrelationHolder.getCorrelation()).isNull();
+  }
+
+  @Test
+  public void shouldCleanUpWhenAsyncRequestCompletes() throws IOException, ServletException {
+
+    // given
+    final RequestCorrelationInterceptor interceptor = mock(RequestCorrelationInterceptor.class);
+    interceptors.add(interceptor);
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setAsyncSupported(true);
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    // when
+    instance.doFilter(request, response, (req, res) -> req.startAsync());
+
+    // then
+    verify(interceptor).afterCorrelationIdSet(any(), any());
+    verify(interceptor, never()).cleanUp(any(), any());
+
+    // when
+    request.getAsyncContext().complete();
+
+    // then
+    verify(interceptor).cleanUp(any(), any());
+  }
+
+  @Test
+  public void shouldReuseCorrelationOnAsyncDispatch() throws IOException, ServletException {
+
+    // given
+    final CorrelationIdGenerator asyncGenerator = spy(new DefaultIdGenerator());
+    final RequestCorrelationInterceptor interceptor = mock(RequestCorrelationInterceptor.class);
+    interceptors.add(interceptor);
+    instance = new RequestCorrelationFilter(asyncGenerator, interceptors, properties);
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setAsyncSupported(true);
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    instance.doFilter(request, response, (req, res) -> req.startAsync());
+    final RequestCorrelation correlation =
+        (RequestCorrelation) request.getAttribute(RequestCorrelationConsts.ATTRIBUTE_NAME);
+
+    // when
+    request.setDispatcherType(DispatcherType.ASYNC);
+    final MockFilterChain chain = new MockFilterChain();
+    instance.doFilter(request, response, chain);
+
+    // then
+    assertThat(
+            ((HttpServletRequest) chain.getRequest())
+                .getHeader(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .isEqualTo(correlation.getRequestId());
+    verify(asyncGenerator, times(1)).generateRequestId(any());
+    verify(interceptor, times(1)).afterCorrelationIdSet(any(), any());
+    verify(interceptor, never()).cleanUp(any(), any());
+
+    // when
+    request.getAsyncContext().complete();
+
+    // then
+    verify(interceptor, times(1))
+        .cleanUp(correlation.getSessionId(), correlation.getRequestId());
+  }
+
+  @Test
+  public void shouldReplaceRejectedIds() throws IOException, ServletException {
+
+    // given
+    final String requestId = StringUtils.repeat('a', 129);
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    final MockFilterChain chain = new MockFilterChain();
+    request.addHeader(RequestCorrelationConsts.SESSION_HEADER_NAME, "session id");
+    request.addHeader(RequestCorrelationConsts.REQUEST_HEADER_NAME, requestId);
+
+    // when
+    instance.doFilter(request, response, chain);
+
+    // then
+    final HttpServletRequest correlated = (HttpServletRequest) chain.getRequest();
+    assertThat(correlated.getHeader(RequestCorrelationConsts.SESSION_HEADER_NAME))
+        .isNotBlank()
+        .isNotEqualTo("session id");
+    assertThat(correlated.getHeader(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .isNotBlank()
+        .isNotEqualTo(requestId);
+  }
+
+  @Test
+  public void shouldKeepSamplingDecisionOfCaller() throws IOException, ServletException {
+
+    // given
+    properties.getSampling().setEnabled(true);
+    properties.getSampling().setRate(0);
+    instance = new RequestCorrelationFilter(generator, interceptors, properties);
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    request.addHeader(RequestCorrelationConsts.SAMPLED_HEADER_NAME, "1");
+    final List<Boolean> sampled = new ArrayList<>();
+
+    // when
+    instance.doFilter(
+        request,
+        response,
+        (req, res) -> sampled.add(RequestCorrelationUtils.isCurrentRequestSampled()));
+
+    // then
+    assertThat(sampled).containsExactly(true);
+  }
+
+  @Test
+  public void shouldDecideSamplingWhenCallerDidNot() throws IOException, ServletException {
+
+    // given
+    properties.getSampling().setEnabled(true);
+    properties.getSampling().setRate(1);
+    final List<Boolean> sampled = new ArrayList<>();
+    interceptors.add(
+        new RequestCorrelationInterceptor() {
+          @Override
+          public void afterCorrelationIdSet(String sessionId, String requestId) {
+            sampled.add(RequestCorrelationUtils.isCurrentRequestSampled());
+          }
+        });
+    instance = new RequestCorrelationFilter(generator, interceptors, properties);
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    // when
+    instance.doFilter(request, response, new MockFilterChain());
+
+    // then
+    assertThat(sampled).containsExactly(true);
+  }
+
+  @Test
+  public void shouldNotSampleWhenSamplingIsDisabled() throws IOException, ServletException {
+
+    // given
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    request.addHeader(RequestCorrelationConsts.SAMPLED_HEADER_NAME, "1");
+
+    // when
+    instance.doFilter(request, response, new MockFilterChain());
+
+    // then
+    assertThat(
+            ((RequestCorrelation) request.getAttribute(RequestCorrelationConsts.ATTRIBUTE_NAME))
+                .isSampled())
+        .isFalse();
+  }
+
+  @Test
+  public void shouldUseTraceIdWhenRequestIdIsMissing() throws IOException, ServletException {
+
+    // given
+    properties.getTraceContext().setEnabled(true);
+    instance = new RequestCorrelationFilter(generator, interceptors, properties);
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    final MockFilterChain chain = new MockFilterChain();
+    request.addHeader(
+        TraceParent.HEADER_NAME, "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+
+    // when
+    instance.doFilter(request, response, chain);
+
+    // then
+    assertThat(
+            ((HttpServletRequest) chain.getRequest())
+                .getHeader(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+  }
+
+  @Test
+  public void shouldIgnoreTraceIdByDefault() throws IOException, ServletException {
+
+    // given
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    final MockFilterChain chain = new MockFilterChain();
+    request.addHeader(
+        TraceParent.HEADER_NAME, "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+
+    // when
+    instance.doFilter(request, response, chain);
+
+    // then
+    assertThat(
+            ((HttpServletRequest) chain.getRequest())
+                .getHeader(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .isNotEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+  }
+
+  @Test
+  public void shouldRecordRequestsInFlight() throws IOException, ServletException {
+
+    // given
+    final InFlightRequestRegistry registry = new InFlightRequestRegistry(4);
+    instance =
+        RequestCorrelationFilter.builder(generator, interceptors, properties)
+            .registry(registry)
+            .build();
+    final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/stuck");
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    final List<InFlightRequestRegistry.Entry> inFlight = new ArrayList<>();
+
+    // when
+    instance.doFilter(request, response, (req, res) -> inFlight.addAll(registry.getEntries()));
+
+    // then
+    final RequestCorrelation correlation =
+        (RequestCorrelation) request.getAttribute(RequestCorrelationConsts.ATTRIBUTE_NAME);
+    assertThat(inFlight).hasSize(1);
+    assertThat(inFlight.get(0).getRequestId()).isEqualTo(correlation.getRequestId());
+    assertThat(inFlight.get(0).getUri()).isEqualTo("/stuck");
+    assertThat(registry.getEntries()).isEmpty();
+  }
+
+  @Test
+  public void shouldRecordForwardedRequestsOnce() throws IOException, ServletException {
+
+    // given
+    final InFlightRequestRegistry registry = new InFlightRequestRegistry(4);
+    instance =
+        RequestCorrelationFilter.builder(generator, interceptors, properties)
+            .registry(registry)
+            .build();
+    final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/stuck");
+    final MockHttpServletRequest forwarded = new MockHttpServletRequest("GET", "/forwarded");
+    forwarded.setDispatcherType(DispatcherType.FORWARD);
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    final List<InFlightRequestRegistry.Entry> inFlight = new ArrayList<>();
+
+    // when
+    instance.doFilter(
+        request,
+        response,
+        (req, res) ->
+            instance.doFilter(
+                forwarded, res, (fwdReq, fwdRes) -> inFlight.addAll(registry.getEntries())));
+
+    // then
+    assertThat(inFlight).hasSize(1);
+    assertThat(inFlight.get(0).getUri()).isEqualTo("/stuck");
+    assertThat(registry.getEntries()).isEmpty();
+  }
+
+  @Test
+  public void shouldRecordAsyncRequestsUntilTheyComplete() throws IOException, ServletException {
+
+    // given
+    final InFlightRequestRegistry registry = new InFlightRequestRegistry(4);
+    instance =
+        RequestCorrelationFilter.builder(generator, interceptors, properties)
+            .registry(registry)
+            .build();
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setAsyncSupported(true);
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    instance.doFilter(request, response, (req, res) -> req.startAsync());
+
+    // when
+    request.setDispatcherType(DispatcherType.ASYNC);
+    instance.doFilter(request, response, new MockFilterChain());
+
+    // then
+    assertThat(registry.getEntries()).hasSize(1);
+    assertThat(registry.getEntries().get(0).getThread()).isNull();
+
+    // when
+    request.getAsyncContext().complete();
+
+    // then
+    assertThat(registry.getEntries()).isEmpty();
+  }
+
+  @Test
+  public void shouldWriteAccessLog(@TempDir Path directory) throws IOException, ServletException {
+
+    // given
+    final Path file = directory.resolve("access.log");
+    final AccessLogWriter accessLog =
+        new AccessLogWriter(file, 16, 4, 1024 * 1024, 1, AccessLogOverflowPolicy.DROP);
+    instance =
+        RequestCorrelationFilter.builder(generator, interceptors, properties)
+            .accessLog(accessLog)
+            .build();
+    final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/orders");
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    // when
+    instance.doFilter(
+        request,
+        response,
+        (req, res) -> {
+          ((HttpServletResponse) res).setStatus(201);
+          res.getOutputStream().write("hello".getBytes(StandardCharsets.US_ASCII));
+          res.getWriter().write("!!");
+        });
+    accessLog.close();
+
+    // then
+    final RequestCorrelation correlation =
+        (RequestCorrelation) request.getAttribute(RequestCorrelationConsts.ATTRIBUTE_NAME);
+    assertThat(response.getContentAsString()).isEqualTo("hello!!");
+    assertThat(Files.readAllLines(file))
+        .singleElement()
+        .asString()
+        .contains(" requestId=" + correlation.getRequestId() + " ")
+        .contains(" sessionId=" + correlation.getSessionId() + " ")
+        .contains(" method=POST uri=/orders status=201 ")
+        .endsWith(" bytes=7");
+  }
+
+  @Test
+  public void shouldCountEncodedBytesOfWriterOutput(@TempDir Path directory)
+      throws IOException, ServletException {
+
+    // given
+    final Path file = directory.resolve("access.log");
+    final AccessLogWriter accessLog =
+        new AccessLogWriter(file, 16, 4, 1024 * 1024, 1, AccessLogOverflowPolicy.DROP);
+    instance =
+        RequestCorrelationFilter.builder(generator, interceptors, properties)
+            .accessLog(accessLog)
+            .build();
+    final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders");
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    response.setCharacterEncoding("UTF-8");
+
+    // when
+    instance.doFilter(
+        request,
+        response,
+        (req, res) -> {
+          res.getWriter().write("h\u00e9llo ");
+          res.getWriter().print('\u20ac');
+          res.getWriter().write(new char[] {'\ud83d', '\ude00'});
+          res.getWriter().flush();
+        });
+    accessLog.close();
+
+    // then
+    assertThat(response.getContentAsByteArray()).hasSize(14);
+    assertThat(Files.readAllLines(file)).singleElement().asString().endsWith(" bytes=14");
+  }
+
+  @Test
+  public void shouldReportWriterErrorsWhenCounting(@TempDir Path directory)
+      throws IOException, ServletException {
+
+    // given
+    final AccessLogWriter accessLog =
+        new AccessLogWriter(
+            directory.resolve("access.log"), 16, 4, 1024 * 1024, 1, AccessLogOverflowPolicy.DROP);
+    instance =
+        RequestCorrelationFilter.builder(generator, interceptors, properties)
+            .accessLog(accessLog)
+            .build();
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    final HttpServletResponse response =
+        new HttpServletResponseWrapper(new MockHttpServletResponse()) {
+          private final PrintWriter writer = new PrintWriter(new DisconnectedWriter());
+
+          @Override
+          public PrintWriter getWriter() {
+            return writer;
+          }
+        };
+    final List<Boolean> errors = new ArrayList<>();
+
+    // when
+    instance.doFilter(
+        request,
+        response,
+        (req, res) -> {
+          res.getWriter().write("hello");
+          errors.add(res.getWriter().checkError());
+        });
+    accessLog.close();
+
+    // then
+    assertThat(errors).containsExactly(true);
+  }
+
+  @Test
+  public void shouldWriteAccessLogOnceForForwardedRequest(@TempDir Path directory)
+      throws IOException, ServletException {
+
+    // given
+    final Path file = directory.resolve("access.log");
+    final AccessLogWriter accessLog =
+        new AccessLogWriter(file, 16, 4, 1024 * 1024, 1, AccessLogOverflowPolicy.DROP);
+    instance =
+        RequestCorrelationFilter.builder(generator, interceptors, properties)
+            .accessLog(accessLog)
+            .build();
+    final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders");
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    // when
+    instance.doFilter(
+        request,
+        response,
+        (req, res) -> {
+          res.getOutputStream().write("abc".getBytes(StandardCharsets.US_ASCII));
+          instance.doFilter(
+              new ForwardedRequest((HttpServletRequest) req),
+              res,
+              (fwdReq, fwdRes) ->
+                  fwdRes.getOutputStream().write("hello".getBytes(StandardCharsets.US_ASCII)));
+        });
+    accessLog.close();
+
+    // then
+    assertThat(response.getContentAsString()).isEqualTo("abchello");
+    assertThat(Files.readAllLines(file))
+        .singleElement()
+        .asString()
+        .contains(" uri=/orders ")
+        .endsWith(" bytes=8");
+  }
+
+  @Test
+  public void shouldCountBytesOnceAcrossAsyncDispatches(@TempDir Path directory)
+      throws IOException, ServletException {
+
+    // given
+    final Path file = directory.resolve("access.log");
+    final AccessLogWriter accessLog =
+        new AccessLogWriter(file, 16, 4, 1024 * 1024, 1, AccessLogOverflowPolicy.DROP);
+    instance =
+        RequestCorrelationFilter.builder(generator, interceptors, properties)
+            .accessLog(accessLog)
+            .build();
+    final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders");
+    request.setAsyncSupported(true);
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    final List<ServletResponse> dispatched = new ArrayList<>();
+    instance.doFilter(
+        request,
+        response,
+        (req, res) -> {
+          res.getOutputStream().write("abc".getBytes(StandardCharsets.US_ASCII));
+          req.startAsync(req, res);
+          dispatched.add(res);
+        });
+
+    // when the container dispatches again with the response the request started async with
+    request.setDispatcherType(DispatcherType.ASYNC);
+    instance.doFilter(
+        request,
+        dispatched.get(0),
+        (req, res) -> res.getOutputStream().write("hello".getBytes(StandardCharsets.US_ASCII)));
+    request.getAsyncContext().complete();
+    accessLog.close();
+
+    // then
+    assertThat(response.getContentAsString()).isEqualTo("abchello");
+    assertThat(Files.readAllLines(file))
+        .singleElement()
+        .asString()
+        .contains(" uri=/orders ")
+        .endsWith(" bytes=8");
+  }
+
+  @Test
+  public void shouldResolveSessionIdEagerlyWhenSessionsCanBeCreated()
+      throws IOException, ServletException {
+
+    // given
+    properties.setLazyIdGeneration(true);
+    instance = new RequestCorrelationFilter(generator, interceptors, properties);
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    final MockHttpServletRequest request = new CommitAwareRequest(response);
+
+    // when
+    instance.doFilter(request, response, (req, res) -> response.setCommitted(true));
+    final RequestCorrelation correlation =
+        (RequestCorrelation) request.getAttribute(RequestCorrelationConsts.ATTRIBUTE_NAME);
+
+    // then the first read after the response was committed doesn't need a new session
+    assertThat(correlation.getSessionId()).isNotBlank();
+    assertThat(correlation.getRequestId()).isNotBlank();
+  }
+
+  @Test
+  public void shouldGenerateSessionIdLazilyAfterCommitWithExistingSessionStrategy()
+      throws IOException, ServletException {
+
+    // given
+    properties.setLazyIdGeneration(true);
+    properties.setSessionIdStrategy(SessionIdStrategy.EXISTING_SESSION);
+    instance =
+        new RequestCorrelationFilter(
+            new DefaultIdGenerator(SessionIdStrategy.EXISTING_SESSION), interceptors, properties);
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    final MockHttpServletRequest request = new CommitAwareRequest(response);
+
+    // when
+    instance.doFilter(request, response, (req, res) -> response.setCommitted(true));
+    final RequestCorrelation correlation =
+        (RequestCorrelation) request.getAttribute(RequestCorrelationConsts.ATTRIBUTE_NAME);
+
+    // then
+    assertThat(correlation.getSessionId()).isNotBlank();
+    assertThat(request.getSession(false)).isNull();
+  }
+
+  /** A request that refuses to create a session once its response is committed, like Tomcat. */
+  private static class CommitAwareRequest extends MockHttpServletRequest {
+
+    private final MockHttpServletResponse response;
+
+    CommitAwareRequest(MockHttpServletResponse response) {
+      this.response = response;
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+      if (create && response.isCommitted() && super.getSession(false) == null) {
+        throw new IllegalStateException(
+            "Cannot create a session after the response has been committed");
+      }
+      return super.getSession(create);
+    }
+  }
+
+  /** A request forwarded to another resource, as the request dispatcher hands it to the filter. */
+  private static class ForwardedRequest extends HttpServletRequestWrapper {
+
+    ForwardedRequest(HttpServletRequest request) {
+      super(request);
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+      return DispatcherType.FORWARD;
+    }
+  }
+
+  /** A writer whose client has disconnected. */
+  private static class DisconnectedWriter extends Writer {
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+      throw new IOException("Broken pipe");
+    }
+
+    @Override
+    public void flush() throws IOException {
+      throw new IOException("Broken pipe");
+    }
+
+    @Override
+    public void close() {}
+  }
 }
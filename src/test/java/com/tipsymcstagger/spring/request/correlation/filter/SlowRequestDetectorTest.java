@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tipsymcstagger.spring.request.correlation.api.SlowRequestListener;
+import com.tipsymcstagger.spring.request.correlation.api.SlowRequestSample;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link SlowRequestDetector} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class SlowRequestDetectorTest {
+
+  /** An interval long enough that the watchdog never scans on its own during a test. */
+  private static final long INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  private final InFlightRequestRegistry registry = new InFlightRequestRegistry(8);
+
+  private final List<SlowRequestSample> samples = new ArrayList<>();
+
+  private final SlowRequestListener listener = samples::add;
+
+  private final CountDownLatch done = new CountDownLatch(1);
+
+  private final List<Thread> threads = new ArrayList<>();
+
+  private SlowRequestDetector detector;
+
+  @AfterEach
+  public void tearDown() throws InterruptedException {
+    if (detector != null) {
+      detector.close();
+    }
+    done.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  @Test
+  public void shouldSampleSlowRequests() throws InterruptedException {
+
+    // given
+    detector = new SlowRequestDetector(registry, 1, INTERVAL_MILLIS, 3, 8, 4, List.of(listener));
+    startRequest("r1", false);
+    Thread.sleep(5);
+
+    // when
+    final int taken = detector.scan();
+
+    // then
+    assertThat(taken).isEqualTo(1);
+    assertThat(detector.getSamples()).isEqualTo(1);
+    final SlowRequestSample sample = samples.get(0);
+    assertThat(sample.getRequestId()).isEqualTo("r1");
+    assertThat(sample.getSessionId()).isEqualTo("session");
+    assertThat(sample.getUri()).isEqualTo("/r1");
+    assertThat(sample.getThreadName()).isEqualTo("request-r1");
+    assertThat(sample.getAgeMillis()).isGreaterThanOrEqualTo(5);
+    assertThat(sample.getStackTrace()).isNotEmpty().hasSizeLessThanOrEqualTo(4);
+  }
+
+  @Test
+  public void shouldNotSampleFastRequests() throws InterruptedException {
+
+    // given
+    detector =
+        new SlowRequestDetector(registry, INTERVAL_MILLIS, INTERVAL_MILLIS, 3, 8, 64, List.of());
+    startRequest("r1", false);
+
+    // when
+    final int taken = detector.scan();
+
+    // then
+    assertThat(taken).isZero();
+  }
+
+  @Test
+  public void shouldLimitSamplesPerRequest() throws InterruptedException {
+
+    // given
+    detector = new SlowRequestDetector(registry, 1, INTERVAL_MILLIS, 2, 8, 64, List.of(listener));
+    startRequest("r1", false);
+    Thread.sleep(5);
+
+    // when
+    detector.scan();
+    detector.scan();
+    detector.scan();
+
+    // then
+    assertThat(samples).hasSize(2);
+  }
+
+  @Test
+  public void shouldLimitSamplesPerInterval() throws InterruptedException {
+
+    // given
+    detector = new SlowRequestDetector(registry, 1, INTERVAL_MILLIS, 3, 2, 64, List.of(listener));
+    startRequest("r1", false);
+    startRequest("r2", false);
+    startRequest("r3", false);
+    Thread.sleep(5);
+
+    // when
+    final int taken = detector.scan();
+
+    // then
+    assertThat(taken).isEqualTo(2);
+    assertThat(samples)
+        .extracting(SlowRequestSample::getRequestId)
+        .containsExactly("r1", "r2");
+  }
+
+  @Test
+  public void shouldSkipDetachedRequests() throws InterruptedException {
+
+    // given
+    detector = new SlowRequestDetector(registry, 1, INTERVAL_MILLIS, 3, 8, 64, List.of(listener));
+    startRequest("r1", true);
+    Thread.sleep(5);
+
+    // when
+    final int taken = detector.scan();
+
+    // then
+    assertThat(taken).isZero();
+    assertThat(registry.getEntries()).hasSize(1);
+  }
+
+  /**
+   * Starts a thread that registers a request and waits until the test is over.
+   *
+   * @param requestId the request id
+   * @param detach whether the thread detaches itself from the request, like an async request
+   */
+  private void startRequest(String requestId, boolean detach) throws InterruptedException {
+    final CountDownLatch registered = new CountDownLatch(1);
+    final Thread thread =
+        new Thread(
+            () -> {
+              final int slot =
+                  registry.register(
+                      new DefaultRequestCorrelation("session", requestId), "/" + requestId);
+              if (detach) {
+                registry.detach(slot);
+              }
+              registered.countDown();
+              try {
+                done.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              registry.unregister(slot);
+            },
+            "request-" + requestId);
+    threads.add(thread);
+    thread.start();
+    registered.await();
+    // make sure the requests have different start times
+    Thread.sleep(1);
+  }
+}
@@ -15,6 +15,7 @@ package com.tipsymcstagger.spring.request.correlation.generator;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.tipsymcstagger.spring.request.correlation.support.SessionIdStrategy;
 import org.junit.jupiter.api.Test;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpSession;
@@ -49,4 +50,42 @@ public class DefaultIdGeneratorTest {
 
     assertThat(requestId).isNotNull();
   }
+
+  /** With the existing session strategy, an existing session's id should still be used. */
+  @Test
+  public void generateSessionIdFromExistingSession() {
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    String customSessionId = "CUSTOM_SESSION_ID";
+    request.setSession(new MockHttpSession(null, customSessionId));
+
+    final String sessionId =
+        new DefaultIdGenerator(SessionIdStrategy.EXISTING_SESSION).generateSessionId(request);
+
+    assertThat(sessionId).isEqualTo(customSessionId);
+  }
+
+  /** With the existing session strategy, the session token the client sent should never leak. */
+  @Test
+  public void generateSessionIdIgnoresRequestedSession() {
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setRequestedSessionId("REQUESTED_SESSION_ID");
+
+    final String sessionId =
+        new DefaultIdGenerator(SessionIdStrategy.EXISTING_SESSION).generateSessionId(request);
+
+    assertThat(sessionId).isNotBlank().isNotEqualTo("REQUESTED_SESSION_ID");
+    assertThat(request.getSession(false)).isNull();
+  }
+
+  /** With the existing session strategy, a new id should be generated without a session. */
+  @Test
+  public void generateSessionIdWithoutSession() {
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+
+    final String sessionId =
+        new DefaultIdGenerator(SessionIdStrategy.EXISTING_SESSION).generateSessionId(request);
+
+    assertThat(sessionId).isNotBlank();
+    assertThat(request.getSession(false)).isNull();
+  }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.generator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+
+/**
+ * Tests the {@link PooledIdGenerator} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class PooledIdGeneratorTest {
+
+  private static final int CAPACITY = 8;
+
+  private PooledIdGenerator generator;
+
+  @AfterEach
+  public void tearDown() {
+    generator.close();
+  }
+
+  /** Request ids should come from the pool until it is empty, and be generated inline after. */
+  @Test
+  public void generateRequestIdFromPool() throws InterruptedException {
+    generator = new PooledIdGenerator(new DefaultIdGenerator(), CAPACITY, 3);
+    awaitFullPool();
+    // Stop refilling so we know exactly when the pool runs dry.
+    generator.close();
+
+    final Set<String> ids = new HashSet<>();
+    for (int i = 0; i < CAPACITY + 1; i++) {
+      ids.add(generator.generateRequestId(new MockHttpServletRequest()));
+    }
+
+    assertThat(ids).hasSize(CAPACITY + 1).doesNotContainNull();
+    assertThat(generator.getHits()).isEqualTo(CAPACITY);
+    assertThat(generator.getMisses()).isEqualTo(1);
+    assertThat(generator.getSize()).isZero();
+  }
+
+  /** The pool should be refilled in the background once it has been drained. */
+  @Test
+  public void refillPool() throws InterruptedException {
+    generator = new PooledIdGenerator(new DefaultIdGenerator(), CAPACITY, 3);
+    awaitFullPool();
+
+    for (int i = 0; i < CAPACITY; i++) {
+      generator.generateRequestId(new MockHttpServletRequest());
+    }
+
+    awaitFullPool();
+    assertThat(generator.getSize()).isEqualTo(CAPACITY);
+  }
+
+  /** Session ids should always come from the wrapped generator. */
+  @Test
+  public void generateSessionId() {
+    generator = new PooledIdGenerator(new DefaultIdGenerator(), CAPACITY, 3);
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setSession(new MockHttpSession(null, "CUSTOM_SESSION_ID"));
+
+    assertThat(generator.generateSessionId(request)).isEqualTo("CUSTOM_SESSION_ID");
+  }
+
+  private void awaitFullPool() throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (generator.getSize() < CAPACITY && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertThat(generator.getSize()).isEqualTo(CAPACITY);
+  }
+}
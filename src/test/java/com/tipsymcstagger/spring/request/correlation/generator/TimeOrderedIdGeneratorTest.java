@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.generator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tipsymcstagger.spring.request.correlation.support.IdEncoding;
+import com.tipsymcstagger.spring.request.correlation.support.SessionIdStrategy;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Tests the {@link TimeOrderedIdGenerator} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class TimeOrderedIdGeneratorTest {
+
+  private final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+
+  /** Make sure the request id is a version 7 UUID with the current time in it. */
+  @Test
+  public void generateRequestId() {
+    final long before = System.currentTimeMillis();
+    final String requestId = generator.generateRequestId(new MockHttpServletRequest());
+    final long after = System.currentTimeMillis();
+
+    final UUID uuid = UUID.fromString(requestId);
+    assertThat(uuid.version()).isEqualTo(7);
+    assertThat(uuid.variant()).isEqualTo(2);
+    assertThat(uuid.getMostSignificantBits() >>> 16).isBetween(before, after);
+  }
+
+  /** Ids generated in different milliseconds should sort in the order they were generated. */
+  @Test
+  public void generateRequestIdSortsByTime() throws InterruptedException {
+    final String first = generator.generateRequestId(new MockHttpServletRequest());
+    Thread.sleep(2);
+    final String second = generator.generateRequestId(new MockHttpServletRequest());
+
+    assertThat(first).isLessThan(second);
+  }
+
+  /** Ids generated in the same millisecond still need to be unique. */
+  @Test
+  public void generateRequestIdIsUnique() {
+    final Set<String> ids = new HashSet<>();
+    for (int i = 0; i < 10_000; i++) {
+      ids.add(generator.generateRequestId(new MockHttpServletRequest()));
+    }
+
+    assertThat(ids).hasSize(10_000);
+  }
+
+  /** Base62 ids should be 22 characters long and still sort in the order they were generated. */
+  @Test
+  public void generateBase62RequestIdSortsByTime() throws InterruptedException {
+    final TimeOrderedIdGenerator base62Generator =
+        new TimeOrderedIdGenerator(SessionIdStrategy.HTTP_SESSION, IdEncoding.BASE62);
+    final String first = base62Generator.generateRequestId(new MockHttpServletRequest());
+    Thread.sleep(2);
+    final String second = base62Generator.generateRequestId(new MockHttpServletRequest());
+
+    assertThat(first).hasSize(22).isLessThan(second);
+    assertThat(IdEncoding.BASE62.decode(first)[0] >>> 16).isLessThan(System.currentTimeMillis());
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Tests the {@link ClientHttpCorrelationConfiguration} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class ClientHttpCorrelationConfigurationTest {
+
+  private final ClientHttpCorrelationConfiguration configuration =
+      new ClientHttpCorrelationConfiguration();
+
+  private final ClientHttpRequestCorrelationInterceptor interceptor =
+      configuration.clientHttpRequestCorrelationInterceptor(new RequestCorrelationProperties());
+
+  @Test
+  public void shouldAddInterceptorToBuiltRestTemplatesOnce() {
+
+    // given
+    final RestTemplateBuilder builder =
+        new RestTemplateBuilder(configuration.restTemplateCorrelationCustomizer(interceptor));
+
+    // when
+    final RestTemplate restTemplate = builder.build();
+    ClientHttpCorrelationConfiguration.addInterceptor(restTemplate, interceptor);
+
+    // then
+    assertThat(restTemplate.getInterceptors()).containsExactly(interceptor);
+  }
+
+  @Test
+  public void shouldAddInterceptorToBuiltRestClientsOnce() {
+
+    // given
+    final RestClientCustomizer customizer =
+        new ClientHttpCorrelationConfiguration.RestClientCorrelationConfiguration()
+            .restClientCorrelationCustomizer(interceptor);
+    final RestClient.Builder builder = RestClient.builder();
+
+    // when
+    customizer.customize(builder);
+    customizer.customize(builder);
+
+    // then
+    final List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>();
+    builder.requestInterceptors(interceptors::addAll);
+    assertThat(interceptors).containsExactly(interceptor);
+  }
+}
@@ -21,6 +21,7 @@ import static org.mockito.Mockito.when;
 import com.tipsymcstagger.spring.request.correlation.CorrelationTestUtils;
 import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationConsts;
 import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import com.tipsymcstagger.spring.request.correlation.support.TraceParent;
 import java.io.IOException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -150,4 +151,88 @@ public class ClientHttpRequestCorrelationInterceptorTest {
 
     verify(execution).execute(request, body);
   }
+
+  @Test
+  public void shouldReplaceHeaderSetByCaller() throws IOException {
+
+    // given
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+    final HttpRequest request = mock(HttpRequest.class);
+    final ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    final HttpHeaders headers = new HttpHeaders();
+    headers.add(RequestCorrelationConsts.REQUEST_HEADER_NAME, "OTHER_REQUEST_ID");
+    when(request.getHeaders()).thenReturn(headers);
+
+    // when
+    instance.intercept(request, new byte[0], execution);
+
+    // then
+    assertThat(headers.get(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .containsExactly(REQUEST_ID);
+  }
+
+  @Test
+  public void shouldNotDuplicateHeaderWhenRetried() throws IOException {
+
+    // given
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+    final HttpRequest request = mock(HttpRequest.class);
+    final ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    final HttpHeaders headers = new HttpHeaders();
+    when(request.getHeaders()).thenReturn(headers);
+
+    // when
+    instance.intercept(request, new byte[0], execution);
+    instance.intercept(request, new byte[0], execution);
+
+    // then
+    assertThat(headers.get(RequestCorrelationConsts.SESSION_HEADER_NAME))
+        .containsExactly(SESSION_ID);
+    assertThat(headers.get(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .containsExactly(REQUEST_ID);
+  }
+
+  @Test
+  public void shouldNotDuplicateHeaderWhenRegisteredTwice() throws IOException {
+
+    // given
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+    final ClientHttpRequestCorrelationInterceptor other =
+        new ClientHttpRequestCorrelationInterceptor(properties);
+    final HttpRequest request = mock(HttpRequest.class);
+    final ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    final ClientHttpRequestExecution last = mock(ClientHttpRequestExecution.class);
+    final byte[] body = new byte[0];
+    final HttpHeaders headers = new HttpHeaders();
+    when(request.getHeaders()).thenReturn(headers);
+    when(execution.execute(request, body))
+        .thenAnswer(invocation -> other.intercept(request, body, last));
+
+    // when
+    instance.intercept(request, body, execution);
+
+    // then
+    assertThat(headers.get(RequestCorrelationConsts.SESSION_HEADER_NAME))
+        .containsExactly(SESSION_ID);
+    assertThat(headers.get(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .containsExactly(REQUEST_ID);
+  }
+
+  @Test
+  public void shouldSetTraceParentHeader() throws IOException {
+
+    // given
+    properties.getTraceContext().setEnabled(true);
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+    final HttpRequest request = mock(HttpRequest.class);
+    final ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    final HttpHeaders headers = new HttpHeaders();
+    when(request.getHeaders()).thenReturn(headers);
+
+    // when
+    instance.intercept(request, new byte[0], execution);
+
+    // then
+    assertThat(TraceParent.parseTraceId(headers.getFirst(TraceParent.HEADER_NAME))).isNotNull();
+  }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tipsymcstagger.spring.request.correlation.api.AsyncRequestCorrelationInterceptor;
+import com.tipsymcstagger.spring.request.correlation.support.AsyncInterceptorDispatcherConfiguration;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationConsts;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Tests the {@link MessageCorrelationConfiguration} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class MessageCorrelationConfigurationTest {
+  private static final String SESSION_ID = "TEST_SESSION_ID";
+  private static final String REQUEST_ID = "TEST_REQUEST_ID";
+
+  private final ApplicationContextRunner runner =
+      new ApplicationContextRunner()
+          .withUserConfiguration(
+              AuditConfiguration.class,
+              AsyncInterceptorDispatcherConfiguration.class,
+              MessageCorrelationConfiguration.class);
+
+  private final Message<String> message =
+      MessageBuilder.withPayload("payload")
+          .setHeader(RequestCorrelationConsts.SESSION_HEADER_NAME, SESSION_ID)
+          .setHeader(RequestCorrelationConsts.REQUEST_HEADER_NAME, REQUEST_ID)
+          .build();
+
+  @Test
+  public void shouldDispatchAsyncInterceptors() {
+    runner
+        .withPropertyValues("request.correlation.async-interceptors.enabled=true")
+        .run(
+            context -> {
+              // when
+              final MessageCorrelationInterceptor interceptor =
+                  context.getBean(MessageCorrelationInterceptor.class);
+              interceptor.beforeHandle(message, null, null);
+              interceptor.afterMessageHandled(message, null, null, null);
+
+              // then
+              final AuditInterceptor audit = context.getBean(AuditInterceptor.class);
+              assertThat(audit.threads.poll(5, TimeUnit.SECONDS))
+                  .isEqualTo("request-correlation-interceptors");
+              assertThat(audit.threads.poll(5, TimeUnit.SECONDS))
+                  .isEqualTo("request-correlation-interceptors");
+            });
+  }
+
+  @Test
+  public void shouldCallAsyncInterceptorsOnHandlingThreadWhenDispatchIsDisabled() {
+    runner.run(
+        context -> {
+          // when
+          final MessageCorrelationInterceptor interceptor =
+              context.getBean(MessageCorrelationInterceptor.class);
+          interceptor.beforeHandle(message, null, null);
+          interceptor.afterMessageHandled(message, null, null, null);
+
+          // then
+          final AuditInterceptor audit = context.getBean(AuditInterceptor.class);
+          assertThat(audit.threads)
+              .containsExactly(Thread.currentThread().getName(), Thread.currentThread().getName());
+        });
+  }
+
+  /** The application's configuration, with an asynchronous interceptor. */
+  @Configuration
+  @EnableConfigurationProperties(RequestCorrelationProperties.class)
+  static class AuditConfiguration {
+
+    @Bean
+    public AuditInterceptor auditInterceptor() {
+      return new AuditInterceptor();
+    }
+  }
+
+  /** An asynchronous interceptor that records the threads it is called on. */
+  static class AuditInterceptor implements AsyncRequestCorrelationInterceptor {
+
+    private final LinkedBlockingQueue<String> threads = new LinkedBlockingQueue<>();
+
+    @Override
+    public void afterCorrelationIdSet(String sessionId, String requestId) {
+      threads.add(Thread.currentThread().getName());
+    }
+
+    @Override
+    public void cleanUp(String sessionId, String requestId) {
+      threads.add(Thread.currentThread().getName());
+    }
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationHolderStrategy;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationInterceptor;
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.CorrelationHolderMode;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationConsts;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationHolder;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Tests the {@link MessageCorrelationInterceptor} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class MessageCorrelationInterceptorTest {
+  private static final String SESSION_ID = "TEST_SESSION_ID";
+  private static final String REQUEST_ID = "TEST_REQUEST_ID";
+
+  private final RequestCorrelationInterceptor interceptor =
+      mock(RequestCorrelationInterceptor.class);
+
+  private final List<RequestCorrelationInterceptor> interceptors = new ArrayList<>();
+
+  private final RequestCorrelationProperties properties = new RequestCorrelationProperties();
+
+  private final LinkedBlockingQueue<Message<?>> received = new LinkedBlockingQueue<>();
+
+  private final LinkedBlockingQueue<String> boundRequestIds = new LinkedBlockingQueue<>();
+
+  private ExecutorService executor;
+
+  /** The holder strategy in place before the test, restored after it. */
+  private RequestCorrelationHolderStrategy previousStrategy;
+
+  @BeforeEach
+  public void setUp() {
+    previousStrategy = RequestCorrelationHolder.getStrategy();
+    interceptors.add(interceptor);
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    executor.shutdownNow();
+    RequestCorrelationHolder.setStrategy(previousStrategy);
+  }
+
+  @Test
+  public void shouldAddHeadersOnSend() throws Exception {
+
+    // given
+    final ExecutorSubscribableChannel channel = createChannel(null);
+
+    // when
+    RequestCorrelationHolder.callWith(
+        new DefaultRequestCorrelation(SESSION_ID, REQUEST_ID),
+        () -> channel.send(MessageBuilder.withPayload("payload").build()));
+
+    // then
+    final Message<?> message = received.poll();
+    assertThat(message.getHeaders().get(RequestCorrelationConsts.SESSION_HEADER_NAME))
+        .isEqualTo(SESSION_ID);
+    assertThat(message.getHeaders().get(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .isEqualTo(REQUEST_ID);
+  }
+
+  @Test
+  public void shouldRestoreCorrelationOnAnotherThread() throws Exception {
+
+    // given
+    final ExecutorSubscribableChannel channel = createChannel(executor);
+
+    // when
+    RequestCorrelationHolder.callWith(
+        new DefaultRequestCorrelation(SESSION_ID, REQUEST_ID),
+        () -> channel.send(MessageBuilder.withPayload("payload").build()));
+
+    // then
+    assertThat(boundRequestIds.poll(5, TimeUnit.SECONDS)).isEqualTo(REQUEST_ID);
+    executor.shutdown();
+    assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    verify(interceptor).afterCorrelationIdSet(SESSION_ID, REQUEST_ID);
+    verify(interceptor).cleanUp(SESSION_ID, REQUEST_ID);
+  }
+
+  @Test
+  public void shouldBindIdsOfReceivedMessage() {
+
+    // given
+    final ExecutorSubscribableChannel channel = createChannel(null);
+    final Message<String> message =
+        MessageBuilder.withPayload("payload")
+            .setHeader(RequestCorrelationConsts.SESSION_HEADER_NAME, SESSION_ID)
+            .setHeader(RequestCorrelationConsts.REQUEST_HEADER_NAME, REQUEST_ID)
+            .build();
+
+    // when
+    channel.send(message);
+
+    // then
+    assertThat(received.poll()).isSameAs(message);
+    assertThat(boundRequestIds.poll()).isEqualTo(REQUEST_ID);
+    assertThat(RequestCorrelationHolder.getCorrelation()).isNull();
+    verify(interceptor).afterCorrelationIdSet(SESSION_ID, REQUEST_ID);
+    verify(interceptor).cleanUp(SESSION_ID, REQUEST_ID);
+  }
+
+  @Test
+  public void shouldPassUncorrelatedMessagesThrough() {
+
+    // given
+    final ExecutorSubscribableChannel channel = createChannel(null);
+    final Message<String> message = MessageBuilder.withPayload("payload").build();
+
+    // when
+    channel.send(message);
+
+    // then
+    assertThat(received.poll()).isSameAs(message);
+    assertThat(boundRequestIds.poll()).isEmpty();
+    verify(interceptor, never()).afterCorrelationIdSet(any(), any());
+  }
+
+  @Test
+  public void shouldHandleWithoutBindingWithScopedValueStrategy() {
+
+    // given
+    final RequestCorrelationHolderStrategy strategy;
+    try {
+      strategy = RequestCorrelationHolder.createStrategy(CorrelationHolderMode.SCOPED_VALUE);
+    } catch (IllegalStateException e) {
+      assumeTrue(false, "scoped values unavailable");
+      return;
+    }
+    RequestCorrelationHolder.setStrategy(strategy);
+
+    // when/then
+    shouldHandleWithoutBinding();
+  }
+
+  @Test
+  public void shouldHandleWithoutBindingWithCallScopedStrategy() {
+
+    // given
+    RequestCorrelationHolder.setStrategy(new CallScopedStrategy());
+
+    // when/then
+    shouldHandleWithoutBinding();
+  }
+
+  @Test
+  public void shouldIgnoreInvalidIds() {
+
+    // given
+    final MessageCorrelationInterceptor instance =
+        new MessageCorrelationInterceptor(interceptors, properties);
+    final Message<String> message =
+        MessageBuilder.withPayload("payload")
+            .setHeader(RequestCorrelationConsts.REQUEST_HEADER_NAME, "request id\r\n")
+            .build();
+
+    // then
+    assertThat(instance.getCorrelation(message)).isNull();
+  }
+
+  /**
+   * Sends two correlated messages with a holder strategy that can't bind the ids, and checks that
+   * they are handled without a correlation while the interceptors are still called.
+   */
+  private void shouldHandleWithoutBinding() {
+    final ExecutorSubscribableChannel channel = createChannel(null);
+    final Message<String> message =
+        MessageBuilder.withPayload("payload")
+            .setHeader(RequestCorrelationConsts.SESSION_HEADER_NAME, SESSION_ID)
+            .setHeader(RequestCorrelationConsts.REQUEST_HEADER_NAME, REQUEST_ID)
+            .build();
+
+    // when
+    channel.send(message);
+    channel.send(message);
+
+    // then
+    assertThat(received).hasSize(2);
+    assertThat(boundRequestIds).containsExactly("", "");
+    verify(interceptor, times(2)).afterCorrelationIdSet(SESSION_ID, REQUEST_ID);
+    verify(interceptor, times(2)).cleanUp(SESSION_ID, REQUEST_ID);
+  }
+
+  private ExecutorSubscribableChannel createChannel(ExecutorService channelExecutor) {
+    final ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(channelExecutor);
+    channel.addInterceptor(new MessageCorrelationInterceptor(interceptors, properties));
+    channel.subscribe(
+        message -> {
+          received.add(message);
+          final String requestId = RequestCorrelationUtils.getCurrentRequestId();
+          boundRequestIds.add(requestId != null ? requestId : "");
+        });
+    return channel;
+  }
+
+  /** A strategy that, like scoped values, can only bind a correlation for the length of a call. */
+  private static class CallScopedStrategy implements RequestCorrelationHolderStrategy {
+
+    private RequestCorrelation correlation;
+
+    @Override
+    public RequestCorrelation getCorrelation() {
+      return correlation;
+    }
+
+    @Override
+    public <T> T callWith(RequestCorrelation correlation, Callable<T> task) throws Exception {
+      final RequestCorrelation previous = this.correlation;
+      this.correlation = correlation;
+      try {
+        return task.call();
+      } finally {
+        this.correlation = previous;
+      }
+    }
+  }
+}
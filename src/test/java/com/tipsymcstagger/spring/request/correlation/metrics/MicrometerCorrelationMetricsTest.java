@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationInterceptor;
+import com.tipsymcstagger.spring.request.correlation.filter.RequestCorrelationFilter;
+import com.tipsymcstagger.spring.request.correlation.generator.DefaultIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.generator.PooledIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationConsts;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Tests the {@link MicrometerCorrelationMetrics} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class MicrometerCorrelationMetricsTest {
+
+  private SimpleMeterRegistry registry;
+
+  private MicrometerCorrelationMetrics metrics;
+
+  @BeforeEach
+  public void setUp() {
+    registry = new SimpleMeterRegistry();
+    metrics = new MicrometerCorrelationMetrics(registry);
+  }
+
+  @Test
+  public void shouldCountPropagatedAndGeneratedIds() throws IOException, ServletException {
+
+    // given
+    final RequestCorrelationFilter filter =
+        RequestCorrelationFilter.builder(
+                new DefaultIdGenerator(), List.of(), new RequestCorrelationProperties())
+            .metrics(metrics)
+            .build();
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader(RequestCorrelationConsts.SESSION_HEADER_NAME, "session");
+
+    // when
+    filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+    // then
+    assertThat(idCount("session", "propagated")).isEqualTo(1);
+    assertThat(idCount("session", "generated")).isZero();
+    assertThat(idCount("request", "propagated")).isZero();
+    assertThat(idCount("request", "generated")).isEqualTo(1);
+    assertThat(idCount("request", "rejected")).isZero();
+    assertThat(
+            registry
+                .get(MicrometerCorrelationMetrics.GENERATION)
+                .tag("type", "request")
+                .timer()
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void shouldCountRejectedIds() throws IOException, ServletException {
+
+    // given
+    final RequestCorrelationFilter filter =
+        RequestCorrelationFilter.builder(
+                new DefaultIdGenerator(), List.of(), new RequestCorrelationProperties())
+            .metrics(metrics)
+            .build();
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader(RequestCorrelationConsts.REQUEST_HEADER_NAME, "not a valid id");
+
+    // when
+    filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+    // then
+    assertThat(idCount("request", "rejected")).isEqualTo(1);
+    assertThat(idCount("request", "propagated")).isZero();
+    assertThat(idCount("request", "generated")).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldTimeInterceptors() {
+
+    // given
+    final RequestCorrelationInterceptor interceptor = mock(RequestCorrelationInterceptor.class);
+    final RequestCorrelationInterceptor timed = metrics.instrument(List.of(interceptor)).get(0);
+
+    // when
+    timed.afterCorrelationIdSet("session", "request");
+    timed.cleanUp("session", "request");
+
+    // then
+    verify(interceptor).afterCorrelationIdSet("session", "request");
+    verify(interceptor).cleanUp("session", "request");
+    assertThat(interceptorCount("set")).isEqualTo(1);
+    assertThat(interceptorCount("cleanup")).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldExposePoolMeters() {
+
+    // given
+    try (PooledIdGenerator pool = new PooledIdGenerator(new DefaultIdGenerator(), 4, 2)) {
+
+      // when
+      metrics.instrument(pool);
+
+      // then
+      assertThat(registry.find(MicrometerCorrelationMetrics.POOL + ".hits").functionCounter())
+          .isNotNull();
+      assertThat(registry.find(MicrometerCorrelationMetrics.POOL + ".misses").functionCounter())
+          .isNotNull();
+      assertThat(registry.find(MicrometerCorrelationMetrics.POOL + ".size").gauge()).isNotNull();
+    }
+  }
+
+  private double idCount(String type, String source) {
+    return registry
+        .get(MicrometerCorrelationMetrics.IDS)
+        .tag("type", type)
+        .tag("source", source)
+        .counter()
+        .count();
+  }
+
+  private long interceptorCount(String phase) {
+    return registry
+        .get(MicrometerCorrelationMetrics.INTERCEPTOR)
+        .tag("phase", phase)
+        .timer()
+        .count();
+  }
+}
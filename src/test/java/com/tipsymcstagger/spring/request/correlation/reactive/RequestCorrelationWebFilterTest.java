@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationInterceptor;
+import com.tipsymcstagger.spring.request.correlation.generator.DefaultReactiveIdGenerator;
+import com.tipsymcstagger.spring.request.correlation.metrics.CorrelationMetrics;
+import com.tipsymcstagger.spring.request.correlation.support.ReactiveRequestCorrelationUtils;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationConsts;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Tests the {@link RequestCorrelationWebFilter} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class RequestCorrelationWebFilterTest {
+
+  private RequestCorrelationWebFilter instance;
+
+  private List<RequestCorrelationInterceptor> interceptors = new ArrayList<>();
+
+  private RequestCorrelationProperties properties = new RequestCorrelationProperties();
+
+  /** The exchange the filter passed down the chain. */
+  private ServerWebExchange filteredExchange;
+
+  /** The correlation the rest of the chain found in the Reactor Context. */
+  private RequestCorrelation contextCorrelation;
+
+  private final WebFilterChain chain =
+      exchange ->
+          Mono.deferContextual(
+              context -> {
+                filteredExchange = exchange;
+                contextCorrelation = ReactiveRequestCorrelationUtils.getCorrelation(context);
+                return Mono.empty();
+              });
+
+  @BeforeEach
+  public void setUp() {
+
+    instance =
+        new RequestCorrelationWebFilter(new DefaultReactiveIdGenerator(), interceptors, properties);
+  }
+
+  @Test
+  public void shouldInitiateCorrelationId() {
+
+    // given
+    final MockServerWebExchange exchange =
+        MockServerWebExchange.from(MockServerHttpRequest.get("/ids"));
+
+    // when
+    instance.filter(exchange, chain).block();
+
+    // then
+    final String sessionId =
+        filteredExchange
+            .getRequest()
+            .getHeaders()
+            .getFirst(RequestCorrelationConsts.SESSION_HEADER_NAME);
+    final String requestId =
+        filteredExchange
+            .getRequest()
+            .getHeaders()
+            .getFirst(RequestCorrelationConsts.REQUEST_HEADER_NAME);
+    assertThat(sessionId).isNotBlank();
+    assertThat(requestId).isNotBlank();
+    assertThat(contextCorrelation).isNotNull();
+    assertThat(contextCorrelation.getSessionId()).isEqualTo(sessionId);
+    assertThat(contextCorrelation.getRequestId()).isEqualTo(requestId);
+    assertThat(exchange.<Object>getAttribute(RequestCorrelationConsts.ATTRIBUTE_NAME))
+        .isSameAs(contextCorrelation);
+  }
+
+  @Test
+  public void shouldUseExistingCorrelationId() {
+
+    // given
+    final String sessionId = UUID.randomUUID().toString();
+    final String requestId = UUID.randomUUID().toString();
+    final MockServerWebExchange exchange =
+        MockServerWebExchange.from(
+            MockServerHttpRequest.get("/ids")
+                .header(RequestCorrelationConsts.SESSION_HEADER_NAME, sessionId)
+                .header(RequestCorrelationConsts.REQUEST_HEADER_NAME, requestId));
+
+    // when
+    instance.filter(exchange, chain).block();
+
+    // then
+    assertThat(filteredExchange).isSameAs(exchange);
+    assertThat(contextCorrelation).isNotNull();
+    assertThat(contextCorrelation.getSessionId()).isEqualTo(sessionId);
+    assertThat(contextCorrelation.getRequestId()).isEqualTo(requestId);
+  }
+
+  @Test
+  public void shouldInvokeInterceptor() {
+
+    // given
+    final String sessionId = UUID.randomUUID().toString();
+    final String requestId = UUID.randomUUID().toString();
+    final MockServerWebExchange exchange =
+        MockServerWebExchange.from(
+            MockServerHttpRequest.get("/ids")
+                .header(RequestCorrelationConsts.SESSION_HEADER_NAME, sessionId)
+                .header(RequestCorrelationConsts.REQUEST_HEADER_NAME, requestId));
+    final RequestCorrelationInterceptor interceptor = mock(RequestCorrelationInterceptor.class);
+    interceptors.add(interceptor);
+
+    // when
+    instance.filter(exchange, chain).block();
+
+    // then
+    verify(interceptor).afterCorrelationIdSet(sessionId, requestId);
+    verify(interceptor).cleanUp(sessionId, requestId);
+  }
+
+  @Test
+  public void shouldRecordRejectedIds() {
+
+    // given
+    final CorrelationMetrics metrics = mock(CorrelationMetrics.class);
+    instance =
+        new RequestCorrelationWebFilter(
+            new DefaultReactiveIdGenerator(), interceptors, properties, metrics);
+    final String requestId = StringUtils.repeat('a', 129);
+    final MockServerWebExchange exchange =
+        MockServerWebExchange.from(
+            MockServerHttpRequest.get("/ids")
+                .header(RequestCorrelationConsts.SESSION_HEADER_NAME, "session id")
+                .header(RequestCorrelationConsts.REQUEST_HEADER_NAME, requestId));
+
+    // when
+    instance.filter(exchange, chain).block();
+
+    // then
+    assertThat(contextCorrelation.getSessionId()).isNotBlank().isNotEqualTo("session id");
+    assertThat(contextCorrelation.getRequestId()).isNotBlank().isNotEqualTo(requestId);
+    verify(metrics).sessionIdRejected();
+    verify(metrics).requestIdRejected();
+    verify(metrics, never()).sessionIdPropagated();
+    verify(metrics, never()).requestIdPropagated();
+  }
+
+  @Test
+  public void shouldRecordPropagatedIds() {
+
+    // given
+    final CorrelationMetrics metrics = mock(CorrelationMetrics.class);
+    instance =
+        new RequestCorrelationWebFilter(
+            new DefaultReactiveIdGenerator(), interceptors, properties, metrics);
+    final String sessionId = UUID.randomUUID().toString();
+    final String requestId = UUID.randomUUID().toString();
+    final MockServerWebExchange exchange =
+        MockServerWebExchange.from(
+            MockServerHttpRequest.get("/ids")
+                .header(RequestCorrelationConsts.SESSION_HEADER_NAME, sessionId)
+                .header(RequestCorrelationConsts.REQUEST_HEADER_NAME, requestId));
+
+    // when
+    instance.filter(exchange, chain).block();
+
+    // then
+    verify(metrics).sessionIdPropagated();
+    verify(metrics).requestIdPropagated();
+    verify(metrics, never()).sessionIdRejected();
+    verify(metrics, never()).requestIdRejected();
+  }
+}
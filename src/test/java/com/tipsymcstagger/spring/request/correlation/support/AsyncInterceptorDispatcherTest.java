@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tipsymcstagger.spring.request.correlation.api.AsyncRequestCorrelationInterceptor;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationInterceptor;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link AsyncInterceptorDispatcher} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class AsyncInterceptorDispatcherTest {
+
+  private AsyncInterceptorDispatcher dispatcher;
+
+  @AfterEach
+  public void tearDown() {
+    dispatcher.close();
+  }
+
+  @Test
+  public void shouldLeaveSynchronousInterceptorsAlone() {
+
+    // given
+    dispatcher = new AsyncInterceptorDispatcher(4, 2, AsyncOverflowPolicy.DROP);
+    final RequestCorrelationInterceptor sync = new RecordingInterceptor();
+
+    // when
+    final List<RequestCorrelationInterceptor> wrapped = dispatcher.wrap(List.of(sync));
+
+    // then
+    assertThat(wrapped).containsExactly(sync);
+  }
+
+  @Test
+  public void shouldCallAsynchronousInterceptorsInOrderOffTheRequestThread() {
+
+    // given
+    dispatcher = new AsyncInterceptorDispatcher(4, 2, AsyncOverflowPolicy.DROP);
+    final AsyncRecordingInterceptor async = new AsyncRecordingInterceptor();
+    final RequestCorrelationInterceptor wrapped = dispatcher.wrap(List.of(async)).get(0);
+
+    // when
+    wrapped.afterCorrelationIdSet("session", "request");
+    wrapped.cleanUp("session", "request");
+    dispatcher.close();
+
+    // then
+    assertThat(async.calls).containsExactly("set request", "cleanUp request");
+    assertThat(async.threads).doesNotContain(Thread.currentThread());
+  }
+
+  @Test
+  public void shouldDropWhenQueueIsFull() throws InterruptedException {
+
+    // given
+    dispatcher = new AsyncInterceptorDispatcher(1, 1, AsyncOverflowPolicy.DROP);
+    final BlockingInterceptor blocking = new BlockingInterceptor();
+    final RequestCorrelationInterceptor wrapped = dispatcher.wrap(List.of(blocking)).get(0);
+
+    // when
+    wrapped.afterCorrelationIdSet("session", "first");
+    assertThat(blocking.started.await(5, TimeUnit.SECONDS)).isTrue();
+    wrapped.afterCorrelationIdSet("session", "queued");
+    wrapped.afterCorrelationIdSet("session", "dropped");
+    blocking.release.countDown();
+    dispatcher.close();
+
+    // then
+    assertThat(dispatcher.getDropped()).isEqualTo(1);
+    assertThat(blocking.calls).containsExactly("set first", "set queued");
+  }
+
+  @Test
+  public void shouldRunOnCallerWhenQueueIsFull() throws InterruptedException {
+
+    // given
+    dispatcher = new AsyncInterceptorDispatcher(1, 1, AsyncOverflowPolicy.CALLER_RUNS);
+    final BlockingInterceptor blocking = new BlockingInterceptor();
+    final RequestCorrelationInterceptor wrapped = dispatcher.wrap(List.of(blocking)).get(0);
+
+    // when
+    wrapped.afterCorrelationIdSet("session", "first");
+    assertThat(blocking.started.await(5, TimeUnit.SECONDS)).isTrue();
+    wrapped.afterCorrelationIdSet("session", "queued");
+    wrapped.afterCorrelationIdSet("session", "inline");
+
+    // then
+    assertThat(blocking.calls).containsExactly("set first", "set inline");
+    assertThat(blocking.threads.get(1)).isSameAs(Thread.currentThread());
+    blocking.release.countDown();
+  }
+
+  @Test
+  public void shouldKeepCallbacksOfRequestTogetherWhenDropping() throws InterruptedException {
+
+    // given
+    dispatcher = new AsyncInterceptorDispatcher(1, 1, AsyncOverflowPolicy.DROP);
+    final BlockingInterceptor blocking = new BlockingInterceptor();
+    final RequestCorrelationInterceptor wrapped = dispatcher.wrap(List.of(blocking)).get(0);
+
+    // when
+    wrapped.afterCorrelationIdSet("session", "first");
+    assertThat(blocking.started.await(5, TimeUnit.SECONDS)).isTrue();
+    wrapped.afterCorrelationIdSet("session", "queued");
+    wrapped.afterCorrelationIdSet("session", "dropped");
+    wrapped.cleanUp("session", "dropped");
+    wrapped.cleanUp("session", "queued");
+    blocking.release.countDown();
+    dispatcher.close();
+
+    // then
+    assertThat(dispatcher.getDropped()).isEqualTo(2);
+    assertThat(blocking.calls).containsExactly("set first", "set queued", "cleanUp queued");
+  }
+
+  @Test
+  public void shouldKeepCallbacksOfRequestTogetherOnCaller() throws InterruptedException {
+
+    // given
+    dispatcher = new AsyncInterceptorDispatcher(1, 1, AsyncOverflowPolicy.CALLER_RUNS);
+    final BlockingInterceptor blocking = new BlockingInterceptor();
+    final RequestCorrelationInterceptor wrapped = dispatcher.wrap(List.of(blocking)).get(0);
+
+    // when
+    wrapped.afterCorrelationIdSet("session", "first");
+    assertThat(blocking.started.await(5, TimeUnit.SECONDS)).isTrue();
+    wrapped.afterCorrelationIdSet("session", "queued");
+    wrapped.afterCorrelationIdSet("session", "inline");
+    wrapped.cleanUp("session", "inline");
+
+    // then
+    assertThat(blocking.calls).containsExactly("set first", "set inline", "cleanUp inline");
+    assertThat(blocking.threads.subList(1, 3)).containsOnly(Thread.currentThread());
+    blocking.release.countDown();
+  }
+
+  @Test
+  public void shouldKeepRunningWhenInterceptorThrowsError() {
+
+    // given
+    dispatcher = new AsyncInterceptorDispatcher(4, 1, AsyncOverflowPolicy.DROP);
+    final FailingInterceptor failing = new FailingInterceptor();
+    final RequestCorrelationInterceptor wrapped = dispatcher.wrap(List.of(failing)).get(0);
+
+    // when
+    wrapped.afterCorrelationIdSet("session", "fails");
+    wrapped.afterCorrelationIdSet("session", "works");
+    dispatcher.close();
+
+    // then
+    assertThat(failing.calls).containsExactly("set fails", "set works");
+  }
+
+  /** An interceptor that records its calls. */
+  private static class RecordingInterceptor implements RequestCorrelationInterceptor {
+
+    final List<String> calls = new CopyOnWriteArrayList<>();
+
+    final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void afterCorrelationIdSet(String sessionId, String requestId) {
+      threads.add(Thread.currentThread());
+      calls.add("set " + requestId);
+    }
+
+    @Override
+    public void cleanUp(String sessionId, String requestId) {
+      threads.add(Thread.currentThread());
+      calls.add("cleanUp " + requestId);
+    }
+  }
+
+  /** An asynchronous interceptor that records its calls. */
+  private static class AsyncRecordingInterceptor extends RecordingInterceptor
+      implements AsyncRequestCorrelationInterceptor {}
+
+  /** An asynchronous interceptor that blocks the worker in its first call. */
+  private static class BlockingInterceptor extends AsyncRecordingInterceptor {
+
+    final CountDownLatch started = new CountDownLatch(1);
+
+    final CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public void afterCorrelationIdSet(String sessionId, String requestId) {
+      super.afterCorrelationIdSet(sessionId, requestId);
+      if (started.getCount() > 0) {
+        started.countDown();
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  /** An asynchronous interceptor that throws an error for the request with the id "fails". */
+  private static class FailingInterceptor extends AsyncRecordingInterceptor {
+
+    @Override
+    public void afterCorrelationIdSet(String sessionId, String requestId) {
+      super.afterCorrelationIdSet(sessionId, requestId);
+      if ("fails".equals(requestId)) {
+        throw new AssertionError("failed");
+      }
+    }
+  }
+}
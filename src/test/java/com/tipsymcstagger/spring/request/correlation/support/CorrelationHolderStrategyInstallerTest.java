@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationHolderStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link CorrelationHolderStrategyInstaller} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class CorrelationHolderStrategyInstallerTest {
+
+  /** The holder strategy in place before the test, restored after it. */
+  private RequestCorrelationHolderStrategy previousStrategy;
+
+  @BeforeEach
+  public void setUp() {
+    previousStrategy = RequestCorrelationHolder.getStrategy();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    RequestCorrelationHolder.setStrategy(previousStrategy);
+  }
+
+  @Test
+  public void shouldRestorePreviousStrategyWhenDestroyed() {
+
+    // given
+    final RequestCorrelationHolderStrategy strategy = new ThreadLocalCorrelationHolderStrategy();
+    final CorrelationHolderStrategyInstaller installer =
+        new CorrelationHolderStrategyInstaller(strategy);
+
+    // when
+    installer.afterPropertiesSet();
+    final RequestCorrelationHolderStrategy installed = RequestCorrelationHolder.getStrategy();
+    installer.destroy();
+
+    // then
+    assertThat(installed).isSameAs(strategy);
+    assertThat(RequestCorrelationHolder.getStrategy()).isSameAs(previousStrategy);
+  }
+
+  @Test
+  public void shouldRestoreNestedContextsInOrder() {
+
+    // given
+    final RequestCorrelationHolderStrategy parentStrategy =
+        new ThreadLocalCorrelationHolderStrategy();
+    final RequestCorrelationHolderStrategy childStrategy =
+        new ThreadLocalCorrelationHolderStrategy();
+    final CorrelationHolderStrategyInstaller parent =
+        new CorrelationHolderStrategyInstaller(parentStrategy);
+    final CorrelationHolderStrategyInstaller child =
+        new CorrelationHolderStrategyInstaller(childStrategy);
+
+    // when
+    parent.afterPropertiesSet();
+    child.afterPropertiesSet();
+    child.destroy();
+    final RequestCorrelationHolderStrategy afterChild = RequestCorrelationHolder.getStrategy();
+    parent.destroy();
+
+    // then
+    assertThat(afterChild).isSameAs(parentStrategy);
+    assertThat(RequestCorrelationHolder.getStrategy()).isSameAs(previousStrategy);
+  }
+
+  @Test
+  public void shouldNotRestoreWhenReplacedByAnotherContext() {
+
+    // given
+    final RequestCorrelationHolderStrategy strategy = new ThreadLocalCorrelationHolderStrategy();
+    final RequestCorrelationHolderStrategy other = new ThreadLocalCorrelationHolderStrategy();
+    final CorrelationHolderStrategyInstaller installer =
+        new CorrelationHolderStrategyInstaller(strategy);
+
+    // when
+    installer.afterPropertiesSet();
+    RequestCorrelationHolder.setStrategy(other);
+    installer.destroy();
+
+    // then
+    assertThat(RequestCorrelationHolder.getStrategy()).isSameAs(other);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.UUID;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link CorrelationIdValidator} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class CorrelationIdValidatorTest {
+
+  private final CorrelationIdValidator validator =
+      CorrelationIdValidator.from(new RequestCorrelationProperties().getValidation());
+
+  @Test
+  public void shouldAcceptUuids() {
+    assertThat(validator.isValid(UUID.randomUUID().toString())).isTrue();
+  }
+
+  @Test
+  public void shouldRejectLongIds() {
+    assertThat(validator.isValid(StringUtils.repeat('a', 128))).isTrue();
+    assertThat(validator.isValid(StringUtils.repeat('a', 129))).isFalse();
+  }
+
+  @Test
+  public void shouldRejectDisallowedCharacters() {
+    assertThat(validator.isValid("abc def")).isFalse();
+    assertThat(validator.isValid("abc\r\nX-Injected: 1")).isFalse();
+    assertThat(validator.isValid("caf\u00e9")).isFalse();
+  }
+
+  @Test
+  public void shouldParseRangesAndLiteralDashes() {
+
+    // given
+    final CorrelationIdValidator custom = new CorrelationIdValidator(8, "-a-c9");
+
+    // then
+    assertThat(custom.isValid("-abc9")).isTrue();
+    assertThat(custom.isValid("abcd")).isFalse();
+    assertThat(custom.isValid("8")).isFalse();
+  }
+
+  @Test
+  public void shouldAcceptEverythingWhenDisabled() {
+
+    // given
+    final RequestCorrelationProperties properties = new RequestCorrelationProperties();
+    properties.getValidation().setEnabled(false);
+
+    // when
+    final CorrelationIdValidator disabled =
+        CorrelationIdValidator.from(properties.getValidation());
+
+    // then
+    assertThat(disabled.isValid(StringUtils.repeat(' ', 1000))).isTrue();
+  }
+
+  @Test
+  public void shouldRejectNonAsciiCharacterSets() {
+    assertThatThrownBy(() -> new CorrelationIdValidator(8, "a-\u00ff"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
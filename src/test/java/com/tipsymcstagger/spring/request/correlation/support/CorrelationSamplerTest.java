@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link CorrelationSampler} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class CorrelationSamplerTest {
+
+  @Test
+  public void shouldDecideTheSameWayForTheSameId() {
+
+    // given
+    final String requestId = UUID.randomUUID().toString();
+
+    // then
+    assertThat(new CorrelationSampler(0.5).isSampled(requestId))
+        .isEqualTo(new CorrelationSampler(0.5).isSampled(requestId));
+  }
+
+  @Test
+  public void shouldSampleAllOrNothing() {
+
+    // given
+    final CorrelationSampler all = new CorrelationSampler(1);
+    final CorrelationSampler none = new CorrelationSampler(0);
+
+    // then
+    for (int i = 0; i < 1000; i++) {
+      final String requestId = UUID.randomUUID().toString();
+      assertThat(all.isSampled(requestId)).isTrue();
+      assertThat(none.isSampled(requestId)).isFalse();
+    }
+  }
+
+  @Test
+  public void shouldSampleRoughlyTheRate() {
+
+    // given
+    final CorrelationSampler sampler = new CorrelationSampler(0.1);
+    int sampled = 0;
+
+    // when
+    for (int i = 0; i < 10000; i++) {
+      if (sampler.isSampled(UUID.randomUUID().toString())) {
+        sampled++;
+      }
+    }
+
+    // then
+    assertThat(sampled).isBetween(700, 1300);
+  }
+
+  @Test
+  public void shouldParseAndFormatDecisions() {
+    assertThat(CorrelationSampler.parse("1")).isTrue();
+    assertThat(CorrelationSampler.parse("true")).isTrue();
+    assertThat(CorrelationSampler.parse("0")).isFalse();
+    assertThat(CorrelationSampler.parse("False")).isFalse();
+    assertThat(CorrelationSampler.parse("maybe")).isNull();
+    assertThat(CorrelationSampler.parse(null)).isNull();
+    assertThat(CorrelationSampler.format(true)).isEqualTo(CorrelationSampler.SAMPLED);
+    assertThat(CorrelationSampler.format(false)).isEqualTo(CorrelationSampler.NOT_SAMPLED);
+  }
+
+  @Test
+  public void shouldRejectInvalidRates() {
+    assertThatThrownBy(() -> new CorrelationSampler(1.5))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new CorrelationSampler(-0.1))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
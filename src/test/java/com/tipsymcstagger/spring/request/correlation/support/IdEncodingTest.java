@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link IdEncoding} enum.
+ *
+ * @author Steven C. Saliman
+ */
+public class IdEncodingTest {
+
+  @Test
+  public void shouldEncodeUuids() {
+
+    // given
+    final UUID uuid = UUID.randomUUID();
+
+    // then
+    assertThat(
+            IdEncoding.UUID.encode(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()))
+        .isEqualTo(uuid.toString());
+  }
+
+  @Test
+  public void shouldEncodeBase64UrlLikeTheJdk() {
+    for (int i = 0; i < 1000; i++) {
+
+      // given
+      final UUID uuid = UUID.randomUUID();
+      final byte[] bytes = toBytes(uuid);
+
+      // when
+      final String id =
+          IdEncoding.BASE64URL.encode(
+              uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+
+      // then
+      assertThat(id).isEqualTo(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes));
+      assertThat(IdEncoding.BASE64URL.decode(id))
+          .containsExactly(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+  }
+
+  @Test
+  public void shouldEncodeBase62AsNumber() {
+    for (int i = 0; i < 1000; i++) {
+
+      // given
+      final UUID uuid = UUID.randomUUID();
+      final BigInteger number = new BigInteger(1, toBytes(uuid));
+
+      // when
+      final String id =
+          IdEncoding.BASE62.encode(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+
+      // then
+      assertThat(id).hasSize(22).matches("[0-9A-Za-z]+");
+      assertThat(fromBase62(id)).isEqualTo(number);
+      assertThat(IdEncoding.BASE62.decode(id))
+          .containsExactly(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+  }
+
+  @Test
+  public void shouldEncodeExtremes() {
+    assertThat(IdEncoding.BASE62.encode(0, 0)).isEqualTo("0000000000000000000000");
+    assertThat(IdEncoding.BASE62.encode(-1, -1)).isEqualTo("7n42DGM5Tflk9n8mt7Fhc7");
+    assertThat(IdEncoding.BASE64URL.encode(-1, -1)).isEqualTo("_____________________w");
+    assertThat(IdEncoding.BASE62.decode("7n42DGM5Tflk9n8mt7Fhc7")).containsExactly(-1L, -1L);
+  }
+
+  @Test
+  public void shouldRejectInvalidIds() {
+    assertThatThrownBy(() -> IdEncoding.BASE62.decode("zzzzzzzzzzzzzzzzzzzzzz"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> IdEncoding.BASE62.decode("too-short"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> IdEncoding.BASE64URL.decode("AAAAAAAAAAAAAAAAAAAAAB"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> IdEncoding.BASE64URL.decode("AAAAAAAAAAAAAAAAAAAA+A"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static byte[] toBytes(UUID uuid) {
+    return ByteBuffer.allocate(16)
+        .putLong(uuid.getMostSignificantBits())
+        .putLong(uuid.getLeastSignificantBits())
+        .array();
+  }
+
+  private static BigInteger fromBase62(String id) {
+    final String digits = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    BigInteger value = BigInteger.ZERO;
+    for (int i = 0; i < id.length(); i++) {
+      value =
+          value
+              .multiply(BigInteger.valueOf(62))
+              .add(BigInteger.valueOf(digits.indexOf(id.charAt(i))));
+    }
+    return value;
+  }
+}
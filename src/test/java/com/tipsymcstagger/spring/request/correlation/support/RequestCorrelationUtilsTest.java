@@ -15,6 +15,7 @@ package com.tipsymcstagger.spring.request.correlation.support;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
 import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
 import java.util.UUID;
 import org.junit.jupiter.api.AfterEach;
@@ -80,4 +81,41 @@ public class RequestCorrelationUtilsTest {
     assertThat(sessionId).isEqualTo(currentSessionId);
     assertThat(requestId).isEqualTo(currentRequestId);
   }
+
+  @Test
+  public void shouldRetrieveCorrelationFromRequestAttributes() {
+
+    // given
+    final DefaultRequestCorrelation correlation =
+        new DefaultRequestCorrelation(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+    RequestContextHolder.getRequestAttributes()
+        .setAttribute(
+            RequestCorrelationConsts.ATTRIBUTE_NAME, correlation, RequestAttributes.SCOPE_REQUEST);
+
+    // when
+    final RequestCorrelation current = RequestCorrelationUtils.getCurrentCorrelation();
+
+    // then
+    assertThat(current).isSameAs(correlation);
+  }
+
+  @Test
+  public void shouldPreferBoundCorrelation() throws Exception {
+
+    // given
+    final DefaultRequestCorrelation bound =
+        new DefaultRequestCorrelation(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+    RequestContextHolder.getRequestAttributes()
+        .setAttribute(
+            RequestCorrelationConsts.ATTRIBUTE_NAME,
+            new DefaultRequestCorrelation("other", "other"),
+            RequestAttributes.SCOPE_REQUEST);
+
+    // when
+    final RequestCorrelation current =
+        RequestCorrelationHolder.callWith(bound, RequestCorrelationUtils::getCurrentCorrelation);
+
+    // then
+    assertThat(current).isSameAs(bound);
+  }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import java.io.IOException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+/**
+ * Tests the {@link ScopedValueCorrelationHolderStrategy} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class ScopedValueCorrelationHolderStrategyTest {
+
+  private ScopedValueCorrelationHolderStrategy strategy;
+
+  @BeforeEach
+  public void setUp() {
+    try {
+      strategy = new ScopedValueCorrelationHolderStrategy();
+    } catch (IllegalStateException e) {
+      strategy = null;
+    }
+  }
+
+  @Test
+  @EnabledForJreRange(max = JRE.JAVA_20)
+  public void shouldFailWithoutScopedValues() {
+    assertThatThrownBy(ScopedValueCorrelationHolderStrategy::new)
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void shouldBindCorrelationWhileCalling() throws Exception {
+    assumeTrue(strategy != null, "scoped values unavailable");
+
+    // given
+    final RequestCorrelation correlation = new DefaultRequestCorrelation("session", "request");
+
+    // when
+    final RequestCorrelation bound = strategy.callWith(correlation, strategy::getCorrelation);
+
+    // then
+    assertThat(bound).isSameAs(correlation);
+    assertThat(strategy.getCorrelation()).isNull();
+  }
+
+  @Test
+  public void shouldPropagateTaskFailure() {
+    assumeTrue(strategy != null, "scoped values unavailable");
+
+    // given
+    final RequestCorrelation correlation = new DefaultRequestCorrelation("session", "request");
+
+    // when/then
+    assertThatThrownBy(
+            () ->
+                strategy.callWith(
+                    correlation,
+                    () -> {
+                      throw new IOException("failed");
+                    }))
+        .isInstanceOf(IOException.class);
+    assertThat(strategy.getCorrelation()).isNull();
+  }
+
+  @Test
+  public void shouldNotSupportBinding() {
+    assumeTrue(strategy != null, "scoped values unavailable");
+
+    // given
+    final RequestCorrelation correlation = new DefaultRequestCorrelation("session", "request");
+
+    // when/then
+    assertThat(strategy.supportsBinding()).isFalse();
+    assertThatThrownBy(() -> strategy.bind(correlation))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+}
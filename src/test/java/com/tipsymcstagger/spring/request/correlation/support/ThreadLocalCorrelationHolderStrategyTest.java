@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.api.RequestCorrelationHolderStrategy;
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link ThreadLocalCorrelationHolderStrategy} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class ThreadLocalCorrelationHolderStrategyTest {
+
+  private final ThreadLocalCorrelationHolderStrategy strategy =
+      new ThreadLocalCorrelationHolderStrategy();
+
+  @Test
+  public void shouldBindCorrelationWhileCalling() throws Exception {
+
+    // given
+    final RequestCorrelation correlation = new DefaultRequestCorrelation("session", "request");
+
+    // when
+    final RequestCorrelation bound = strategy.callWith(correlation, strategy::getCorrelation);
+
+    // then
+    assertThat(bound).isSameAs(correlation);
+    assertThat(strategy.getCorrelation()).isNull();
+  }
+
+  @Test
+  public void shouldRestorePreviousCorrelation() throws Exception {
+
+    // given
+    final RequestCorrelation outer = new DefaultRequestCorrelation("session", "outer");
+    final RequestCorrelation inner = new DefaultRequestCorrelation("session", "inner");
+
+    // when
+    final RequestCorrelation restored =
+        strategy.callWith(
+            outer,
+            () -> {
+              strategy.callWith(inner, strategy::getCorrelation);
+              return strategy.getCorrelation();
+            });
+
+    // then
+    assertThat(restored).isSameAs(outer);
+    assertThat(strategy.getCorrelation()).isNull();
+  }
+
+  @Test
+  public void shouldUnbindWhenTaskFails() {
+
+    // given
+    final RequestCorrelation correlation = new DefaultRequestCorrelation("session", "request");
+
+    // when
+    assertThatThrownBy(
+            () ->
+                strategy.callWith(
+                    correlation,
+                    () -> {
+                      throw new IOException("failed");
+                    }))
+        .isInstanceOf(IOException.class);
+
+    // then
+    assertThat(strategy.getCorrelation()).isNull();
+  }
+
+  @Test
+  public void shouldBindUntilClosed() {
+
+    // given
+    final RequestCorrelation outer = new DefaultRequestCorrelation("session", "outer");
+    final RequestCorrelation inner = new DefaultRequestCorrelation("session", "inner");
+
+    // when
+    final RequestCorrelationHolderStrategy.Binding outerBinding = strategy.bind(outer);
+    final RequestCorrelationHolderStrategy.Binding innerBinding = strategy.bind(inner);
+
+    // then
+    assertThat(strategy.supportsBinding()).isTrue();
+    assertThat(strategy.getCorrelation()).isSameAs(inner);
+    innerBinding.close();
+    assertThat(strategy.getCorrelation()).isSameAs(outer);
+    outerBinding.close();
+    assertThat(strategy.getCorrelation()).isNull();
+  }
+}
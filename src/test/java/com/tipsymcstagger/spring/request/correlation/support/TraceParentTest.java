@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link TraceParent} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class TraceParentTest {
+
+  private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+  @Test
+  public void shouldParseTraceId() {
+    assertThat(TraceParent.parseTraceId("00-" + TRACE_ID + "-00f067aa0ba902b7-01"))
+        .isEqualTo(TRACE_ID);
+    assertThat(TraceParent.parseTraceId("01-" + TRACE_ID + "-00f067aa0ba902b7-01-later"))
+        .isEqualTo(TRACE_ID);
+  }
+
+  @Test
+  public void shouldRejectInvalidHeaders() {
+    assertThat(TraceParent.parseTraceId(null)).isNull();
+    assertThat(TraceParent.parseTraceId("00-" + TRACE_ID + "-00f067aa0ba902b7-0")).isNull();
+    assertThat(TraceParent.parseTraceId("00-" + TRACE_ID + "-00f067aa0ba902b7-01-")).isNull();
+    assertThat(TraceParent.parseTraceId("00-" + TRACE_ID.toUpperCase() + "-00f067aa0ba902b7-01"))
+        .isNull();
+    assertThat(TraceParent.parseTraceId("00-" + TRACE_ID + "_00f067aa0ba902b7-01")).isNull();
+    assertThat(TraceParent.parseTraceId("ff-" + TRACE_ID + "-00f067aa0ba902b7-01")).isNull();
+    assertThat(
+            TraceParent.parseTraceId("00-00000000000000000000000000000000-00f067aa0ba902b7-01"))
+        .isNull();
+    assertThat(TraceParent.parseTraceId("00-" + TRACE_ID + "-0000000000000000-01")).isNull();
+  }
+
+  @Test
+  public void shouldFormatValidHeaders() {
+
+    // given
+    final UUID uuid = UUID.randomUUID();
+
+    // when
+    final String fromTraceId = TraceParent.format(TRACE_ID, true);
+    final String fromUuid = TraceParent.format(uuid.toString(), false);
+    final String fromOther = TraceParent.format("some-request-id", false);
+
+    // then
+    assertThat(TraceParent.parseTraceId(fromTraceId)).isEqualTo(TRACE_ID);
+    assertThat(fromTraceId).endsWith("-01");
+    assertThat(TraceParent.parseTraceId(fromUuid)).isEqualTo(uuid.toString().replace("-", ""));
+    assertThat(fromUuid).endsWith("-00");
+    assertThat(TraceParent.parseTraceId(fromOther))
+        .isNotNull()
+        .isEqualTo(TraceParent.parseTraceId(TraceParent.format("some-request-id", false)));
+  }
+
+  @Test
+  public void shouldUseNewParentIdForEachCall() {
+    assertThat(TraceParent.format(TRACE_ID, false))
+        .isNotEqualTo(TraceParent.format(TRACE_ID, false));
+  }
+
+  @Test
+  public void shouldMatchHeaderWrittenForRequest() {
+
+    // given
+    final String header = TraceParent.format("some-request-id", true);
+
+    // then
+    assertThat(TraceParent.matches(header, "some-request-id", true)).isTrue();
+    assertThat(TraceParent.matches(TraceParent.format(TRACE_ID, true), TRACE_ID, true)).isTrue();
+    assertThat(TraceParent.matches(header, "some-request-id", false)).isFalse();
+    assertThat(TraceParent.matches(header, "other-request-id", true)).isFalse();
+    assertThat(TraceParent.matches(null, "some-request-id", true)).isFalse();
+    assertThat(TraceParent.matches("not a header", "some-request-id", true)).isFalse();
+  }
+}
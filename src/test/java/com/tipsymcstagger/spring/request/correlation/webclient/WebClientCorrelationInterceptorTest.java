@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2015-2024 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");  you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.  See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.tipsymcstagger.spring.request.correlation.webclient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tipsymcstagger.spring.request.correlation.CorrelationTestUtils;
+import com.tipsymcstagger.spring.request.correlation.filter.DefaultRequestCorrelation;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationConsts;
+import com.tipsymcstagger.spring.request.correlation.support.RequestCorrelationProperties;
+import com.tipsymcstagger.spring.request.correlation.support.TraceParent;
+import java.net.URI;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Tests the {@link WebClientCorrelationInterceptor} class.
+ *
+ * @author Steven C. Saliman
+ */
+public class WebClientCorrelationInterceptorTest {
+  private static final String SESSION_ID = "TEST_SESSION_ID";
+  private static final String REQUEST_ID = "TEST_REQUEST_ID";
+  private RequestCorrelationProperties properties = new RequestCorrelationProperties();
+  private ExchangeFilterFunction filter;
+
+  /** The request that reached the end of the filter chain. */
+  private ClientRequest exchanged;
+
+  private final ExchangeFunction next =
+      request -> {
+        exchanged = request;
+        return Mono.empty();
+      };
+
+  private final ClientRequest request =
+      ClientRequest.create(HttpMethod.GET, URI.create("http://localhost/ids")).build();
+
+  @BeforeEach
+  public void setUp() {
+    final WebClient.Builder builder = WebClient.builder();
+    new WebClientCorrelationInterceptor(properties).customize(builder);
+    builder.filters(filters -> filter = filters.get(0));
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+  }
+
+  @AfterEach
+  public void tearDown() {
+
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  public void shouldSetHeaderFromThread() {
+
+    // given
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+
+    // when
+    filter.filter(request, next).block();
+
+    // then
+    assertThat(exchanged.headers().get(RequestCorrelationConsts.SESSION_HEADER_NAME))
+        .containsExactly(SESSION_ID);
+    assertThat(exchanged.headers().get(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .containsExactly(REQUEST_ID);
+  }
+
+  @Test
+  public void shouldSetHeaderFromContext() {
+
+    // given
+    RequestContextHolder.resetRequestAttributes();
+
+    // when
+    filter
+        .filter(request, next)
+        .contextWrite(
+            context ->
+                context.put(
+                    RequestCorrelationConsts.ATTRIBUTE_NAME,
+                    new DefaultRequestCorrelation(SESSION_ID, REQUEST_ID)))
+        .block();
+
+    // then
+    assertThat(exchanged.headers().get(RequestCorrelationConsts.SESSION_HEADER_NAME))
+        .containsExactly(SESSION_ID);
+    assertThat(exchanged.headers().get(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .containsExactly(REQUEST_ID);
+  }
+
+  @Test
+  public void shouldNotSetHeader() {
+
+    // when
+    filter.filter(request, next).block();
+
+    // then
+    assertThat(exchanged.headers())
+        .doesNotContainKeys(
+            RequestCorrelationConsts.SESSION_HEADER_NAME,
+            RequestCorrelationConsts.REQUEST_HEADER_NAME);
+  }
+
+  @Test
+  public void shouldReplaceHeaderSetByCaller() {
+
+    // given
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+    final ClientRequest callerRequest =
+        ClientRequest.from(request)
+            .header(RequestCorrelationConsts.REQUEST_HEADER_NAME, "OTHER_REQUEST_ID")
+            .build();
+
+    // when
+    filter.filter(callerRequest, next).block();
+
+    // then
+    assertThat(exchanged.headers().get(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .containsExactly(REQUEST_ID);
+  }
+
+  @Test
+  public void shouldNotDuplicateHeaderWhenRetried() {
+
+    // given
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+    filter.filter(request, next).block();
+
+    // when
+    filter.filter(exchanged, next).block();
+
+    // then
+    assertThat(exchanged.headers().get(RequestCorrelationConsts.SESSION_HEADER_NAME))
+        .containsExactly(SESSION_ID);
+    assertThat(exchanged.headers().get(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .containsExactly(REQUEST_ID);
+  }
+
+  @Test
+  public void shouldNotDuplicateHeaderWhenRegisteredTwice() {
+
+    // given
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+
+    // when
+    filter.andThen(filter).filter(request, next).block();
+
+    // then
+    assertThat(exchanged.headers().get(RequestCorrelationConsts.SESSION_HEADER_NAME))
+        .containsExactly(SESSION_ID);
+    assertThat(exchanged.headers().get(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .containsExactly(REQUEST_ID);
+  }
+
+  @Test
+  public void shouldPassSameRequestWithoutCorrelation() {
+
+    // when
+    filter.filter(request, next).block();
+
+    // then
+    assertThat(exchanged).isSameAs(request);
+  }
+
+  @Test
+  public void shouldPassSameRequestWhenHeadersMatch() {
+
+    // given
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+    final ClientRequest correlatedRequest =
+        ClientRequest.from(request)
+            .header(RequestCorrelationConsts.SESSION_HEADER_NAME, SESSION_ID)
+            .header(RequestCorrelationConsts.REQUEST_HEADER_NAME, REQUEST_ID)
+            .build();
+
+    // when
+    filter.filter(correlatedRequest, next).block();
+
+    // then
+    assertThat(exchanged).isSameAs(correlatedRequest);
+  }
+
+  @Test
+  public void shouldPassSameRequestWhenRetriedWithTraceContext() {
+
+    // given
+    properties.getTraceContext().setEnabled(true);
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+    filter.filter(request, next).block();
+    final ClientRequest firstAttempt = exchanged;
+
+    // when
+    filter.filter(firstAttempt, next).block();
+
+    // then
+    assertThat(firstAttempt).isNotSameAs(request);
+    assertThat(firstAttempt.headers().get(TraceParent.HEADER_NAME)).hasSize(1);
+    assertThat(exchanged).isSameAs(firstAttempt);
+  }
+
+  @Test
+  public void shouldCopyRequestWhenTraceParentIsForOtherRequest() {
+
+    // given
+    properties.getTraceContext().setEnabled(true);
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+    final String otherTraceParent = TraceParent.format("OTHER_REQUEST_ID", false);
+    final ClientRequest callerRequest =
+        ClientRequest.from(request)
+            .header(RequestCorrelationConsts.SESSION_HEADER_NAME, SESSION_ID)
+            .header(RequestCorrelationConsts.REQUEST_HEADER_NAME, REQUEST_ID)
+            .header(TraceParent.HEADER_NAME, otherTraceParent)
+            .build();
+
+    // when
+    filter.filter(callerRequest, next).block();
+
+    // then
+    assertThat(exchanged).isNotSameAs(callerRequest);
+    final String traceParent = exchanged.headers().getFirst(TraceParent.HEADER_NAME);
+    assertThat(TraceParent.matches(traceParent, REQUEST_ID, false)).isTrue();
+  }
+
+  @Test
+  public void shouldCopyRequestWhenHeadersDiffer() {
+
+    // given
+    CorrelationTestUtils.setCorrelatingIds(SESSION_ID, REQUEST_ID);
+    final ClientRequest callerRequest =
+        ClientRequest.from(request)
+            .header(RequestCorrelationConsts.SESSION_HEADER_NAME, SESSION_ID)
+            .header(RequestCorrelationConsts.REQUEST_HEADER_NAME, "OTHER_REQUEST_ID")
+            .build();
+
+    // when
+    filter.filter(callerRequest, next).block();
+
+    // then
+    assertThat(exchanged).isNotSameAs(callerRequest);
+    assertThat(callerRequest.headers().get(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .containsExactly("OTHER_REQUEST_ID");
+    assertThat(exchanged.headers().get(RequestCorrelationConsts.REQUEST_HEADER_NAME))
+        .containsExactly(REQUEST_ID);
+  }
+}